@@ -20,6 +20,7 @@ import LocationOnIcon from '@mui/icons-material/LocationOn';
 import { useWeb3React } from '@web3-react/core';
 import axios from 'axios';
 import { format } from 'date-fns';
+import { useAuth } from '../contexts/AuthContext';
 
 interface Notification {
   id: string;
@@ -36,13 +37,75 @@ const NotificationBell: React.FC = () => {
   const [notifications, setNotifications] = useState<Notification[]>([]);
   const [unreadCount, setUnreadCount] = useState(0);
 
+  const { token } = useAuth();
+
   useEffect(() => {
-    if (account) {
-      fetchNotifications();
+    if (!account) {
+      return;
+    }
+    fetchNotifications();
+
+    if (!token || typeof EventSource === 'undefined') {
       const interval = setInterval(fetchNotifications, 30000); // Poll every 30 seconds
       return () => clearInterval(interval);
     }
-  }, [account]);
+
+    // Pushed updates. EventSource cannot send the session token, so each connection
+    // uses a short-lived stream ticket. Once the browser gives up reconnecting (e.g. the
+    // ticket expired), a new ticket is fetched and the stream resumes from the last event.
+    let source: EventSource | null = null;
+    let lastEventId: string | null = null;
+    let closed = false;
+
+    const open = async () => {
+      let ticket: string;
+      try {
+        const response = await axios.post(
+          'http://localhost:8080/api/auth/stream-ticket',
+          null,
+          { headers: { Authorization: `Bearer ${token}` } }
+        );
+        ticket = response.data.ticket;
+      } catch (error) {
+        console.error('Error opening notification stream:', error);
+        if (!closed) {
+          setTimeout(open, 30000);
+        }
+        return;
+      }
+      if (closed) {
+        return;
+      }
+      const resume = lastEventId ? `&lastEventId=${encodeURIComponent(lastEventId)}` : '';
+      source = new EventSource(
+        `http://localhost:8080/api/notifications/stream?stream_ticket=${encodeURIComponent(ticket)}${resume}`
+      );
+      source.addEventListener('notification', (event) => {
+        const message = event as MessageEvent;
+        lastEventId = message.lastEventId || lastEventId;
+        const notification: Notification = JSON.parse(message.data);
+        setNotifications((current) =>
+          current.some((n) => n.id === notification.id) ? current : [notification, ...current]
+        );
+      });
+      source.addEventListener('unread-count', (event) => {
+        setUnreadCount(Number((event as MessageEvent).data));
+      });
+      source.addEventListener('resync', () => fetchNotifications());
+      source.onerror = () => {
+        if (source && source.readyState === EventSource.CLOSED && !closed) {
+          source = null;
+          open();
+        }
+      };
+    };
+    open();
+
+    return () => {
+      closed = true;
+      source?.close();
+    };
+  }, [account, token]);
 
   const fetchNotifications = async () => {
     try {
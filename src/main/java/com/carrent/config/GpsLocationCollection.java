@@ -0,0 +1,87 @@
+package com.carrent.config;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which collection {@code GpsLocation} documents live in. With time-series
+ * mode on, fixes go to a native MongoDB time-series collection (trackingId as
+ * metaField, timestamp as timeField) that expires raw points after a retention
+ * period. The collection is created on first use, before any index is built on it;
+ * MongoDB would otherwise implicitly create a regular collection.
+ *
+ * Referenced from the {@code @Document} annotation on {@code GpsLocation}, so it
+ * depends on the database factory rather than on {@code MongoTemplate}.
+ */
+@Slf4j
+@Component("gpsLocationCollection")
+public class GpsLocationCollection {
+    public static final String REGULAR_COLLECTION = "gps_locations";
+
+    private final MongoDatabaseFactory mongoDatabaseFactory;
+    private final boolean timeSeries;
+    private final String timeSeriesCollection;
+    private final Duration expireAfter;
+    private final TimeSeriesGranularity granularity;
+    private volatile boolean ensured;
+
+    public GpsLocationCollection(
+            MongoDatabaseFactory mongoDatabaseFactory,
+            @Value("${gps.storage.time-series.enabled:false}") boolean timeSeries,
+            @Value("${gps.storage.time-series.collection:gps_locations_ts}") String timeSeriesCollection,
+            @Value("${gps.storage.time-series.expire-after:P90D}") Duration expireAfter,
+            @Value("${gps.storage.time-series.granularity:SECONDS}") TimeSeriesGranularity granularity
+    ) {
+        this.mongoDatabaseFactory = mongoDatabaseFactory;
+        this.timeSeries = timeSeries;
+        this.timeSeriesCollection = timeSeriesCollection;
+        this.expireAfter = expireAfter;
+        this.granularity = granularity;
+    }
+
+    public String getName() {
+        if (!timeSeries) {
+            return REGULAR_COLLECTION;
+        }
+        if (!ensured) {
+            ensureTimeSeriesCollection();
+        }
+        return timeSeriesCollection;
+    }
+
+    public boolean isTimeSeries() {
+        return timeSeries;
+    }
+
+    public String getTimeSeriesCollection() {
+        return timeSeriesCollection;
+    }
+
+    private synchronized void ensureTimeSeriesCollection() {
+        if (ensured) {
+            return;
+        }
+        MongoDatabase database = mongoDatabaseFactory.getMongoDatabase();
+        Document existing = database.listCollections().filter(new Document("name", timeSeriesCollection)).first();
+        if (existing == null) {
+            database.createCollection(timeSeriesCollection, new CreateCollectionOptions()
+                .timeSeriesOptions(new TimeSeriesOptions("timestamp")
+                    .metaField("trackingId")
+                    .granularity(granularity))
+                .expireAfter(expireAfter.getSeconds(), TimeUnit.SECONDS));
+            log.info("Created time-series collection {} with {} retention", timeSeriesCollection, expireAfter);
+        } else if (!"timeseries".equals(existing.getString("type"))) {
+            throw new IllegalStateException("Collection " + timeSeriesCollection + " exists but is not a time-series collection");
+        }
+        ensured = true;
+    }
+}
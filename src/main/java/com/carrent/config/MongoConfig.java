@@ -8,6 +8,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import java.util.Collection;
+import java.util.List;
 
 @Configuration
 @EnableMongoRepositories(basePackages = "com.carrent.repository")
@@ -24,6 +26,13 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         return databaseName;
     }
 
+    // Scan the document classes up front so MongoIndexInitializer sees all of them,
+    // including those without a repository
+    @Override
+    protected Collection<String> getMappingBasePackages() {
+        return List.of("com.carrent.model");
+    }
+
     @Override
     public MongoClient mongoClient() {
         ConnectionString connectionString = new ConnectionString(mongoUri);
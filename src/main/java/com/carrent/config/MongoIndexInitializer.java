@@ -0,0 +1,57 @@
+package com.carrent.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on the document classes ({@code @Indexed},
+ * {@code @CompoundIndex}) once at startup, before requests are served. Creating an
+ * index that already exists is a no-op. An index that cannot be built, for example
+ * a unique index over existing duplicates, is logged and skipped so the rest of
+ * the application still starts.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+    private final MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void createIndexes() {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+            mongoTemplate.getConverter().getMappingContext();
+        IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        int ensured = 0;
+        int failed = 0;
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : indexResolver.resolveIndexFor(entity.getTypeInformation())) {
+                try {
+                    indexOps.ensureIndex(index);
+                    ensured++;
+                } catch (DataAccessException e) {
+                    failed++;
+                    log.error("Failed to create index {} on {}", index.getIndexOptions().get("name"),
+                        entity.getCollection(), e);
+                }
+            }
+        }
+        log.info("Ensured {} MongoDB indexes ({} failed)", ensured, failed);
+    }
+}
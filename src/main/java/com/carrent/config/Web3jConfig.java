@@ -0,0 +1,26 @@
+package com.carrent.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+/**
+ * The node connection and the service wallet, shared by everything that talks to
+ * the chain.
+ */
+@Configuration
+public class Web3jConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public Web3j web3j(@Value("${ethereum.network.url}") String networkUrl) {
+        return Web3j.build(new HttpService(networkUrl));
+    }
+
+    @Bean
+    public Credentials credentials(@Value("${ethereum.wallet.private-key}") String privateKey) {
+        return Credentials.create(privateKey);
+    }
+}
@@ -4,7 +4,10 @@ import com.carrent.model.User;
 import com.carrent.security.JwtUtils;
 import com.carrent.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.web3j.crypto.ECDSASignature;
 import org.web3j.crypto.Keys;
@@ -60,6 +63,17 @@ public class AuthController {
         }
     }
 
+    // Event streams take this ticket in the query string instead of the session token
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<?> getStreamTicket(@AuthenticationPrincipal UserDetails user) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Map<String, String> response = new HashMap<>();
+        response.put("ticket", jwtUtils.generateStreamTicket(user.getUsername()));
+        return ResponseEntity.ok(response);
+    }
+
     private boolean verifyEthereumSignature(String message, String signature, String address) {
         try {
             byte[] signatureBytes = Numeric.hexStringToByteArray(signature);
@@ -1,6 +1,7 @@
 package com.carrent.controller;
 
 import com.carrent.model.Car;
+import com.carrent.model.NearbyCar;
 import com.carrent.service.CarService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +14,9 @@ import java.util.List;
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class CarController {
+    private static final double MAX_SEARCH_RADIUS_METERS = 100_000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final CarService carService;
 
     @PostMapping
@@ -30,6 +34,18 @@ public class CarController {
         return ResponseEntity.ok(carService.getAvailableCars());
     }
 
+    @GetMapping("/available/near")
+    public ResponseEntity<List<NearbyCar>> getAvailableCarsNear(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "5000") double radiusMeters,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (radiusMeters <= 0 || radiusMeters > MAX_SEARCH_RADIUS_METERS || limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(carService.findAvailableCarsNear(latitude, longitude, radiusMeters, limit));
+    }
+
     @GetMapping("/{vinNumber}")
     public ResponseEntity<Car> getCarByVin(@PathVariable String vinNumber) {
         return carService.getCarByVin(vinNumber)
@@ -0,0 +1,37 @@
+package com.carrent.controller;
+
+import com.carrent.model.Geofence;
+import com.carrent.service.GeofenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/geofences")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:3000")
+public class GeofenceController {
+    private final GeofenceService geofenceService;
+
+    @PostMapping
+    public ResponseEntity<?> createGeofence(@RequestBody Geofence geofence) {
+        try {
+            return ResponseEntity.ok(geofenceService.createGeofence(geofence));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/rental/{rentalId}")
+    public ResponseEntity<List<Geofence>> getRentalGeofences(@PathVariable String rentalId) {
+        return ResponseEntity.ok(geofenceService.getRentalGeofences(rentalId));
+    }
+
+    @DeleteMapping("/{geofenceId}")
+    public ResponseEntity<Void> deleteGeofence(@PathVariable String geofenceId) {
+        geofenceService.deleteGeofence(geofenceId);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -1,17 +1,43 @@
 package com.carrent.controller;
 
 import com.carrent.model.GpsLocation;
+import com.carrent.model.RecentTrack;
+import com.carrent.service.GpsTimeSeriesMigration;
 import com.carrent.service.GpsTrackingService;
+import com.carrent.service.TelematicsDeviceRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/gps")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class GpsTrackingController {
+    private static final int MAX_STREAM_TRACKING_IDS = 100;
+    private static final int MAX_HISTORY_PAGE_SIZE = 5000;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final GpsTrackingService gpsTrackingService;
+    private final TelematicsDeviceRegistry telematicsDeviceRegistry;
+    private final GpsTimeSeriesMigration gpsTimeSeriesMigration;
 
     @PostMapping("/{trackingId}")
     public ResponseEntity<GpsLocation> updateLocation(
@@ -21,10 +47,142 @@ public class GpsTrackingController {
         return ResponseEntity.ok(gpsTrackingService.updateLocation(trackingId, latitude, longitude));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Integer>> ingestLocations(@RequestBody List<GpsLocation> locations) {
+        int accepted;
+        try {
+            accepted = gpsTrackingService.ingestLocations(locations);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<String, Integer> response = new HashMap<>();
+        response.put("accepted", accepted);
+        response.put("rejected", locations.size() - accepted);
+        if (accepted < locations.size()) {
+            // The buffer is full; the client should resend the rejected tail later
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @PostMapping("/devices/{trackingId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> registerDevice(@PathVariable String trackingId) {
+        Map<String, Integer> response = new HashMap<>();
+        response.put("deviceIndex", telematicsDeviceRegistry.register(trackingId));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/admin/time-series/migration")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startTimeSeriesMigration() {
+        try {
+            if (!gpsTimeSeriesMigration.start()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(gpsTimeSeriesMigration.getStatus());
+            }
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.accepted().body(gpsTimeSeriesMigration.getStatus());
+    }
+
+    @GetMapping("/admin/time-series/migration")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getTimeSeriesMigrationStatus() {
+        return ResponseEntity.ok(gpsTimeSeriesMigration.getStatus());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLocations(@RequestParam List<String> trackingIds) {
+        if (trackingIds.isEmpty() || trackingIds.size() > MAX_STREAM_TRACKING_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(gpsTrackingService.subscribe(trackingIds));
+    }
+
     @GetMapping("/{trackingId}")
     public ResponseEntity<GpsLocation> getLatestLocation(@PathVariable String trackingId) {
         return gpsTrackingService.getLatestLocation(trackingId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @GetMapping("/{trackingId}/recent")
+    public ResponseEntity<RecentTrack> getRecentTrack(
+            @PathVariable String trackingId,
+            @RequestParam(defaultValue = "300") long seconds) {
+        long since = System.currentTimeMillis() - seconds * 1_000;
+        return gpsTrackingService.getRecentTrack(trackingId, since)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/admin/recent-track/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRecentTrackStats() {
+        return ResponseEntity.ok(gpsTrackingService.getRecentTrackMemoryStats());
+    }
+
+    @GetMapping("/{trackingId}/trip")
+    public ResponseEntity<StreamingResponseBody> getTripHistory(
+            @PathVariable String trackingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            StringBuilder line = new StringBuilder(96);
+            try {
+                gpsTrackingService.streamTripHistory(trackingId, from, to, (epochMillis, latitude, longitude) -> {
+                    line.setLength(0);
+                    line.append("{\"latitude\":").append(latitude)
+                        .append(",\"longitude\":").append(longitude)
+                        .append(",\"epochMillis\":").append(epochMillis)
+                        .append("}\n");
+                    try {
+                        writer.append(line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/{trackingId}/history")
+    public ResponseEntity<?> getTripHistoryPage(
+            @PathVariable String trackingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(gpsTrackingService.getTripHistoryPage(trackingId, from, to, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{trackingId}/trip/simplify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> simplifyTripHistory(
+            @PathVariable String trackingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "5") double toleranceMeters) {
+        Map<String, Integer> response = new HashMap<>();
+        response.put("removed", gpsTrackingService.simplifyTripHistory(trackingId, from, to, toleranceMeters));
+        return ResponseEntity.ok(response);
+    }
 }
@@ -3,22 +3,63 @@ package com.carrent.controller;
 import com.carrent.model.Notification;
 import com.carrent.service.NotificationService;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/notifications")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class NotificationController {
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final NotificationService notificationService;
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamNotifications(
+            @AuthenticationPrincipal UserDetails user,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String resumeFrom = lastEventId != null ? lastEventId : lastEventIdParam;
+        if (resumeFrom != null && !ObjectId.isValid(resumeFrom)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(notificationService.subscribe(user.getUsername(), resumeFrom));
+    }
+
     @GetMapping("/{userId}")
     public ResponseEntity<List<Notification>> getUserNotifications(@PathVariable String userId) {
         return ResponseEntity.ok(notificationService.getUserNotifications(userId));
     }
 
+    @GetMapping("/{userId}/page")
+    public ResponseEntity<?> getUserNotificationsPage(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(notificationService.getUserNotifications(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/{userId}/unread")
     public ResponseEntity<List<Notification>> getUnreadNotifications(@PathVariable String userId) {
         return ResponseEntity.ok(notificationService.getUnreadNotifications(userId));
@@ -40,4 +81,16 @@ public class NotificationController {
         notificationService.markAllAsRead(userId);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/{userId}/read/batch")
+    public ResponseEntity<Map<String, Long>> markAsRead(
+            @PathVariable String userId,
+            @RequestBody List<String> notificationIds) {
+        if (notificationIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, Long> response = new HashMap<>();
+        response.put("updated", notificationService.markAsRead(userId, notificationIds));
+        return ResponseEntity.ok(response);
+    }
 }
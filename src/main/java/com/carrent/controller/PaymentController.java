@@ -1,23 +1,47 @@
 package com.carrent.controller;
 
 import com.carrent.model.PaymentHistory;
+import com.carrent.service.ExportService;
 import com.carrent.service.PaymentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/payments")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class PaymentController {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
     private final PaymentService paymentService;
+    private final ExportService exportService;
 
     @GetMapping("/user/{address}")
-    public ResponseEntity<List<PaymentHistory>> getUserPayments(@PathVariable String address) {
-        return ResponseEntity.ok(paymentService.getUserPayments(address));
+    public ResponseEntity<?> getUserPayments(
+            @PathVariable String address,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(paymentService.getUserPayments(address, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/rental/{rentalId}")
@@ -40,4 +64,41 @@ public class PaymentController {
     public ResponseEntity<BigDecimal> getTotalSpent(@PathVariable String address) {
         return ResponseEntity.ok(paymentService.calculateTotalSpent(address));
     }
+
+    @GetMapping("/user/{address}/summary")
+    public ResponseEntity<Map<String, Object>> getWalletSummary(@PathVariable String address) {
+        return ResponseEntity.ok(paymentService.getWalletSummary(address));
+    }
+
+    @PutMapping("/{paymentId}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PaymentHistory> updatePaymentStatus(
+            @PathVariable String paymentId,
+            @RequestParam PaymentHistory.PaymentStatus status) {
+        return ResponseEntity.ok(paymentService.updatePaymentStatus(paymentId, status));
+    }
+
+    @PostMapping("/admin/summaries/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> rebuildWalletSummaries() {
+        paymentService.rebuildWalletSummaries();
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportService.Format format) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> exportService.exportPayments(from, to, format, outputStream);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(ExportService.fileName("payments", from, to, format)).build().toString())
+            .contentType(APPLICATION_GZIP)
+            .body(body);
+    }
 }
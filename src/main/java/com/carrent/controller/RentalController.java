@@ -1,11 +1,19 @@
 package com.carrent.controller;
 
 import com.carrent.model.Rental;
+import com.carrent.service.ExportService;
 import com.carrent.service.RentalService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -13,7 +21,11 @@ import java.util.List;
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class RentalController {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
     private final RentalService rentalService;
+    private final ExportService exportService;
 
     @PostMapping
     public ResponseEntity<Rental> createRental(@RequestBody Rental rental) {
@@ -25,6 +37,21 @@ public class RentalController {
         return ResponseEntity.ok(rentalService.getRentalsByRenter(renterAddress));
     }
 
+    @GetMapping("/renter/{renterAddress}/page")
+    public ResponseEntity<?> getRentalsByRenterPage(
+            @PathVariable String renterAddress,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(rentalService.getRentalsByRenter(renterAddress, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/active/{vinNumber}")
     public ResponseEntity<Rental> getActiveRental(@PathVariable String vinNumber) {
         return rentalService.getActiveRental(vinNumber)
@@ -41,4 +68,21 @@ public class RentalController {
     public ResponseEntity<List<Rental>> getActiveRentals() {
         return ResponseEntity.ok(rentalService.getActiveRentals());
     }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportRentals(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportService.Format format) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> exportService.exportRentals(from, to, format, outputStream);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(ExportService.fileName("rentals", from, to, format)).build().toString())
+            .contentType(APPLICATION_GZIP)
+            .body(body);
+    }
 }
@@ -13,6 +13,8 @@ import java.util.List;
 @RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class ReviewController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ReviewService reviewService;
 
     @PostMapping
@@ -25,11 +27,41 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getCarReviews(vinNumber));
     }
 
+    @GetMapping("/car/{vinNumber}/page")
+    public ResponseEntity<?> getCarReviewsPage(
+            @PathVariable String vinNumber,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(reviewService.getCarReviews(vinNumber, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<Review>> getUserReviews(@PathVariable String userId) {
         return ResponseEntity.ok(reviewService.getUserReviews(userId));
     }
 
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<?> getUserReviewsPage(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(reviewService.getUserReviews(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/rental/{rentalId}")
     public ResponseEntity<List<Review>> getRentalReviews(@PathVariable String rentalId) {
         return ResponseEntity.ok(reviewService.getRentalReviews(rentalId));
@@ -2,6 +2,7 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -9,7 +10,9 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class Car {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String vinNumber;
+    @Indexed
     private String ownerAddress;
     private String make;
     private String model;
@@ -17,6 +20,8 @@ public class Car {
     private boolean isAvailable;
     private double rentalPrice;
     private String ipfsDocumentHash;
+    @Indexed(sparse = true)
     private String gpsTrackingId;
     private String imageUrl;
+    private Long chainBlockNumber; // Block of the last contract event applied by the indexer
 }
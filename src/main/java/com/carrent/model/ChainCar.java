@@ -0,0 +1,23 @@
+package com.carrent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigInteger;
+
+/**
+ * A car as the CarRental contract returns it from getCarDetails. Unregistered VINs
+ * come back with the zero address as owner.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChainCar {
+    private String ownerAddress;
+    private String make;
+    private String model;
+    private BigInteger year;
+    private boolean isAvailable;
+    private BigInteger rentalPrice; // Per day, in wei
+    private String ipfsDocumentHash;
+}
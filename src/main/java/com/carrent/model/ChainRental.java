@@ -0,0 +1,22 @@
+package com.carrent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigInteger;
+
+/**
+ * The current rental of a car as the CarRental contract returns it from
+ * getCurrentRental. Times are unix seconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChainRental {
+    private String renterAddress;
+    private BigInteger startTime;
+    private BigInteger endTime;
+    private BigInteger totalAmount; // In wei
+    private boolean isActive;
+    private String gpsTrackingId;
+}
@@ -0,0 +1,34 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document(collection = "geofences")
+public class Geofence {
+    @Id
+    private String id;
+    @Indexed
+    private String rentalId;
+    private String trackingId; // Filled from the rental
+    private String userId; // Who gets alerted, the renter by default
+    private String name;
+    private FenceType type;
+
+    // Circle: center and radius. Polygon: parallel vertex arrays. Neither: applies everywhere.
+    private Double centerLatitude;
+    private Double centerLongitude;
+    private Double radiusMeters;
+    private double[] polygonLatitudes;
+    private double[] polygonLongitudes;
+
+    private Double speedLimitKmh; // Only for SPEED_LIMIT
+
+    public enum FenceType {
+        ALLOWED_REGION,  // Alert when the car leaves the region
+        FORBIDDEN_ZONE,  // Alert when the car enters the zone
+        SPEED_LIMIT      // Alert when the speed between fixes exceeds the limit, inside the shape if any
+    }
+}
@@ -2,11 +2,13 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
-@Document(collection = "gps_locations")
+@Document(collection = "#{@gpsLocationCollection.name}") // gps_locations, or the time-series collection
+@CompoundIndex(name = "tracking_timestamp", def = "{'trackingId': 1, 'timestamp': 1, '_id': 1}")
 public class GpsLocation {
     @Id
     private String id;
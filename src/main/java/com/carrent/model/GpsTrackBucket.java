@@ -0,0 +1,22 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "gps_track_buckets")
+@CompoundIndex(name = "tracking_bucket", def = "{'trackingId': 1, 'bucketStart': 1}")
+public class GpsTrackBucket {
+    @Id
+    private String id;
+    private String trackingId;
+    private LocalDateTime bucketStart; // Start of the time window this bucket covers
+    private LocalDateTime firstTimestamp;
+    private LocalDateTime lastTimestamp;
+    private int pointCount;
+    private byte[] points; // TrackCodec encoded
+    private boolean simplified;
+}
@@ -0,0 +1,36 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How far the contract event indexer got. The hashes of the last indexed blocks
+ * are kept so a reorg can be traced back to the last block both chains share.
+ */
+@Data
+@Document(collection = "indexer_checkpoints")
+public class IndexerCheckpoint {
+    @Id
+    private String id; // Contract address
+    private long lastBlock;
+    private List<BlockRef> recentBlocks = new ArrayList<>(); // Oldest first, ends with lastBlock
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class BlockRef {
+        private long number;
+        private String hash;
+
+        public BlockRef() {
+        }
+
+        public BlockRef(long number, String hash) {
+            this.number = number;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.carrent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyCar {
+    private Car car;
+    private double latitude;
+    private double longitude;
+    private double distanceMeters;
+}
@@ -2,11 +2,17 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "notifications")
+@CompoundIndexes({
+    @CompoundIndex(name = "user_timestamp_id", def = "{'userId': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "user_read_timestamp", def = "{'userId': 1, 'read': 1, 'timestamp': -1}")
+})
 public class Notification {
     @Id
     private String id;
@@ -17,6 +23,8 @@ public class Notification {
     private String referenceId; // Can be rentalId, reviewId, etc.
     private LocalDateTime timestamp;
     private boolean read;
+    private LocalDateTime readAt; // Read notifications expire from this, see NotificationRetentionService
+    private int digestCount; // Earlier notifications rolled into this one by the compactor
 
     public enum NotificationType {
         RENTAL_CREATED,
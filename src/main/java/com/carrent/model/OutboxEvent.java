@@ -0,0 +1,19 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "outbox_events")
+public class OutboxEvent {
+    @Id
+    private String id;
+    private Notification notification; // Pending notification, with its ID already assigned
+    private LocalDateTime createdAt;
+    private int attempts;
+    @Indexed
+    private LocalDateTime nextAttemptAt;
+}
@@ -2,22 +2,32 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "payment_history")
+@CompoundIndexes({
+    @CompoundIndex(name = "from_timestamp_id", def = "{'fromAddress': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "to_timestamp_id", def = "{'toAddress': 1, 'timestamp': -1, '_id': -1}")
+})
 public class PaymentHistory {
     @Id
     private String id;
+    @Indexed(unique = true, sparse = true)
     private String transactionHash;
     private String fromAddress;
     private String toAddress;
     private BigDecimal amount;
+    @Indexed
     private String rentalId;
     private PaymentType type;
     private PaymentStatus status;
+    @Indexed
     private LocalDateTime timestamp;
     private String currency; // ETH, USDC, etc.
 
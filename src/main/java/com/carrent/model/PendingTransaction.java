@@ -0,0 +1,46 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One nonce of the service wallet and the transaction currently sent with it.
+ * Written before the transaction is broadcast, so nonces in flight survive a restart.
+ */
+@Data
+@Document(collection = "pending_transactions")
+@CompoundIndex(name = "from_nonce", def = "{'fromAddress': 1, 'nonce': 1}", unique = true)
+public class PendingTransaction {
+    @Id
+    private String id;
+    private String fromAddress;
+    private long nonce;
+    private String toAddress;
+    private String data;
+    private BigInteger value;
+    private BigInteger gasPrice;
+    private BigInteger gasLimit;
+    private String transactionHash; // Latest broadcast; differs from the first after a gas bump
+    @Indexed
+    private List<String> transactionHashes = new ArrayList<>(); // Every hash sent for this nonce, oldest first
+    private Status status;
+    private boolean filler; // Empty self-transfer that only uses up the nonce
+    private String failureReason;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastSentAt;
+    @Indexed(expireAfterSeconds = 7 * 24 * 3600)
+    private LocalDateTime confirmedAt;
+
+    public enum Status {
+        PENDING,
+        CONFIRMED
+    }
+}
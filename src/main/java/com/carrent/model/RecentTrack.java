@@ -0,0 +1,16 @@
+package com.carrent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecentTrack {
+    private String trackingId;
+    // Parallel arrays, oldest first
+    private long[] epochMillis;
+    private double[] latitudes;
+    private double[] longitudes;
+}
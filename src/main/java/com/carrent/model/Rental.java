@@ -2,20 +2,32 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "rentals")
+@CompoundIndexes({
+    @CompoundIndex(name = "renter_start_id", def = "{'renterAddress': 1, 'startTime': -1, '_id': -1}"),
+    @CompoundIndex(name = "vin_active", def = "{'vinNumber': 1, 'isActive': 1}")
+})
 public class Rental {
     @Id
     private String id;
     private String vinNumber;
     private String renterAddress;
+    @Indexed
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private double totalAmount;
+    @Indexed
     private boolean isActive;
     private String gpsTrackingId;
+    @Indexed(sparse = true)
     private String transactionHash;
+    private Long blockNumber; // Block of the CarRented event, set when the rental came from the chain
+    private Long completedBlockNumber; // Block of the RentalCompleted event
 }
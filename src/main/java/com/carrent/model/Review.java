@@ -2,16 +2,24 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "reviews")
+@CompoundIndexes({
+    @CompoundIndex(name = "vin_timestamp_id", def = "{'vinNumber': 1, 'timestamp': -1, '_id': -1}"),
+    @CompoundIndex(name = "reviewer_timestamp_id", def = "{'reviewerId': 1, 'timestamp': -1, '_id': -1}")
+})
 public class Review {
     @Id
     private String id;
     private String vinNumber;
     private String reviewerId;
+    @Indexed
     private String rentalId;
     private int rating;
     private String comment;
@@ -0,0 +1,17 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document(collection = "telematics_devices")
+public class TelematicsDevice {
+    @Id
+    private String id;
+    @Indexed(unique = true)
+    private int deviceIndex; // Sent in every binary frame instead of the tracking ID
+    @Indexed(unique = true)
+    private String trackingId;
+}
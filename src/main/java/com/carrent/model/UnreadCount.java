@@ -0,0 +1,11 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+@Data
+public class UnreadCount {
+    @Id
+    private String userId;
+    private long count;
+}
@@ -2,6 +2,7 @@ package com.carrent.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.Set;
 
@@ -10,8 +11,10 @@ import java.util.Set;
 public class User {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String walletAddress;
     private String username;
+    @Indexed(unique = true, sparse = true)
     private String email;
     private Set<Role> roles;
     private boolean isEnabled;
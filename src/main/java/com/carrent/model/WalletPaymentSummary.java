@@ -0,0 +1,22 @@
+package com.carrent.model;
+
+import lombok.Data;
+import org.bson.types.Decimal128;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.Map;
+
+/**
+ * Running payment totals of one wallet, counting completed payments only. Amounts
+ * are Decimal128 so they can be adjusted in place with $inc.
+ */
+@Data
+@Document(collection = "wallet_payment_summaries")
+public class WalletPaymentSummary {
+    @Id
+    private String address;
+    private Decimal128 totalEarned;
+    private Decimal128 totalSpent;
+    private Map<String, Map<String, Decimal128>> earned; // currency -> payment type -> amount
+    private Map<String, Map<String, Decimal128>> spent;
+}
@@ -2,6 +2,7 @@ package com.carrent.repository;
 
 import com.carrent.model.Car;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,4 +10,5 @@ public interface CarRepository extends MongoRepository<Car, String> {
     Optional<Car> findByVinNumber(String vinNumber);
     List<Car> findByOwnerAddress(String ownerAddress);
     List<Car> findByIsAvailable(boolean isAvailable);
+    List<Car> findByGpsTrackingIdInAndIsAvailable(Collection<String> gpsTrackingIds, boolean isAvailable);
 }
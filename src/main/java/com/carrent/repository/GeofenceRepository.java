@@ -0,0 +1,10 @@
+package com.carrent.repository;
+
+import com.carrent.model.Geofence;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
+
+public interface GeofenceRepository extends MongoRepository<Geofence, String> {
+    List<Geofence> findByRentalId(String rentalId);
+    void deleteByRentalId(String rentalId);
+}
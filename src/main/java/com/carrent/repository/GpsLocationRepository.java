@@ -1,9 +1,29 @@
 package com.carrent.repository;
 
 import com.carrent.model.GpsLocation;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface GpsLocationRepository extends MongoRepository<GpsLocation, String> {
     Optional<GpsLocation> findFirstByTrackingIdOrderByTimestampDesc(String trackingId);
+
+    // Keyset page: everything after (afterTimestamp, afterId) up to and including `to`.
+    // Pass a Pageable sorted by timestamp and _id with page 0; the size is the page limit.
+    @Query("{ 'trackingId': ?0, 'timestamp': { $lte: ?3 }, $or: [ "
+            + "{ 'timestamp': { $gt: ?1 } }, { 'timestamp': ?1, '_id': { $gt: ?2 } } ] }")
+    List<GpsLocation> findPageAfter(String trackingId, LocalDateTime afterTimestamp, ObjectId afterId,
+                                    LocalDateTime to, Pageable pageable);
+
+    @Meta(cursorBatchSize = 2000)
+    @Query(value = "{ 'trackingId': ?0, 'timestamp': { $gte: ?1, $lte: ?2 } }",
+            fields = "{ 'latitude': 1, 'longitude': 1, 'timestamp': 1 }",
+            sort = "{ 'timestamp': 1, '_id': 1 }")
+    Stream<GpsLocation> streamByTrackingIdAndTimestampRange(String trackingId, LocalDateTime from, LocalDateTime to);
 }
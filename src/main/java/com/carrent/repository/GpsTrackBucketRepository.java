@@ -0,0 +1,17 @@
+package com.carrent.repository;
+
+import com.carrent.model.GpsTrackBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface GpsTrackBucketRepository extends MongoRepository<GpsTrackBucket, String> {
+    // Both bounds inclusive: `from` is usually the exact start of the first window
+    @Query(value = "{ 'trackingId': ?0, 'bucketStart': { $gte: ?1, $lte: ?2 } }",
+            sort = "{ 'bucketStart': 1, 'firstTimestamp': 1 }")
+    Stream<GpsTrackBucket> streamByTrackingIdAndBucketStartRange(
+            String trackingId, LocalDateTime from, LocalDateTime to);
+    Optional<GpsTrackBucket> findFirstByTrackingIdOrderByLastTimestampDesc(String trackingId);
+}
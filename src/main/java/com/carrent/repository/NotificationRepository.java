@@ -1,11 +1,39 @@
 package com.carrent.repository;
 
 import com.carrent.model.Notification;
+import com.carrent.model.UnreadCount;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationRepository extends MongoRepository<Notification, String> {
     List<Notification> findByUserIdOrderByTimestampDesc(String userId);
     List<Notification> findByUserIdAndReadOrderByTimestampDesc(String userId, boolean read);
     long countByUserIdAndRead(String userId, boolean read);
+    // Keyset page, newest first: strictly before (beforeTimestamp, beforeId) in (timestamp desc, _id desc) order
+    @Query("{ 'userId': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Notification> findPageBefore(String userId, LocalDateTime beforeTimestamp, ObjectId beforeId, Pageable pageable);
+    // IDs are ObjectIds, so this is creation order
+    List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(String userId, String id, Pageable pageable);
+
+    // Server-side read-state updates; each returns the number of documents changed
+    @Query("{ '_id': { '$in': ?0 }, 'userId': ?1, 'read': false }")
+    @Update("{ '$set': { 'read': true }, '$currentDate': { 'readAt': true } }")
+    long markReadByIdInAndUserId(Collection<String> ids, String userId);
+
+    @Query("{ 'userId': ?0, 'read': false }")
+    @Update("{ '$set': { 'read': true }, '$currentDate': { 'readAt': true } }")
+    long markAllReadByUserId(String userId);
+
+    @Aggregation(pipeline = {
+        "{ '$match': { 'userId': { '$in': ?0 }, 'read': false } }",
+        "{ '$group': { '_id': '$userId', 'count': { '$sum': 1 } } }"
+    })
+    List<UnreadCount> countUnreadByUserIdIn(Collection<String> userIds);
 }
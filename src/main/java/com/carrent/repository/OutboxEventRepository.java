@@ -0,0 +1,10 @@
+package com.carrent.repository;
+
+import com.carrent.model.OutboxEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends MongoRepository<OutboxEvent, String> {
+    List<OutboxEvent> findTop500ByNextAttemptAtBeforeOrderByNextAttemptAtAsc(LocalDateTime now);
+}
@@ -1,12 +1,33 @@
 package com.carrent.repository;
 
 import com.carrent.model.PaymentHistory;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PaymentHistoryRepository extends MongoRepository<PaymentHistory, String> {
     List<PaymentHistory> findByFromAddressOrderByTimestampDesc(String fromAddress);
     List<PaymentHistory> findByToAddressOrderByTimestampDesc(String toAddress);
     List<PaymentHistory> findByRentalId(String rentalId);
-    List<PaymentHistory> findByTransactionHash(String transactionHash);
+    Optional<PaymentHistory> findByTransactionHash(String transactionHash);
+
+    // Payments sent or received, newest first, strictly before (beforeTimestamp, beforeId).
+    // The keyset condition is repeated in each branch so both use their own index and
+    // the server merges the two sorted streams instead of sorting in memory.
+    @Query("{ '$or': [ "
+        + "{ 'fromAddress': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }, "
+        + "{ 'toAddress': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] } "
+        + "] }")
+    List<PaymentHistory> findPageByAddressBefore(String address, LocalDateTime beforeTimestamp, ObjectId beforeId,
+                                                 Pageable pageable);
+
+    @Meta(cursorBatchSize = 1000)
+    @Query(value = "{ 'timestamp': { $gte: ?0, $lt: ?1 } }", sort = "{ 'timestamp': 1, '_id': 1 }")
+    Stream<PaymentHistory> streamByTimestampRange(LocalDateTime from, LocalDateTime to);
 }
@@ -0,0 +1,12 @@
+package com.carrent.repository;
+
+import com.carrent.model.PendingTransaction;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.List;
+import java.util.Optional;
+
+public interface PendingTransactionRepository extends MongoRepository<PendingTransaction, String> {
+    List<PendingTransaction> findByFromAddressAndStatusOrderByNonceAsc(String fromAddress, PendingTransaction.Status status);
+    Optional<PendingTransaction> findFirstByFromAddressOrderByNonceDesc(String fromAddress);
+    Optional<PendingTransaction> findByTransactionHashes(String transactionHash);
+}
@@ -1,12 +1,30 @@
 package com.carrent.repository;
 
 import com.carrent.model.Rental;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RentalRepository extends MongoRepository<Rental, String> {
     List<Rental> findByRenterAddress(String renterAddress);
     Optional<Rental> findByVinNumberAndIsActive(String vinNumber, boolean isActive);
     List<Rental> findByIsActive(boolean isActive);
+
+    @Query(value = "{ 'isActive': true, 'gpsTrackingId': { $ne: null } }", fields = "{ 'gpsTrackingId': 1 }")
+    List<Rental> findActiveTrackingIds();
+
+    // Keyset page, newest first: strictly before (beforeStartTime, beforeId) in (startTime desc, _id desc) order
+    @Query("{ 'renterAddress': ?0, '$or': [ { 'startTime': { '$lt': ?1 } }, { 'startTime': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Rental> findPageByRenterAddressBefore(String renterAddress, LocalDateTime beforeStartTime, ObjectId beforeId,
+                                               Pageable pageable);
+
+    @Meta(cursorBatchSize = 1000)
+    @Query(value = "{ 'startTime': { $gte: ?0, $lt: ?1 } }", sort = "{ 'startTime': 1, '_id': 1 }")
+    Stream<Rental> streamByStartTimeRange(LocalDateTime from, LocalDateTime to);
 }
@@ -1,7 +1,11 @@
 package com.carrent.repository;
 
 import com.carrent.model.Review;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ReviewRepository extends MongoRepository<Review, String> {
@@ -9,4 +13,13 @@ public interface ReviewRepository extends MongoRepository<Review, String> {
     List<Review> findByReviewerId(String reviewerId);
     List<Review> findByRentalId(String rentalId);
     double averageRatingByVinNumber(String vinNumber);
+
+    // Keyset pages, newest first: strictly before (beforeTimestamp, beforeId) in (timestamp desc, _id desc) order
+    @Query("{ 'vinNumber': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Review> findPageByVinNumberBefore(String vinNumber, LocalDateTime beforeTimestamp, ObjectId beforeId,
+                                           Pageable pageable);
+
+    @Query("{ 'reviewerId': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    List<Review> findPageByReviewerIdBefore(String reviewerId, LocalDateTime beforeTimestamp, ObjectId beforeId,
+                                            Pageable pageable);
 }
@@ -0,0 +1,10 @@
+package com.carrent.repository;
+
+import com.carrent.model.TelematicsDevice;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.Optional;
+
+public interface TelematicsDeviceRepository extends MongoRepository<TelematicsDevice, String> {
+    Optional<TelematicsDevice> findByTrackingId(String trackingId);
+    Optional<TelematicsDevice> findFirstByOrderByDeviceIndexDesc();
+}
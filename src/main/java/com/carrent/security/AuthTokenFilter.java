@@ -27,10 +27,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
+            String walletAddress = null;
             String jwt = parseJwt(request);
             if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String walletAddress = jwtUtils.getWalletAddressFromJwtToken(jwt);
+                walletAddress = jwtUtils.getWalletAddressFromJwtToken(jwt);
+            } else if (jwt == null) {
+                String ticket = parseStreamTicket(request);
+                if (ticket != null) {
+                    walletAddress = jwtUtils.getWalletAddressFromStreamTicket(ticket);
+                }
+            }
 
+            if (walletAddress != null) {
                 UserDetails userDetails = userService.loadUserByWalletAddress(walletAddress);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -54,4 +62,17 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         return null;
     }
+
+    // EventSource cannot set headers, so event streams pass a short-lived stream ticket instead
+    private String parseStreamTicket(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        if (accept != null && accept.contains("text/event-stream")) {
+            String ticket = request.getParameter("stream_ticket");
+            if (StringUtils.hasText(ticket)) {
+                return ticket;
+            }
+        }
+
+        return null;
+    }
 }
@@ -10,6 +10,9 @@ import java.util.Date;
 
 @Component
 public class JwtUtils {
+    // Stream tickets carry this claim, so they are never accepted as session tokens
+    private static final String PURPOSE_CLAIM = "purpose";
+    private static final String STREAM_PURPOSE = "stream";
 
     @Value("${jwt.secret}")
     private String jwtSecret;
@@ -17,6 +20,9 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
+    @Value("${jwt.stream-ticket-expiration:60000}")
+    private int streamTicketExpirationMs;
+
     private Key key;
 
     public JwtUtils(@Value("${jwt.secret}") String jwtSecret) {
@@ -32,6 +38,32 @@ public class JwtUtils {
                 .compact();
     }
 
+    /**
+     * Issues a short-lived ticket that only opens event streams. EventSource cannot
+     * send headers, so the ticket goes in the URL, where the session token must not.
+     */
+    public String generateStreamTicket(String walletAddress) {
+        return Jwts.builder()
+                .setSubject(walletAddress)
+                .claim(PURPOSE_CLAIM, STREAM_PURPOSE)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date((new Date()).getTime() + streamTicketExpirationMs))
+                .signWith(key, SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    /**
+     * Returns the wallet address of a valid stream ticket, or null if the token is
+     * invalid, expired or not a stream ticket.
+     */
+    public String getWalletAddressFromStreamTicket(String ticket) {
+        Claims claims = parseClaims(ticket);
+        if (claims == null || !STREAM_PURPOSE.equals(claims.get(PURPOSE_CLAIM))) {
+            return null;
+        }
+        return claims.getSubject();
+    }
+
     public String getWalletAddressFromJwtToken(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(key)
@@ -42,12 +74,17 @@ public class JwtUtils {
     }
 
     public boolean validateJwtToken(String authToken) {
+        Claims claims = parseClaims(authToken);
+        return claims != null && claims.get(PURPOSE_CLAIM) == null;
+    }
+
+    private Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
+            return Jwts.parserBuilder()
                 .setSigningKey(key)
                 .build()
-                .parseClaimsJws(authToken);
-            return true;
+                .parseClaimsJws(token)
+                .getBody();
         } catch (SecurityException e) {
             System.err.println("Invalid JWT signature: " + e.getMessage());
         } catch (MalformedJwtException e) {
@@ -59,6 +96,6 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             System.err.println("JWT claims string is empty: " + e.getMessage());
         }
-        return false;
+        return null;
     }
 }
@@ -0,0 +1,173 @@
+package com.carrent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking calls to the Ethereum node off the common pool. At most
+ * maxConcurrency calls run at once and up to queueCapacity wait; beyond that calls
+ * are rejected and counted. Threads are virtual when the runtime has them.
+ * <p>
+ * Each call has a timeout. A timeout, or cancelling the returned future, interrupts
+ * the call if it is still running; a request the node already received is not
+ * undone by that.
+ */
+@Slf4j
+@Component
+public class BlockchainExecutor {
+    private final ThreadPoolExecutor pool;
+    private final Duration defaultTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    public BlockchainExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${ethereum.executor.max-concurrency:64}") int maxConcurrency,
+            @Value("${ethereum.executor.queue-capacity:10000}") int queueCapacity,
+            @Value("${ethereum.executor.timeout-ms:30000}") long timeoutMillis,
+            @Value("${ethereum.executor.virtual-threads:true}") boolean virtualThreads
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.defaultTimeout = Duration.ofMillis(timeoutMillis);
+        ThreadFactory threadFactory = virtualThreads ? virtualThreadFactory() : null;
+        if (threadFactory == null) {
+            threadFactory = platformThreadFactory();
+        }
+        this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        this.pool.allowCoreThreadTimeOut(true);
+
+        this.rejected = Counter.builder("ethereum.io.rejected")
+            .description("Node calls refused because the queue was full")
+            .register(meterRegistry);
+        this.timedOut = Counter.builder("ethereum.io.timed-out")
+            .description("Node calls abandoned after their timeout")
+            .register(meterRegistry);
+        Gauge.builder("ethereum.io.queued", pool, executor -> executor.getQueue().size())
+            .description("Node calls waiting for a thread")
+            .register(meterRegistry);
+        Gauge.builder("ethereum.io.active", pool, ThreadPoolExecutor::getActiveCount)
+            .description("Node calls running")
+            .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(String operation, Callable<T> call) {
+        return submit(operation, call, defaultTimeout);
+    }
+
+    /**
+     * Runs the call on the node I/O pool. The future fails with a
+     * {@link RejectedExecutionException} when the queue is full and with a
+     * {@link TimeoutException} when the call, including its time in the queue, takes
+     * longer than the timeout.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Callable<T> call, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = pool.submit(() -> run(operation, call, result));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                timedOut.increment();
+            }
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the call on the node I/O pool and waits for it, for callers such as the
+     * scheduled pollers that cannot go on without the result. Failures, timeouts and
+     * rejections all surface as an {@link IOException}.
+     */
+    public <T> T await(String operation, Callable<T> call) throws IOException {
+        try {
+            return submit(operation, call).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(operation + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(operation + " interrupted");
+        }
+    }
+
+    private <T> void run(String operation, Callable<T> call, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            // Cancelled or timed out while queued
+            return;
+        }
+        long started = System.nanoTime();
+        String outcome = "success";
+        try {
+            result.complete(call.call());
+        } catch (Exception e) {
+            outcome = "error";
+            result.completeExceptionally(e);
+        } finally {
+            Timer.builder("ethereum.io")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Thread.ofVirtual() is looked up reflectively so the code still runs on Java 17
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "blockchain-io-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            log.info("Running node calls on virtual threads");
+            return factory;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "blockchain-io-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,43 +1,33 @@
 package com.carrent.service;
 
-import lombok.extern.slf4j.Slf4j;
+import com.carrent.model.ChainCar;
+import com.carrent.model.ChainRental;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.web3j.crypto.Credentials;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
-import org.web3j.tx.gas.ContractGasProvider;
-import org.web3j.tx.gas.StaticGasProvider;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Function;
-import org.web3j.abi.datatypes.Type;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.web3j.tx.Contract;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
-@Slf4j
 @Service
 public class BlockchainService {
-    private final Web3j web3j;
-    private final Credentials credentials;
-    private final ContractGasProvider gasProvider;
+    private final TransactionSubmitter transactionSubmitter;
+    private final ReceiptTracker receiptTracker;
+    private final ContractViewCache contractViewCache;
     private final String contractAddress;
 
     public BlockchainService(
-            @Value("${ethereum.network.url}") String networkUrl,
-            @Value("${ethereum.wallet.private-key}") String privateKey,
+            TransactionSubmitter transactionSubmitter,
+            ReceiptTracker receiptTracker,
+            ContractViewCache contractViewCache,
             @Value("${ethereum.contract.address}") String contractAddress
     ) {
-        this.web3j = Web3j.build(new HttpService(networkUrl));
-        this.credentials = Credentials.create(privateKey);
-        this.gasProvider = new StaticGasProvider(
-            BigInteger.valueOf(20000000000L), // 20 Gwei
-            BigInteger.valueOf(6721975L) // Gas Limit
-        );
+        this.transactionSubmitter = transactionSubmitter;
+        this.receiptTracker = receiptTracker;
+        this.contractViewCache = contractViewCache;
         this.contractAddress = contractAddress;
     }
 
@@ -110,45 +100,63 @@ public class BlockchainService {
         return sendTransaction(function);
     }
 
+    public CompletableFuture<ChainCar> getCarDetails(String vinNumber) {
+        Function function = new Function(
+            "getCarDetails",
+            Arrays.asList(new org.web3j.abi.datatypes.Utf8String(vinNumber)),
+            Arrays.asList(
+                new TypeReference<org.web3j.abi.datatypes.Address>() {},
+                new TypeReference<org.web3j.abi.datatypes.Utf8String>() {},
+                new TypeReference<org.web3j.abi.datatypes.Utf8String>() {},
+                new TypeReference<org.web3j.abi.datatypes.generated.Uint256>() {},
+                new TypeReference<org.web3j.abi.datatypes.Bool>() {},
+                new TypeReference<org.web3j.abi.datatypes.generated.Uint256>() {},
+                new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}
+            )
+        );
+
+        return contractViewCache.call(vinNumber, function).thenApply(values -> new ChainCar(
+            (String) values.get(0).getValue(),
+            (String) values.get(1).getValue(),
+            (String) values.get(2).getValue(),
+            (BigInteger) values.get(3).getValue(),
+            (Boolean) values.get(4).getValue(),
+            (BigInteger) values.get(5).getValue(),
+            (String) values.get(6).getValue()
+        ));
+    }
+
+    public CompletableFuture<ChainRental> getCurrentRental(String vinNumber) {
+        Function function = new Function(
+            "getCurrentRental",
+            Arrays.asList(new org.web3j.abi.datatypes.Utf8String(vinNumber)),
+            Arrays.asList(
+                new TypeReference<org.web3j.abi.datatypes.Address>() {},
+                new TypeReference<org.web3j.abi.datatypes.generated.Uint256>() {},
+                new TypeReference<org.web3j.abi.datatypes.generated.Uint256>() {},
+                new TypeReference<org.web3j.abi.datatypes.generated.Uint256>() {},
+                new TypeReference<org.web3j.abi.datatypes.Bool>() {},
+                new TypeReference<org.web3j.abi.datatypes.Utf8String>() {}
+            )
+        );
+
+        return contractViewCache.call(vinNumber, function).thenApply(values -> new ChainRental(
+            (String) values.get(0).getValue(),
+            (BigInteger) values.get(1).getValue(),
+            (BigInteger) values.get(2).getValue(),
+            (BigInteger) values.get(3).getValue(),
+            (Boolean) values.get(4).getValue(),
+            (String) values.get(5).getValue()
+        ));
+    }
+
     private CompletableFuture<TransactionReceipt> sendTransaction(Function function) {
         return sendTransaction(function, BigInteger.ZERO);
     }
 
     private CompletableFuture<TransactionReceipt> sendTransaction(Function function, BigInteger value) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String encodedFunction = org.web3j.abi.FunctionEncoder.encode(function);
-                
-                org.web3j.protocol.core.methods.request.Transaction transaction = 
-                    org.web3j.protocol.core.methods.request.Transaction.createFunctionCallTransaction(
-                        credentials.getAddress(),
-                        null,
-                        gasProvider.getGasPrice(),
-                        gasProvider.getGasLimit(),
-                        contractAddress,
-                        value,
-                        encodedFunction
-                    );
-
-                return web3j.ethSendTransaction(transaction)
-                    .send()
-                    .getTransactionHash();
-            } catch (Exception e) {
-                log.error("Error sending transaction", e);
-                throw new RuntimeException("Failed to send transaction", e);
-            }
-        }).thenCompose(txHash -> 
-            CompletableFuture.supplyAsync(() -> {
-                try {
-                    return web3j.ethGetTransactionReceipt(txHash)
-                        .send()
-                        .getTransactionReceipt()
-                        .orElseThrow(() -> new RuntimeException("Transaction receipt not found"));
-                } catch (Exception e) {
-                    log.error("Error getting transaction receipt", e);
-                    throw new RuntimeException("Failed to get transaction receipt", e);
-                }
-            })
-        );
+        String encodedFunction = org.web3j.abi.FunctionEncoder.encode(function);
+        return transactionSubmitter.submit(contractAddress, encodedFunction, value)
+            .thenCompose(receiptTracker::track);
     }
 }
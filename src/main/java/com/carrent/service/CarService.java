@@ -1,17 +1,26 @@
 package com.carrent.service;
 
 import com.carrent.model.Car;
+import com.carrent.model.NearbyCar;
 import com.carrent.repository.CarRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CarService {
+    // Nearest candidates fetched per wanted result, since some of them are rented out
+    private static final int CANDIDATE_FACTOR = 4;
+    private static final int MAX_CANDIDATES = 2_000;
+
     private final CarRepository carRepository;
     private final BlockchainService blockchainService;
+    private final GpsTrackingService gpsTrackingService;
 
     public Car registerCar(Car car) {
         // First register on blockchain
@@ -29,6 +38,39 @@ public class CarService {
         return carRepository.findByIsAvailable(true);
     }
 
+    /**
+     * Finds the nearest available cars to a point using their last known GPS position.
+     * Availability is read from Mongo, since it also changes on other instances and
+     * through the contract indexer. Nearest cars are fetched a few times over and the
+     * fetch widens while rented-out cars leave the page short.
+     */
+    public List<NearbyCar> findAvailableCarsNear(double latitude, double longitude, double radiusMeters, int limit) {
+        int candidates = Math.min(limit * CANDIDATE_FACTOR, MAX_CANDIDATES);
+        while (true) {
+            List<GeoGridIndex.Neighbor> nearest = gpsTrackingService
+                .findNearest(latitude, longitude, radiusMeters, candidates, trackingId -> true);
+            if (nearest.isEmpty()) {
+                return List.of();
+            }
+            Map<String, GeoGridIndex.Neighbor> neighbors = nearest.stream()
+                .collect(Collectors.toMap(GeoGridIndex.Neighbor::getTrackingId, Function.identity()));
+
+            List<NearbyCar> cars = carRepository.findByGpsTrackingIdInAndIsAvailable(neighbors.keySet(), true).stream()
+                .map(car -> {
+                    GeoGridIndex.Neighbor neighbor = neighbors.get(car.getGpsTrackingId());
+                    return new NearbyCar(car, neighbor.getLatitude(), neighbor.getLongitude(), neighbor.getDistanceMeters());
+                })
+                .sorted((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()))
+                .limit(limit)
+                .collect(Collectors.toList());
+            // A short neighbor list means every car in range has been looked at
+            if (cars.size() >= limit || nearest.size() < candidates || candidates >= MAX_CANDIDATES) {
+                return cars;
+            }
+            candidates = Math.min(candidates * CANDIDATE_FACTOR, MAX_CANDIDATES);
+        }
+    }
+
     public Optional<Car> getCarByVin(String vinNumber) {
         return carRepository.findByVinNumber(vinNumber);
     }
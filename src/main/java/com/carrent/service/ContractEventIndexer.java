@@ -0,0 +1,481 @@
+package com.carrent.service;
+
+import com.carrent.model.Car;
+import com.carrent.model.IndexerCheckpoint;
+import com.carrent.model.Rental;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads the CarRental contract events back into the cars and rentals collections.
+ * Logs are fetched with eth_getLogs over block ranges that grow while ranges come
+ * back small and shrink when the node refuses a range or returns too many logs.
+ * Each range is applied as ordered bulk writes and then checkpointed, so after
+ * downtime the indexer resumes where it stopped and catches up in large ranges.
+ * <p>
+ * The indexer stays a few blocks behind the head. If the last indexed block has
+ * been replaced anyway, it rewinds to the newest checkpointed block still on the
+ * chain: rentals and completions from the dropped blocks are reverted, the cars they
+ * touched are re-derived from the canonical logs up to that block, and indexing
+ * goes forward again. Documents are never deleted, and only the fields the indexer
+ * writes are changed. Cached contract views of every VIN an applied event touched
+ * are dropped.
+ */
+@Slf4j
+@Service
+public class ContractEventIndexer {
+    static final Event CAR_REGISTERED = new Event("CarRegistered", Arrays.asList(
+        new TypeReference<Utf8String>() {}, new TypeReference<Address>() {}));
+    static final Event CAR_RENTED = new Event("CarRented", Arrays.asList(
+        new TypeReference<Utf8String>() {}, new TypeReference<Address>() {},
+        new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {}));
+    static final Event RENTAL_COMPLETED = new Event("RentalCompleted", Arrays.asList(
+        new TypeReference<Utf8String>() {}, new TypeReference<Address>() {}));
+    static final Event OWNERSHIP_TRANSFERRED = new Event("OwnershipTransferred", Arrays.asList(
+        new TypeReference<Utf8String>() {}, new TypeReference<Address>() {}, new TypeReference<Address>() {}));
+    private static final Map<String, Event> EVENTS_BY_TOPIC = Stream.of(
+            CAR_REGISTERED, CAR_RENTED, RENTAL_COMPLETED, OWNERSHIP_TRANSFERRED)
+        .collect(Collectors.toMap(EventEncoder::encode, Function.identity()));
+
+    private final Web3j web3j;
+    private final BlockchainExecutor blockchainExecutor;
+    private final MongoTemplate mongoTemplate;
+    private final ContractViewCache contractViewCache;
+    private final String contractAddress;
+    private final boolean enabled;
+    private final long startBlock;
+    private final int confirmations;
+    private final int maxRange;
+    private final int targetLogsPerRange;
+    private final int maxReorgDepth;
+    private final long maxBlocksPerRun;
+
+    private final Counter blocksIndexed;
+    private final Counter eventsIndexed;
+    private final Counter reorgs;
+    private final AtomicLong lag = new AtomicLong();
+
+    private int range; // Only touched by the scheduler thread
+
+    public ContractEventIndexer(
+            Web3j web3j,
+            BlockchainExecutor blockchainExecutor,
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            ContractViewCache contractViewCache,
+            @Value("${ethereum.contract.address}") String contractAddress,
+            @Value("${ethereum.indexer.enabled:false}") boolean enabled,
+            @Value("${ethereum.indexer.start-block:0}") long startBlock,
+            @Value("${ethereum.indexer.confirmations:3}") int confirmations,
+            @Value("${ethereum.indexer.initial-range:500}") int initialRange,
+            @Value("${ethereum.indexer.max-range:10000}") int maxRange,
+            @Value("${ethereum.indexer.target-logs-per-range:2000}") int targetLogsPerRange,
+            @Value("${ethereum.indexer.max-reorg-depth:64}") int maxReorgDepth,
+            @Value("${ethereum.indexer.max-blocks-per-run:20000}") long maxBlocksPerRun
+    ) {
+        this.web3j = web3j;
+        this.blockchainExecutor = blockchainExecutor;
+        this.mongoTemplate = mongoTemplate;
+        this.contractViewCache = contractViewCache;
+        this.contractAddress = contractAddress;
+        this.enabled = enabled;
+        this.startBlock = startBlock;
+        this.confirmations = confirmations;
+        this.range = initialRange;
+        this.maxRange = maxRange;
+        this.targetLogsPerRange = targetLogsPerRange;
+        this.maxReorgDepth = maxReorgDepth;
+        this.maxBlocksPerRun = maxBlocksPerRun;
+
+        this.blocksIndexed = Counter.builder("ethereum.indexer.blocks")
+            .description("Blocks scanned for contract events")
+            .register(meterRegistry);
+        this.eventsIndexed = Counter.builder("ethereum.indexer.events")
+            .description("Contract events applied")
+            .register(meterRegistry);
+        this.reorgs = Counter.builder("ethereum.indexer.reorgs")
+            .description("Rewinds after an indexed block left the chain")
+            .register(meterRegistry);
+        Gauge.builder("ethereum.indexer.lag", lag, AtomicLong::get)
+            .description("Blocks between the checkpoint and the indexing target")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${ethereum.indexer.poll-interval-ms:5000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            catchUp();
+        } catch (Exception e) {
+            log.warn("Contract event indexing failed", e);
+        }
+    }
+
+    /**
+     * Indexes from the checkpoint towards the confirmed head, at most
+     * maxBlocksPerRun blocks per call so a long catch-up gives the scheduler thread
+     * back between runs. Returns the number of blocks indexed.
+     */
+    public long catchUp() throws IOException {
+        IndexerCheckpoint checkpoint = loadCheckpoint();
+        rewindOnReorg(checkpoint);
+
+        long confirmed = call("eth_blockNumber", web3j.ethBlockNumber()).getBlockNumber().longValue() - confirmations;
+        long target = Math.min(confirmed, checkpoint.getLastBlock() + maxBlocksPerRun);
+        long first = checkpoint.getLastBlock() + 1;
+        long events = 0;
+        long started = System.nanoTime();
+        while (checkpoint.getLastBlock() < target) {
+            long from = checkpoint.getLastBlock() + 1;
+            long to = Math.min(target, from + range - 1);
+            List<Log> logs;
+            try {
+                logs = getLogs(from, to);
+            } catch (IOException e) {
+                // Most nodes cap the block span or the result size of eth_getLogs
+                if (range == 1) {
+                    throw e;
+                }
+                range = Math.max(1, range / 2);
+                log.debug("eth_getLogs {}-{} failed ({}), retrying with {} blocks", from, to, e.getMessage(), range);
+                continue;
+            }
+
+            apply(logs);
+            advance(checkpoint, to, blockHash(to));
+            mongoTemplate.save(checkpoint);
+
+            blocksIndexed.increment(to - from + 1);
+            eventsIndexed.increment(logs.size());
+            events += logs.size();
+            lag.set(confirmed - to);
+            if (logs.size() > targetLogsPerRange) {
+                range = Math.max(1, range / 2);
+            } else if (logs.size() < targetLogsPerRange / 2) {
+                range = Math.min(maxRange, range * 2);
+            }
+        }
+
+        long blocks = Math.max(0, checkpoint.getLastBlock() - first + 1);
+        if (blocks > 0) {
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            log.info("Indexed blocks {}-{} with {} events in {} ms ({} blocks/s)",
+                first, checkpoint.getLastBlock(), events, millis, blocks * 1000 / millis);
+        }
+        return blocks;
+    }
+
+    private IndexerCheckpoint loadCheckpoint() {
+        String id = contractAddress.toLowerCase();
+        IndexerCheckpoint checkpoint = mongoTemplate.findById(id, IndexerCheckpoint.class);
+        if (checkpoint == null) {
+            checkpoint = new IndexerCheckpoint();
+            checkpoint.setId(id);
+            checkpoint.setLastBlock(startBlock - 1);
+        }
+        return checkpoint;
+    }
+
+    private void rewindOnReorg(IndexerCheckpoint checkpoint) throws IOException {
+        List<IndexerCheckpoint.BlockRef> recent = checkpoint.getRecentBlocks();
+        if (recent.isEmpty() || isOnChain(recent.get(recent.size() - 1))) {
+            return;
+        }
+
+        // Deeper than the kept hashes: go back past the oldest one
+        long ancestor = Math.max(startBlock - 1, recent.get(0).getNumber() - 1);
+        int keep = 0;
+        for (int i = recent.size() - 2; i >= 0; i--) {
+            if (isOnChain(recent.get(i))) {
+                ancestor = recent.get(i).getNumber();
+                keep = i + 1;
+                break;
+            }
+        }
+        log.warn("Block {} left the chain, rewinding contract events to block {}",
+            checkpoint.getLastBlock(), ancestor);
+        reorgs.increment();
+
+        Set<String> affectedVins = new HashSet<>();
+        affectedVins.addAll(mongoTemplate.findDistinct(
+            Query.query(Criteria.where("chainBlockNumber").gt(ancestor)), "vinNumber", Car.class, String.class));
+        affectedVins.addAll(mongoTemplate.findDistinct(
+            Query.query(new Criteria().orOperator(
+                Criteria.where("blockNumber").gt(ancestor), Criteria.where("completedBlockNumber").gt(ancestor))),
+            "vinNumber", Rental.class, String.class));
+
+        // Rentals from dropped blocks end, completions from dropped blocks are undone;
+        // whatever the canonical blocks hold is applied again as indexing goes forward
+        mongoTemplate.updateMulti(Query.query(Criteria.where("blockNumber").gt(ancestor)),
+            new Update().set("isActive", false).unset("blockNumber"), Rental.class);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("completedBlockNumber").gt(ancestor)),
+            new Update().set("isActive", true).unset("completedBlockNumber"), Rental.class);
+        rederiveCars(affectedVins, ancestor);
+        affectedVins.forEach(contractViewCache::invalidate);
+
+        checkpoint.setRecentBlocks(new ArrayList<>(recent.subList(0, keep)));
+        checkpoint.setLastBlock(ancestor);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        mongoTemplate.save(checkpoint);
+    }
+
+    /**
+     * Sets owner and availability of the given cars to what the canonical logs up to
+     * the ancestor block say. Only a reorg needs this, so the cost of reading the
+     * contract's history again is acceptable.
+     */
+    private void rederiveCars(Set<String> vinNumbers, long ancestor) throws IOException {
+        if (vinNumbers.isEmpty()) {
+            return;
+        }
+        Map<String, CarState> states = new HashMap<>();
+        long from = startBlock;
+        while (from <= ancestor) {
+            long to = Math.min(ancestor, from + range - 1);
+            List<Log> logs;
+            try {
+                logs = getLogs(from, to);
+            } catch (IOException e) {
+                if (range == 1) {
+                    throw e;
+                }
+                range = Math.max(1, range / 2);
+                continue;
+            }
+            for (Log entry : logs) {
+                Event event = eventOf(entry);
+                if (event == null) {
+                    continue;
+                }
+                @SuppressWarnings("rawtypes")
+                List<Type> values = FunctionReturnDecoder.decode(entry.getData(), event.getNonIndexedParameters());
+                String vinNumber = (String) values.get(0).getValue();
+                if (vinNumbers.contains(vinNumber)) {
+                    states.computeIfAbsent(vinNumber, key -> new CarState())
+                        .apply(event, values, entry.getBlockNumber().longValue());
+                }
+            }
+            from = to + 1;
+        }
+
+        BulkOperations cars = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Car.class);
+        for (String vinNumber : vinNumbers) {
+            CarState state = states.get(vinNumber);
+            Update update = new Update();
+            if (state == null) {
+                // No canonical event left for this car; stop claiming the chain backs it
+                update.unset("chainBlockNumber");
+            } else {
+                if (state.ownerAddress != null) {
+                    update.set("ownerAddress", state.ownerAddress);
+                }
+                if (state.available != null) {
+                    update.set("isAvailable", state.available);
+                }
+                update.set("chainBlockNumber", state.block);
+            }
+            cars.updateOne(Query.query(Criteria.where("vinNumber").is(vinNumber)), update);
+        }
+        cars.execute();
+        log.info("Re-derived {} cars from contract events up to block {}", vinNumbers.size(), ancestor);
+    }
+
+    private boolean isOnChain(IndexerCheckpoint.BlockRef block) throws IOException {
+        return block.getHash().equals(blockHash(block.getNumber()));
+    }
+
+    private void advance(IndexerCheckpoint checkpoint, long block, String hash) {
+        List<IndexerCheckpoint.BlockRef> recent = checkpoint.getRecentBlocks();
+        recent.add(new IndexerCheckpoint.BlockRef(block, hash));
+        if (recent.size() > maxReorgDepth) {
+            recent.subList(0, recent.size() - maxReorgDepth).clear();
+        }
+        checkpoint.setLastBlock(block);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private List<Log> getLogs(long from, long to) throws IOException {
+        EthFilter filter = new EthFilter(
+            DefaultBlockParameter.valueOf(BigInteger.valueOf(from)),
+            DefaultBlockParameter.valueOf(BigInteger.valueOf(to)),
+            contractAddress);
+        filter.addOptionalTopics(EVENTS_BY_TOPIC.keySet().toArray(new String[0]));
+        List<Log> logs = new ArrayList<>();
+        for (EthLog.LogResult<?> result : call("eth_getLogs", web3j.ethGetLogs(filter)).getLogs()) {
+            logs.add((Log) result.get());
+        }
+        return logs;
+    }
+
+    private String blockHash(long number) throws IOException {
+        EthBlock.Block block = call("eth_getBlockByNumber", web3j.ethGetBlockByNumber(
+            DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), false)).getBlock();
+        if (block == null) {
+            throw new IOException("Block " + number + " not found");
+        }
+        return block.getHash();
+    }
+
+    /**
+     * Applies one range of logs as ordered bulk writes, one per collection. Cars and
+     * rentals are written independently, so only the order within each matters.
+     */
+    private void apply(List<Log> logs) {
+        BulkOperations cars = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Car.class);
+        BulkOperations rentals = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Rental.class);
+        int carWrites = 0;
+        int rentalWrites = 0;
+        Set<String> changedVins = new HashSet<>();
+
+        for (Log entry : logs) {
+            Event event = eventOf(entry);
+            if (event == null) {
+                continue;
+            }
+            @SuppressWarnings("rawtypes")
+            List<Type> values = FunctionReturnDecoder.decode(entry.getData(), event.getNonIndexedParameters());
+            String vinNumber = (String) values.get(0).getValue();
+            long block = entry.getBlockNumber().longValue();
+            changedVins.add(vinNumber);
+            Query car = Query.query(Criteria.where("vinNumber").is(vinNumber));
+
+            if (event == CAR_REGISTERED) {
+                cars.upsert(car, new Update()
+                    .set("ownerAddress", values.get(1).getValue())
+                    .set("chainBlockNumber", block)
+                    .setOnInsert("isAvailable", true));
+                carWrites++;
+            } else if (event == CAR_RENTED) {
+                String renterAddress = (String) values.get(1).getValue();
+                // A rental created through the API has no transaction hash yet; claim it
+                // instead of inserting a second active rental for the car
+                rentals.updateOne(Query.query(Criteria.where("vinNumber").is(vinNumber)
+                        .and("renterAddress").regex("^" + Pattern.quote(renterAddress) + "$", "i")
+                        .and("isActive").is(true)
+                        .and("blockNumber").exists(false)
+                        .and("transactionHash").is(null)),
+                    Update.update("transactionHash", entry.getTransactionHash()));
+                rentals.upsert(Query.query(Criteria.where("transactionHash").is(entry.getTransactionHash())),
+                    new Update()
+                        .set("vinNumber", vinNumber)
+                        .set("renterAddress", renterAddress)
+                        .set("startTime", toDateTime((BigInteger) values.get(2).getValue()))
+                        .set("endTime", toDateTime((BigInteger) values.get(3).getValue()))
+                        .set("isActive", true)
+                        .set("blockNumber", block));
+                cars.updateOne(car, Update.update("isAvailable", false).set("chainBlockNumber", block));
+                rentalWrites += 2;
+                carWrites++;
+            } else if (event == RENTAL_COMPLETED) {
+                rentals.updateMulti(Query.query(Criteria.where("vinNumber").is(vinNumber)
+                        .and("renterAddress").is(values.get(1).getValue())
+                        .and("isActive").is(true)),
+                    Update.update("isActive", false).set("completedBlockNumber", block));
+                cars.updateOne(car, Update.update("isAvailable", true).set("chainBlockNumber", block));
+                rentalWrites++;
+                carWrites++;
+            } else {
+                cars.updateOne(car, Update.update("ownerAddress", values.get(2).getValue())
+                    .set("chainBlockNumber", block));
+                carWrites++;
+            }
+        }
+
+        if (carWrites > 0) {
+            cars.execute();
+        }
+        if (rentalWrites > 0) {
+            rentals.execute();
+        }
+        changedVins.forEach(contractViewCache::invalidate);
+    }
+
+    private static Event eventOf(Log entry) {
+        if (entry.isRemoved() || entry.getTopics() == null || entry.getTopics().isEmpty()) {
+            return null;
+        }
+        return EVENTS_BY_TOPIC.get(entry.getTopics().get(0));
+    }
+
+    private static LocalDateTime toDateTime(BigInteger epochSeconds) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds.longValue()), ZoneId.systemDefault());
+    }
+
+    private <T extends Response<?>> T call(String operation, Request<?, T> request) throws IOException {
+        T response = blockchainExecutor.await(operation, request::send);
+        if (response.hasError()) {
+            throw new IOException(response.getError().getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * Car fields as the events replayed so far leave them; null when no event set them.
+     */
+    private static final class CarState {
+        private String ownerAddress;
+        private Boolean available;
+        private long block;
+
+        @SuppressWarnings("rawtypes")
+        private void apply(Event event, List<Type> values, long block) {
+            if (event == CAR_REGISTERED) {
+                ownerAddress = (String) values.get(1).getValue();
+                available = true;
+            } else if (event == CAR_RENTED) {
+                available = false;
+            } else if (event == RENTAL_COMPLETED) {
+                available = true;
+            } else {
+                ownerAddress = (String) values.get(2).getValue();
+            }
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.carrent.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches eth_call results of contract views, keyed by the encoded call (function
+ * and arguments) and grouped by the subject they describe, the VIN for the
+ * CarRental views. Every result belongs to the block it was read at; once a newer
+ * block is seen the cache is dropped. Indexed events drop the entries of their
+ * subject right away. Identical calls made while one is in flight share its future.
+ */
+@Slf4j
+@Service
+public class ContractViewCache {
+    private final Web3j web3j;
+    private final BlockchainExecutor blockchainExecutor;
+    private final String contractAddress;
+    private final int maxSubjects;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Map<String, Map<String, Entry>> entriesBySubject = new ConcurrentHashMap<>();
+    private volatile long currentBlock = -1;
+
+    public ContractViewCache(
+            Web3j web3j,
+            BlockchainExecutor blockchainExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${ethereum.contract.address}") String contractAddress,
+            @Value("${ethereum.view-cache.max-subjects:10000}") int maxSubjects
+    ) {
+        this.web3j = web3j;
+        this.blockchainExecutor = blockchainExecutor;
+        this.contractAddress = contractAddress;
+        this.maxSubjects = maxSubjects;
+
+        this.hits = Counter.builder("ethereum.view-cache.requests").tag("result", "hit")
+            .description("View calls answered from the cache or joined to one in flight")
+            .register(meterRegistry);
+        this.misses = Counter.builder("ethereum.view-cache.requests").tag("result", "miss")
+            .description("View calls sent to the node")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the decoded outputs of the view, from the cache when it was read at
+     * the current block.
+     */
+    public CompletableFuture<List<Type>> call(String subject, Function function) {
+        long block = currentBlock;
+        String data = FunctionEncoder.encode(function);
+        if (entriesBySubject.size() >= maxSubjects) {
+            entriesBySubject.clear();
+        }
+        Entry fresh = new Entry(block);
+        Entry entry = entriesBySubject.computeIfAbsent(subject, key -> new ConcurrentHashMap<>())
+            .compute(data, (key, existing) -> existing != null && existing.block >= block ? existing : fresh);
+        if (entry != fresh) {
+            hits.increment();
+            return entry.result;
+        }
+
+        misses.increment();
+        blockchainExecutor.submit("eth_call", () -> ethCall(function, data, block)).whenComplete((values, error) -> {
+            if (error != null) {
+                // Failures are not cached
+                Map<String, Entry> entries = entriesBySubject.get(subject);
+                if (entries != null) {
+                    entries.remove(data, fresh);
+                }
+                fresh.result.completeExceptionally(error);
+            } else {
+                fresh.result.complete(values);
+            }
+        });
+        return fresh.result;
+    }
+
+    /**
+     * Drops every cached view of a subject, for example after an event for that VIN
+     * was indexed.
+     */
+    public void invalidate(String subject) {
+        entriesBySubject.remove(subject);
+    }
+
+    /**
+     * Moves the cache to a newer block, dropping everything read before it. Older
+     * block numbers are ignored.
+     */
+    public void blockObserved(long block) {
+        if (block > currentBlock) {
+            currentBlock = block;
+            entriesBySubject.clear();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ethereum.view-cache.block-poll-interval-ms:1000}")
+    public void pollBlockNumber() {
+        try {
+            blockObserved(blockchainExecutor.await("eth_blockNumber", () -> web3j.ethBlockNumber().send())
+                .getBlockNumber().longValue());
+        } catch (Exception e) {
+            log.debug("Block number poll failed", e);
+        }
+    }
+
+    private List<Type> ethCall(Function function, String data, long block) throws IOException {
+        // Read at the block the entry is tagged with, so a result never mixes in later state
+        DefaultBlockParameter at = block < 0
+            ? DefaultBlockParameterName.LATEST
+            : DefaultBlockParameter.valueOf(BigInteger.valueOf(block));
+        EthCall response = web3j.ethCall(Transaction.createEthCallTransaction(null, contractAddress, data), at).send();
+        if (response.hasError()) {
+            throw new IOException(function.getName() + " failed: " + response.getError().getMessage());
+        }
+        return FunctionReturnDecoder.decode(response.getValue(), function.getOutputParameters());
+    }
+
+    private static final class Entry {
+        private final long block;
+        private final CompletableFuture<List<Type>> result = new CompletableFuture<>();
+
+        private Entry(long block) {
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.carrent.service;
+
+import com.carrent.model.PaymentHistory;
+import com.carrent.model.Rental;
+import com.carrent.repository.PaymentHistoryRepository;
+import com.carrent.repository.RentalRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes payment and rental exports as gzip-compressed CSV or NDJSON. Rows are read
+ * from a Mongo cursor and written one at a time, so memory use does not grow with
+ * the size of the export.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] PAYMENT_COLUMNS = {
+        "id", "transactionHash", "fromAddress", "toAddress", "amount", "currency", "type", "status", "rentalId",
+        "timestamp"
+    };
+    private static final String[] RENTAL_COLUMNS = {
+        "id", "vinNumber", "renterAddress", "startTime", "endTime", "totalAmount", "active", "gpsTrackingId",
+        "transactionHash"
+    };
+
+    private final PaymentHistoryRepository paymentHistoryRepository;
+    private final RentalRepository rentalRepository;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public static String fileName(String kind, LocalDateTime from, LocalDateTime to, Format format) {
+        return kind + "-" + from.toLocalDate() + "-" + to.toLocalDate() + "." + format.getExtension() + ".gz";
+    }
+
+    /**
+     * Writes the payments with a timestamp in [from, to), oldest first. Returns the
+     * number of rows written.
+     */
+    public long exportPayments(LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        try (Stream<PaymentHistory> payments = paymentHistoryRepository.streamByTimestampRange(from, to)) {
+            return write(payments.iterator(), format, PAYMENT_COLUMNS, payment -> new Object[] {
+                payment.getId(), payment.getTransactionHash(), payment.getFromAddress(), payment.getToAddress(),
+                payment.getAmount(), payment.getCurrency(), payment.getType(), payment.getStatus(),
+                payment.getRentalId(), payment.getTimestamp()
+            }, out);
+        }
+    }
+
+    /**
+     * Writes the rentals that started in [from, to), oldest first. Returns the number
+     * of rows written.
+     */
+    public long exportRentals(LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        try (Stream<Rental> rentals = rentalRepository.streamByStartTimeRange(from, to)) {
+            return write(rentals.iterator(), format, RENTAL_COLUMNS, rental -> new Object[] {
+                rental.getId(), rental.getVinNumber(), rental.getRenterAddress(), rental.getStartTime(),
+                rental.getEndTime(), rental.getTotalAmount(), rental.isActive(), rental.getGpsTrackingId(),
+                rental.getTransactionHash()
+            }, out);
+        }
+    }
+
+    private <T> long write(Iterator<T> rows, Format format, String[] columns, Function<T, Object[]> toValues,
+                           OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+        long count = 0;
+        if (format == Format.CSV) {
+            StringBuilder line = new StringBuilder(256);
+            appendCsvRow(line, columns);
+            writer.append(line);
+            while (rows.hasNext()) {
+                line.setLength(0);
+                appendCsvRow(line, toValues.apply(rows.next()));
+                writer.append(line);
+                count++;
+            }
+        } else {
+            JsonGenerator generator = objectMapper.createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rows.hasNext()) {
+                Object[] values = toValues.apply(rows.next());
+                generator.writeStartObject();
+                for (int i = 0; i < columns.length; i++) {
+                    generator.writeObjectField(columns[i], values[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+            generator.flush();
+        }
+        writer.flush();
+        // Finish rather than close: the caller owns the underlying stream
+        gzip.finish();
+        return count;
+    }
+
+    private static void appendCsvRow(StringBuilder line, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendCsvValue(line, values[i]);
+        }
+        line.append("\r\n");
+    }
+
+    private static void appendCsvValue(StringBuilder line, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,176 @@
+package com.carrent.service;
+
+import com.carrent.util.GeoUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Uniform latitude/longitude grid over the last known position of every tracking ID.
+ * A nearest-neighbour query walks rings of cells outward from the query point and
+ * stops as soon as the next ring cannot hold anything closer than what it already
+ * has, so its cost depends on the density around the point rather than fleet size.
+ */
+@Component
+public class GeoGridIndex {
+    private final double cellSizeDegrees;
+    private final int rows;
+    private final int columns;
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> cells = new ConcurrentHashMap<>();
+
+    public GeoGridIndex(@Value("${gps.geo-index.cell-size-degrees:0.01}") double cellSizeDegrees) {
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.rows = (int) Math.ceil(180.0 / cellSizeDegrees) + 1;
+        this.columns = (int) Math.ceil(360.0 / cellSizeDegrees);
+    }
+
+    public void update(String trackingId, double latitude, double longitude) {
+        int row = row(latitude);
+        int column = column(longitude);
+        long cell = cellKey(row, column);
+        Position previous = positions.put(trackingId, new Position(latitude, longitude, cell));
+        if (previous == null || previous.cell != cell) {
+            cells.compute(cell, (key, members) -> {
+                Set<String> target = members != null ? members : ConcurrentHashMap.<String>newKeySet();
+                target.add(trackingId);
+                return target;
+            });
+            if (previous != null) {
+                removeFromCell(previous.cell, trackingId);
+            }
+        }
+    }
+
+    public void remove(String trackingId) {
+        Position previous = positions.remove(trackingId);
+        if (previous != null) {
+            removeFromCell(previous.cell, trackingId);
+        }
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Returns up to {@code limit} tracking IDs within {@code radiusMeters} of the point,
+     * nearest first, skipping any the filter rejects.
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, double radiusMeters, int limit,
+                                  Predicate<String> filter) {
+        // Max-heap on distance so the farthest of the current best candidates is on top
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(
+            Comparator.comparingDouble(Neighbor::getDistanceMeters).reversed());
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+
+        for (int ring = 0; ; ring++) {
+            visitRing(centerRow, centerColumn, ring, trackingId -> {
+                if (!filter.test(trackingId)) {
+                    return;
+                }
+                Position position = positions.get(trackingId);
+                if (position == null) {
+                    return;
+                }
+                double distance = GeoUtils.distanceMeters(latitude, longitude, position.latitude, position.longitude);
+                if (distance > radiusMeters) {
+                    return;
+                }
+                if (best.size() < limit) {
+                    best.add(new Neighbor(trackingId, position.latitude, position.longitude, distance));
+                } else if (distance < best.peek().getDistanceMeters()) {
+                    best.poll();
+                    best.add(new Neighbor(trackingId, position.latitude, position.longitude, distance));
+                }
+            });
+
+            // Anything in ring + 1 or beyond is at least this far from the query point
+            double nextRingDistance = ring * minCellMeters(latitude, ring + 1);
+            if (nextRingDistance > radiusMeters || ring >= rows) {
+                break;
+            }
+            if (best.size() == limit && nextRingDistance > best.peek().getDistanceMeters()) {
+                break;
+            }
+        }
+
+        List<Neighbor> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::getDistanceMeters));
+        return result;
+    }
+
+    private void visitRing(int centerRow, int centerColumn, int ring, Consumer<String> visitor) {
+        for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+            if (row < 0 || row >= rows) {
+                continue;
+            }
+            boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+            int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+            for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                Set<String> members = cells.get(cellKey(row, Math.floorMod(column, columns)));
+                if (members != null) {
+                    members.forEach(visitor);
+                }
+            }
+        }
+    }
+
+    private double minCellMeters(double latitude, int ring) {
+        // Longitude cells narrow towards the poles, so use the widest latitude the ring reaches
+        double farthestLatitude = Math.min(89.0, Math.abs(latitude) + ring * cellSizeDegrees);
+        double cellMeters = cellSizeDegrees * GeoUtils.METERS_PER_DEGREE_LATITUDE;
+        return cellMeters * Math.max(Math.cos(Math.toRadians(farthestLatitude)), 0.01);
+    }
+
+    private void removeFromCell(long cell, String trackingId) {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(trackingId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude + 90.0) / cellSizeDegrees);
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / cellSizeDegrees), columns);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private static final class Position {
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Position(double latitude, double longitude, long cell) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Neighbor {
+        private final String trackingId;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceMeters;
+    }
+}
@@ -0,0 +1,426 @@
+package com.carrent.service;
+
+import com.carrent.model.Geofence;
+import com.carrent.model.GpsLocation;
+import com.carrent.model.Rental;
+import com.carrent.repository.GeofenceRepository;
+import com.carrent.repository.RentalRepository;
+import com.carrent.util.GeoUtils;
+import com.carrent.util.TimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Per-rental geofences evaluated inline as fixes arrive. Zone fences are held in a
+ * grid keyed by the cells their bounding box covers, so a fix only looks at the
+ * fences in its own cell. Allowed regions and unbounded speed limits have to be
+ * checked wherever the car is, so they are kept per tracking ID instead. Fixes of
+ * tracking IDs without fences are ignored, and the last fix of a tracking ID is
+ * forgotten when its last fence goes away.
+ * Alerts fire when a fence first becomes violated and then at most once per
+ * cooldown while the violation lasts. A fence is only re-armed after a run of
+ * clean fixes or once the cooldown has passed, so jitter at a fence edge or a
+ * speed hovering around a limit does not alert on every other fix.
+ */
+@Slf4j
+@Service
+public class GeofenceService {
+    private static final int MAX_CELLS_PER_FENCE = 4096;
+
+    private final GeofenceRepository geofenceRepository;
+    private final RentalRepository rentalRepository;
+    private final NotificationService notificationService;
+    private final double cellSizeDegrees;
+    private final int columns;
+    private final long alertCooldownMillis;
+    private final int rearmCleanFixes;
+
+    private final Map<String, CompiledFence> fencesById = new ConcurrentHashMap<>();
+    private final Map<Long, Set<CompiledFence>> cells = new ConcurrentHashMap<>();
+    private final Set<CompiledFence> oversized = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<CompiledFence>> positionIndependent = new ConcurrentHashMap<>();
+    private final Map<String, LastFix> lastFixes = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, AlertState>> activeAlerts = new ConcurrentHashMap<>();
+    private final Map<String, Integer> fenceCounts = new ConcurrentHashMap<>();
+
+    public GeofenceService(
+            GeofenceRepository geofenceRepository,
+            RentalRepository rentalRepository,
+            NotificationService notificationService,
+            @Value("${gps.geofence.cell-size-degrees:0.05}") double cellSizeDegrees,
+            @Value("${gps.geofence.alert-cooldown-ms:600000}") long alertCooldownMillis,
+            @Value("${gps.geofence.rearm-clean-fixes:3}") int rearmCleanFixes
+    ) {
+        this.geofenceRepository = geofenceRepository;
+        this.rentalRepository = rentalRepository;
+        this.notificationService = notificationService;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.columns = (int) Math.ceil(360.0 / cellSizeDegrees);
+        this.alertCooldownMillis = alertCooldownMillis;
+        this.rearmCleanFixes = rearmCleanFixes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadGeofences() {
+        geofenceRepository.findAll().forEach(this::index);
+        log.info("Loaded {} geofences", fencesById.size());
+    }
+
+    public Geofence createGeofence(Geofence geofence) {
+        validate(geofence);
+        Rental rental = rentalRepository.findById(geofence.getRentalId())
+            .orElseThrow(() -> new RuntimeException("Rental not found"));
+        geofence.setTrackingId(rental.getGpsTrackingId());
+        if (geofence.getUserId() == null) {
+            geofence.setUserId(rental.getRenterAddress());
+        }
+
+        Geofence saved = geofenceRepository.save(geofence);
+        index(saved);
+        return saved;
+    }
+
+    public List<Geofence> getRentalGeofences(String rentalId) {
+        return geofenceRepository.findByRentalId(rentalId);
+    }
+
+    public void deleteGeofence(String geofenceId) {
+        geofenceRepository.deleteById(geofenceId);
+        unindex(geofenceId);
+    }
+
+    public void deleteRentalGeofences(String rentalId) {
+        List<Geofence> fences = geofenceRepository.findByRentalId(rentalId);
+        geofenceRepository.deleteByRentalId(rentalId);
+        fences.forEach(fence -> unindex(fence.getId()));
+    }
+
+    /**
+     * Checks a fix against the fences of its tracking ID. Expects fixes in time order
+     * for each tracking ID, since speed is derived from the previous fix.
+     */
+    public void evaluate(GpsLocation location) {
+        String trackingId = location.getTrackingId();
+        if (!fenceCounts.containsKey(trackingId)) {
+            return;
+        }
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        long timestamp = TimeUtils.toEpochMillis(location.getTimestamp());
+
+        LastFix previous = lastFixes.put(trackingId, new LastFix(latitude, longitude, timestamp));
+        double speedKmh = -1;
+        if (previous != null && timestamp > previous.timestamp) {
+            double meters = GeoUtils.distanceMeters(previous.latitude, previous.longitude, latitude, longitude);
+            speedKmh = meters / (timestamp - previous.timestamp) * 3_600;
+        }
+
+        List<CompiledFence> violations = null;
+        Set<CompiledFence> zoned = cells.get(cellKey(latitude, longitude));
+        if (zoned != null) {
+            violations = collectZoneViolations(zoned, trackingId, latitude, longitude, speedKmh, violations);
+        }
+        if (!oversized.isEmpty()) {
+            violations = collectZoneViolations(oversized, trackingId, latitude, longitude, speedKmh, violations);
+        }
+        Set<CompiledFence> anywhere = positionIndependent.get(trackingId);
+        if (anywhere != null) {
+            for (CompiledFence fence : anywhere) {
+                boolean violated = fence.type() == Geofence.FenceType.ALLOWED_REGION
+                    ? !fence.contains(latitude, longitude)
+                    : exceedsLimit(fence, speedKmh);
+                if (violated) {
+                    violations = add(violations, fence);
+                }
+            }
+        }
+
+        alertDebounced(trackingId, violations, speedKmh);
+    }
+
+    private List<CompiledFence> collectZoneViolations(Set<CompiledFence> candidates, String trackingId,
+                                                      double latitude, double longitude, double speedKmh,
+                                                      List<CompiledFence> violations) {
+        for (CompiledFence fence : candidates) {
+            if (!trackingId.equals(fence.geofence.getTrackingId()) || !fence.contains(latitude, longitude)) {
+                continue;
+            }
+            if (fence.type() == Geofence.FenceType.FORBIDDEN_ZONE || exceedsLimit(fence, speedKmh)) {
+                violations = add(violations, fence);
+            }
+        }
+        return violations;
+    }
+
+    private void alertDebounced(String trackingId, List<CompiledFence> violations, double speedKmh) {
+        Map<String, AlertState> alerted = activeAlerts.get(trackingId);
+        if (violations == null && alerted == null) {
+            return;
+        }
+        if (alerted == null) {
+            alerted = activeAlerts.computeIfAbsent(trackingId, key -> new ConcurrentHashMap<>());
+        }
+
+        long now = System.currentTimeMillis();
+        Set<String> violatedIds = violations != null ? new HashSet<>(violations.size() * 2) : Set.of();
+        if (violations != null) {
+            for (CompiledFence fence : violations) {
+                String fenceId = fence.geofence.getId();
+                violatedIds.add(fenceId);
+                AlertState state = alerted.get(fenceId);
+                if (state == null || now - state.alertedAt >= alertCooldownMillis) {
+                    alerted.put(fenceId, new AlertState(now));
+                    notificationService.notifyGpsAlert(
+                        fence.geofence.getUserId(), fence.geofence.getRentalId(), describe(fence, speedKmh));
+                } else {
+                    state.cleanFixes = 0;
+                }
+            }
+        }
+        // A fence is re-armed after enough clean fixes in a row, or once its cooldown has passed
+        alerted.entrySet().removeIf(entry -> !violatedIds.contains(entry.getKey())
+            && (++entry.getValue().cleanFixes >= rearmCleanFixes
+                || now - entry.getValue().alertedAt >= alertCooldownMillis));
+        if (alerted.isEmpty()) {
+            activeAlerts.remove(trackingId, alerted);
+        }
+    }
+
+    private String describe(CompiledFence fence, double speedKmh) {
+        String name = fence.geofence.getName() != null ? fence.geofence.getName() : "geofence";
+        switch (fence.type()) {
+            case ALLOWED_REGION:
+                return "Vehicle has left the allowed region " + name + ".";
+            case FORBIDDEN_ZONE:
+                return "Vehicle has entered the forbidden zone " + name + ".";
+            default:
+                return String.format("Vehicle speed of %.0f km/h exceeds the limit of %.0f km/h in %s.",
+                    speedKmh, fence.geofence.getSpeedLimitKmh(), name);
+        }
+    }
+
+    private boolean exceedsLimit(CompiledFence fence, double speedKmh) {
+        return fence.type() == Geofence.FenceType.SPEED_LIMIT && speedKmh > fence.geofence.getSpeedLimitKmh();
+    }
+
+    private List<CompiledFence> add(List<CompiledFence> violations, CompiledFence fence) {
+        List<CompiledFence> target = violations != null ? violations : new ArrayList<>(2);
+        target.add(fence);
+        return target;
+    }
+
+    private void validate(Geofence geofence) {
+        if (geofence.getRentalId() == null || geofence.getType() == null) {
+            throw new IllegalArgumentException("rentalId and type are required");
+        }
+        boolean circle = geofence.getCenterLatitude() != null && geofence.getCenterLongitude() != null
+            && geofence.getRadiusMeters() != null && geofence.getRadiusMeters() > 0;
+        boolean polygon = geofence.getPolygonLatitudes() != null && geofence.getPolygonLongitudes() != null
+            && geofence.getPolygonLatitudes().length >= 3
+            && geofence.getPolygonLatitudes().length == geofence.getPolygonLongitudes().length;
+        if (geofence.getType() != Geofence.FenceType.SPEED_LIMIT && !circle && !polygon) {
+            throw new IllegalArgumentException("Region geofences need a circle or a polygon with at least 3 vertices");
+        }
+        if (geofence.getType() == Geofence.FenceType.SPEED_LIMIT
+                && (geofence.getSpeedLimitKmh() == null || geofence.getSpeedLimitKmh() <= 0)) {
+            throw new IllegalArgumentException("Speed limit geofences need a positive speedLimitKmh");
+        }
+    }
+
+    private void index(Geofence geofence) {
+        if (geofence.getTrackingId() == null) {
+            return;
+        }
+        CompiledFence fence = new CompiledFence(geofence);
+        CompiledFence previous = fencesById.put(geofence.getId(), fence);
+        if (previous != null) {
+            removeFromIndex(previous);
+        } else {
+            fenceCounts.merge(geofence.getTrackingId(), 1, Integer::sum);
+        }
+
+        if (geofence.getType() == Geofence.FenceType.ALLOWED_REGION || !fence.shaped) {
+            positionIndependent.computeIfAbsent(geofence.getTrackingId(), key -> ConcurrentHashMap.newKeySet())
+                .add(fence);
+            return;
+        }
+
+        boolean gridded = forEachCell(fence, key -> cells.compute(key, (k, fences) -> {
+            Set<CompiledFence> target = fences != null ? fences : ConcurrentHashMap.newKeySet();
+            target.add(fence);
+            return target;
+        }));
+        if (!gridded) {
+            oversized.add(fence);
+        }
+    }
+
+    private void unindex(String geofenceId) {
+        CompiledFence fence = fencesById.remove(geofenceId);
+        if (fence == null) {
+            return;
+        }
+        removeFromIndex(fence);
+        String trackingId = fence.geofence.getTrackingId();
+        Integer remaining = fenceCounts.computeIfPresent(trackingId, (key, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            lastFixes.remove(trackingId);
+            activeAlerts.remove(trackingId);
+        }
+    }
+
+    private void removeFromIndex(CompiledFence fence) {
+        if (oversized.remove(fence)) {
+            return;
+        }
+        if (fence.geofence.getType() == Geofence.FenceType.ALLOWED_REGION || !fence.shaped) {
+            positionIndependent.computeIfPresent(fence.geofence.getTrackingId(), (key, fences) -> {
+                fences.remove(fence);
+                return fences.isEmpty() ? null : fences;
+            });
+            return;
+        }
+        forEachCell(fence, key -> cells.computeIfPresent(key, (k, fences) -> {
+            fences.remove(fence);
+            return fences.isEmpty() ? null : fences;
+        }));
+    }
+
+    /**
+     * Passes the key of every grid cell the fence's bounding box covers to the
+     * action. Returns false without calling it if the box covers too many cells.
+     */
+    private boolean forEachCell(CompiledFence fence, LongConsumer action) {
+        int minRow = row(fence.minLatitude);
+        int maxRow = row(fence.maxLatitude);
+        int minColumn = column(fence.minLongitude);
+        int maxColumn = column(fence.maxLongitude);
+        long cellCount = (long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (cellCount > MAX_CELLS_PER_FENCE || minColumn > maxColumn) {
+            return false;
+        }
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                action.accept((long) row * columns + column);
+            }
+        }
+        return true;
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return (long) row(latitude) * columns + column(longitude);
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90.0) / cellSizeDegrees);
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / cellSizeDegrees), columns);
+    }
+
+    private static final class LastFix {
+        private final double latitude;
+        private final double longitude;
+        private final long timestamp;
+
+        private LastFix(double latitude, double longitude, long timestamp) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static final class AlertState {
+        private final long alertedAt;
+        private int cleanFixes; // Consecutive fixes without this fence violated
+
+        private AlertState(long alertedAt) {
+            this.alertedAt = alertedAt;
+        }
+    }
+
+    private static final class CompiledFence {
+        private final Geofence geofence;
+        private final boolean shaped;
+        private final double minLatitude;
+        private final double maxLatitude;
+        private final double minLongitude;
+        private final double maxLongitude;
+
+        private CompiledFence(Geofence geofence) {
+            this.geofence = geofence;
+            if (geofence.getPolygonLatitudes() != null && geofence.getPolygonLatitudes().length >= 3) {
+                this.shaped = true;
+                double[] lats = geofence.getPolygonLatitudes();
+                double[] lons = geofence.getPolygonLongitudes();
+                double minLat = lats[0], maxLat = lats[0], minLon = lons[0], maxLon = lons[0];
+                for (int i = 1; i < lats.length; i++) {
+                    minLat = Math.min(minLat, lats[i]);
+                    maxLat = Math.max(maxLat, lats[i]);
+                    minLon = Math.min(minLon, lons[i]);
+                    maxLon = Math.max(maxLon, lons[i]);
+                }
+                this.minLatitude = minLat;
+                this.maxLatitude = maxLat;
+                this.minLongitude = minLon;
+                this.maxLongitude = maxLon;
+            } else if (geofence.getRadiusMeters() != null) {
+                this.shaped = true;
+                double latitudeDelta = geofence.getRadiusMeters() / GeoUtils.METERS_PER_DEGREE_LATITUDE;
+                double longitudeDelta = geofence.getRadiusMeters() / (GeoUtils.METERS_PER_DEGREE_LATITUDE
+                    * Math.max(Math.cos(Math.toRadians(geofence.getCenterLatitude())), 0.01));
+                this.minLatitude = geofence.getCenterLatitude() - latitudeDelta;
+                this.maxLatitude = geofence.getCenterLatitude() + latitudeDelta;
+                this.minLongitude = geofence.getCenterLongitude() - longitudeDelta;
+                this.maxLongitude = geofence.getCenterLongitude() + longitudeDelta;
+            } else {
+                this.shaped = false;
+                this.minLatitude = -90;
+                this.maxLatitude = 90;
+                this.minLongitude = -180;
+                this.maxLongitude = 180;
+            }
+        }
+
+        private Geofence.FenceType type() {
+            return geofence.getType();
+        }
+
+        private boolean contains(double latitude, double longitude) {
+            if (!shaped) {
+                return true;
+            }
+            if (latitude < minLatitude || latitude > maxLatitude
+                    || longitude < minLongitude || longitude > maxLongitude) {
+                return false;
+            }
+            if (geofence.getPolygonLatitudes() == null) {
+                return GeoUtils.distanceMeters(geofence.getCenterLatitude(), geofence.getCenterLongitude(),
+                    latitude, longitude) <= geofence.getRadiusMeters();
+            }
+
+            // Ray casting; treats the polygon as planar, which is fine at city scale
+            double[] lats = geofence.getPolygonLatitudes();
+            double[] lons = geofence.getPolygonLongitudes();
+            boolean inside = false;
+            for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+                if ((lats[i] > latitude) != (lats[j] > latitude)
+                        && longitude < (lons[j] - lons[i]) * (latitude - lats[i]) / (lats[j] - lats[i]) + lons[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes accepted GPS fixes to SSE subscribers. Publishing never blocks: each
+ * subscriber holds at most one pending fix per tracking ID, newer fixes replace
+ * older ones, and a small sender pool drains subscribers that have something
+ * pending. A slow consumer therefore only ever sees fewer, fresher points.
+ */
+@Slf4j
+@Component
+public class GpsStreamBroker {
+    private final Map<String, Set<Subscriber>> subscribersByTrackingId = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor sender;
+    private final ScheduledExecutorService heartbeat;
+    private final long timeoutMillis;
+    private final Counter droppedDrains;
+
+    public GpsStreamBroker(
+            MeterRegistry meterRegistry,
+            @Value("${gps.stream.sender-threads:8}") int senderThreads,
+            @Value("${gps.stream.sender-queue-capacity:65536}") int senderQueueCapacity,
+            @Value("${gps.stream.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${gps.stream.heartbeat-interval-ms:30000}") long heartbeatIntervalMillis
+    ) {
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(senderQueueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "gps-stream-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gps-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeats,
+            heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+        this.timeoutMillis = timeoutMillis;
+
+        Gauge.builder("gps.stream.subscribers", subscribers, Set::size).register(meterRegistry);
+        this.droppedDrains = Counter.builder("gps.stream.drain.rejected").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Collection<String> trackingIds, Collection<GpsLocation> initialLocations) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(trackingIds));
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        subscribers.add(subscriber);
+        for (String trackingId : subscriber.trackingIds) {
+            subscribersByTrackingId.computeIfAbsent(trackingId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        initialLocations.forEach(subscriber::offer);
+        return emitter;
+    }
+
+    public void publish(GpsLocation location) {
+        Set<Subscriber> interested = subscribersByTrackingId.get(location.getTrackingId());
+        if (interested != null) {
+            interested.forEach(subscriber -> subscriber.offer(location));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (String trackingId : subscriber.trackingIds) {
+            subscribersByTrackingId.computeIfPresent(trackingId, (key, members) -> {
+                members.remove(subscriber);
+                return members.isEmpty() ? null : members;
+            });
+        }
+    }
+
+    private void sendHeartbeats() {
+        subscribers.forEach(Subscriber::requestHeartbeat);
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> trackingIds;
+        // At most one pending fix per tracking ID; this is the whole per-subscriber buffer
+        private final Map<String, GpsLocation> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Set<String> trackingIds) {
+            this.emitter = emitter;
+            this.trackingIds = trackingIds;
+        }
+
+        private void offer(GpsLocation location) {
+            pending.merge(location.getTrackingId(), location,
+                (current, next) -> next.getTimestamp().isBefore(current.getTimestamp()) ? current : next);
+            schedule();
+        }
+
+        private void requestHeartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Pending state is kept; the next offer or heartbeat schedules it again
+                scheduled.set(false);
+                droppedDrains.increment();
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    if (heartbeatDue.getAndSet(false)) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    Iterator<String> keys = pending.keySet().iterator();
+                    while (keys.hasNext()) {
+                        GpsLocation location = pending.remove(keys.next());
+                        if (location != null) {
+                            emitter.send(SseEmitter.event().name("location").data(location));
+                        }
+                    }
+                    scheduled.set(false);
+                } while ((!pending.isEmpty() || heartbeatDue.get()) && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Closing GPS stream subscriber: {}", e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.carrent.service;
+
+import com.carrent.config.GpsLocationCollection;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the regular gps_locations collection into the time-series collection.
+ * Work is split by tracking ID across a small pool; each worker streams its
+ * tracking ID in timestamp order and writes unordered batches. Only fixes up to
+ * the cut-over time taken at start are copied; live fixes already land in the
+ * target. Progress is checkpointed per tracking ID after every batch, and fixes
+ * whose (trackingId, timestamp) the target already holds are skipped, so an
+ * interrupted migration can simply be started again.
+ */
+@Slf4j
+@Service
+public class GpsTimeSeriesMigration {
+    static final String CHECKPOINT_COLLECTION = "gps_ts_migration_checkpoints";
+
+    private final MongoTemplate mongoTemplate;
+    private final GpsLocationCollection gpsLocationCollection;
+    private final int batchSize;
+    private final int threads;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong copiedPoints = new AtomicLong();
+    private final AtomicInteger completedTrackingIds = new AtomicInteger();
+    private final AtomicInteger failedTrackingIds = new AtomicInteger();
+    private volatile int totalTrackingIds;
+
+    public GpsTimeSeriesMigration(
+            MongoTemplate mongoTemplate,
+            GpsLocationCollection gpsLocationCollection,
+            @Value("${gps.storage.time-series.migration-batch-size:5000}") int batchSize,
+            @Value("${gps.storage.time-series.migration-threads:4}") int threads
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.gpsLocationCollection = gpsLocationCollection;
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Starts the migration in the background. Returns false if one is already running.
+     */
+    public boolean start() {
+        if (!gpsLocationCollection.isTimeSeries()) {
+            throw new IllegalStateException("Time-series storage is not enabled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        copiedPoints.set(0);
+        completedTrackingIds.set(0);
+        failedTrackingIds.set(0);
+        Date cutover = new Date();
+        Thread thread = new Thread(() -> run(cutover), "gps-ts-migration");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("copiedPoints", copiedPoints.get());
+        status.put("completedTrackingIds", completedTrackingIds.get());
+        status.put("failedTrackingIds", failedTrackingIds.get());
+        status.put("totalTrackingIds", totalTrackingIds);
+        return status;
+    }
+
+    private void run(Date cutover) {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            MongoCollection<Document> source = mongoTemplate.getCollection(GpsLocationCollection.REGULAR_COLLECTION);
+            MongoCollection<Document> target = mongoTemplate.getCollection(gpsLocationCollection.getName());
+            MongoCollection<Document> checkpoints = mongoTemplate.getCollection(CHECKPOINT_COLLECTION);
+            List<String> trackingIds = source.distinct("trackingId", String.class).into(new ArrayList<>());
+            totalTrackingIds = trackingIds.size();
+            log.info("Migrating GPS fixes of {} tracking IDs up to {} to {}",
+                trackingIds.size(), cutover, target.getNamespace());
+
+            for (String trackingId : trackingIds) {
+                workers.execute(() -> {
+                    try {
+                        copy(source, target, checkpoints, trackingId, cutover);
+                        completedTrackingIds.incrementAndGet();
+                    } catch (Exception e) {
+                        failedTrackingIds.incrementAndGet();
+                        log.error("Failed to migrate GPS fixes of {}", trackingId, e);
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            log.info("GPS time-series migration finished: {} points copied, {} tracking IDs failed",
+                copiedPoints.get(), failedTrackingIds.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("GPS time-series migration failed", e);
+        } finally {
+            workers.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    void copy(MongoCollection<Document> source, MongoCollection<Document> target,
+              MongoCollection<Document> checkpoints, String trackingId, Date cutover) {
+        Bson filter = Filters.and(Filters.eq("trackingId", trackingId), Filters.lte("timestamp", cutover));
+        Document checkpoint = checkpoints.find(Filters.eq("_id", trackingId)).first();
+        if (checkpoint != null) {
+            // Inclusive: fixes sharing the checkpointed timestamp may not all have been written
+            filter = Filters.and(filter, Filters.gte("timestamp", checkpoint.get("lastTimestamp", Date.class)));
+        }
+
+        List<Document> batch = new ArrayList<>(batchSize);
+        try (MongoCursor<Document> cursor = source.find(filter)
+                .sort(Sorts.ascending("timestamp"))
+                .batchSize(batchSize)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == batchSize) {
+                    writeBatch(target, checkpoints, trackingId, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(target, checkpoints, trackingId, batch);
+        }
+    }
+
+    private void writeBatch(MongoCollection<Document> target, MongoCollection<Document> checkpoints,
+                            String trackingId, List<Document> batch) {
+        List<Date> timestamps = new ArrayList<>(batch.size());
+        for (Document fix : batch) {
+            timestamps.add(fix.get("timestamp", Date.class));
+        }
+        Bson copied = Filters.and(Filters.eq("trackingId", trackingId), Filters.in("timestamp", timestamps));
+        Set<Date> existing = new HashSet<>();
+        for (Document fix : target.find(copied).projection(Projections.include("timestamp"))) {
+            existing.add(fix.get("timestamp", Date.class));
+        }
+
+        List<Document> missing = new ArrayList<>(batch.size());
+        for (Document fix : batch) {
+            if (!existing.contains(fix.get("timestamp", Date.class))) {
+                missing.add(fix);
+            }
+        }
+        if (!missing.isEmpty()) {
+            target.insertMany(missing, new InsertManyOptions().ordered(false));
+            copiedPoints.addAndGet(missing.size());
+        }
+        checkpoints.replaceOne(Filters.eq("_id", trackingId),
+            new Document("_id", trackingId).append("lastTimestamp", timestamps.get(timestamps.size() - 1)),
+            new ReplaceOptions().upsert(true));
+    }
+}
@@ -0,0 +1,298 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.model.GpsTrackBucket;
+import com.carrent.repository.GpsTrackBucketRepository;
+import com.carrent.util.TimeUtils;
+import com.carrent.util.TrackCodec;
+import com.carrent.util.TrackSimplifier;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Trip history stored as one document per tracking ID and time window. Points are
+ * appended to an in-memory encoder as they arrive and the dirty buckets are written
+ * back periodically, so a long rental costs a handful of small documents instead of
+ * one document and index entry per fix. Buckets are upserted by tracking ID and
+ * window start; a window that may already be stored (after a restart, or a late
+ * fix for a window already written out) is merged with the stored points first.
+ */
+@Slf4j
+@Service
+public class GpsTrackBucketService {
+    private final GpsTrackBucketRepository gpsTrackBucketRepository;
+    private final MongoTemplate mongoTemplate;
+    private final long windowMillis;
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private final Map<String, OpenBucket> openBuckets = new ConcurrentHashMap<>();
+
+    public GpsTrackBucketService(
+            GpsTrackBucketRepository gpsTrackBucketRepository,
+            MongoTemplate mongoTemplate,
+            @Value("${gps.storage.bucket-window:PT1H}") Duration window
+    ) {
+        this.gpsTrackBucketRepository = gpsTrackBucketRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.windowMillis = window.toMillis();
+    }
+
+    public void append(GpsLocation location) {
+        long timestamp = TimeUtils.toEpochMillis(location.getTimestamp());
+        long bucketStart = Math.floorDiv(timestamp, windowMillis) * windowMillis;
+        String key = location.getTrackingId() + ":" + bucketStart;
+        openBuckets.compute(key, (k, bucket) -> {
+            OpenBucket target = bucket != null ? bucket : new OpenBucket(location.getTrackingId(), bucketStart);
+            target.append(timestamp, location.getLatitude(), location.getLongitude());
+            return target;
+        });
+    }
+
+    /**
+     * Streams the points of a trip in [from, to] to the consumer, decoding one bucket
+     * at a time. Points still held in memory are visible after the next flush.
+     */
+    public int streamHistory(String trackingId, LocalDateTime from, LocalDateTime to,
+                             TrackCodec.PointConsumer consumer) {
+        long fromMillis = TimeUtils.toEpochMillis(from);
+        long toMillis = TimeUtils.toEpochMillis(to);
+        LocalDateTime firstWindow = TimeUtils.fromEpochMillis(Math.floorDiv(fromMillis, windowMillis) * windowMillis);
+
+        int[] emitted = new int[1];
+        try (Stream<GpsTrackBucket> buckets = gpsTrackBucketRepository
+                .streamByTrackingIdAndBucketStartRange(trackingId, firstWindow, to)) {
+            buckets.forEach(bucket -> TrackCodec.decode(bucket.getPoints(), (epochMillis, latitude, longitude) -> {
+                if (epochMillis >= fromMillis && epochMillis <= toMillis) {
+                    consumer.accept(epochMillis, latitude, longitude);
+                    emitted[0]++;
+                }
+            }));
+        }
+        return emitted[0];
+    }
+
+    public Optional<GpsLocation> findLatest(String trackingId) {
+        return gpsTrackBucketRepository.findFirstByTrackingIdOrderByLastTimestampDesc(trackingId)
+            .map(bucket -> {
+                GpsLocation latest = new GpsLocation();
+                latest.setTrackingId(trackingId);
+                TrackCodec.decode(bucket.getPoints(), (epochMillis, latitude, longitude) -> {
+                    if (latest.getTimestamp() == null || TimeUtils.toEpochMillis(latest.getTimestamp()) <= epochMillis) {
+                        latest.setLatitude(latitude);
+                        latest.setLongitude(longitude);
+                        latest.setTimestamp(TimeUtils.fromEpochMillis(epochMillis));
+                    }
+                });
+                return latest;
+            });
+    }
+
+    /**
+     * Applies Douglas-Peucker simplification to the closed buckets of a trip in
+     * [from, to]. Windows still held in memory are skipped, since their next flush
+     * would write the full points back. Meant for archived trips; returns the
+     * number of points removed.
+     */
+    public int simplify(String trackingId, LocalDateTime from, LocalDateTime to, double toleranceMeters) {
+        LocalDateTime openWindowStart = TimeUtils.fromEpochMillis(
+            Math.floorDiv(System.currentTimeMillis(), windowMillis) * windowMillis);
+        List<LocalDateTime> windowsInMemory = openBuckets.values().stream()
+            .filter(bucket -> bucket.trackingId.equals(trackingId))
+            .map(bucket -> TimeUtils.fromEpochMillis(bucket.bucketStart))
+            .collect(Collectors.toList());
+        Query query = new Query(Criteria.where("trackingId").is(trackingId)
+            .and("simplified").is(false)
+            .and("bucketStart").gte(from).lte(to).lt(openWindowStart).nin(windowsInMemory));
+
+        int removed = 0;
+        try (Stream<GpsTrackBucket> buckets = mongoTemplate.stream(query, GpsTrackBucket.class)) {
+            for (Iterator<GpsTrackBucket> it = buckets.iterator(); it.hasNext(); ) {
+                GpsTrackBucket bucket = it.next();
+                int count = bucket.getPointCount();
+                long[] times = new long[count];
+                double[] latitudes = new double[count];
+                double[] longitudes = new double[count];
+                int[] index = new int[1];
+                TrackCodec.decode(bucket.getPoints(), (epochMillis, latitude, longitude) -> {
+                    if (index[0] < count) {
+                        times[index[0]] = epochMillis;
+                        latitudes[index[0]] = latitude;
+                        longitudes[index[0]] = longitude;
+                        index[0]++;
+                    }
+                });
+
+                boolean[] keep = TrackSimplifier.simplify(latitudes, longitudes, index[0], toleranceMeters);
+                TrackCodec.Encoder encoder = new TrackCodec.Encoder();
+                for (int i = 0; i < index[0]; i++) {
+                    if (keep[i]) {
+                        encoder.append(times[i], latitudes[i], longitudes[i]);
+                    }
+                }
+                removed += index[0] - encoder.getCount();
+
+                mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(bucket.getId())),
+                    new Update()
+                        .set("points", encoder.toByteArray())
+                        .set("pointCount", encoder.getCount())
+                        .set("simplified", true),
+                    GpsTrackBucket.class);
+            }
+        }
+        return removed;
+    }
+
+    @Scheduled(fixedDelayString = "${gps.storage.bucket-flush-interval-ms:5000}")
+    public void flush() {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GpsTrackBucket.class);
+        int pending = 0;
+        for (OpenBucket bucket : openBuckets.values()) {
+            Query window = Query.query(Criteria.where("trackingId").is(bucket.trackingId)
+                .and("bucketStart").is(TimeUtils.fromEpochMillis(bucket.bucketStart)));
+            if (bucket.needsMerge()) {
+                try {
+                    bucket.mergeWith(mongoTemplate.findOne(window, GpsTrackBucket.class));
+                } catch (Exception e) {
+                    log.warn("Failed to read stored GPS track bucket of {}, retrying on next flush",
+                        bucket.trackingId, e);
+                    continue;
+                }
+            }
+            Update update = bucket.snapshotIfDirty();
+            if (update != null) {
+                bulk.upsert(window, update);
+                pending++;
+            }
+        }
+        if (pending > 0) {
+            try {
+                bulk.execute();
+            } catch (Exception e) {
+                log.error("Failed to flush {} GPS track buckets", pending, e);
+                openBuckets.values().forEach(OpenBucket::markDirty);
+                return;
+            }
+        }
+
+        // Windows that closed more than one window ago will not receive further points
+        long cutoff = System.currentTimeMillis() - 2 * windowMillis;
+        for (String key : openBuckets.keySet()) {
+            openBuckets.computeIfPresent(key, (k, bucket) -> bucket.isClosed(cutoff) ? null : bucket);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private final class OpenBucket {
+        private final String trackingId;
+        private final long bucketStart;
+        private TrackCodec.Encoder encoder = new TrackCodec.Encoder();
+        private long firstTimestamp = Long.MAX_VALUE;
+        private long lastTimestamp = Long.MIN_VALUE;
+        private boolean dirty;
+        // Only a window that began after startup and is still current can't be stored yet
+        private boolean needsMerge;
+
+        private OpenBucket(String trackingId, long bucketStart) {
+            this.trackingId = trackingId;
+            this.bucketStart = bucketStart;
+            long currentWindowStart = Math.floorDiv(System.currentTimeMillis(), windowMillis) * windowMillis;
+            this.needsMerge = bucketStart < startedAtMillis || bucketStart < currentWindowStart;
+        }
+
+        private synchronized void append(long epochMillis, double latitude, double longitude) {
+            encoder.append(epochMillis, latitude, longitude);
+            firstTimestamp = Math.min(firstTimestamp, epochMillis);
+            lastTimestamp = Math.max(lastTimestamp, epochMillis);
+            dirty = true;
+        }
+
+        private synchronized Update snapshotIfDirty() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            return new Update()
+                .set("trackingId", trackingId)
+                .set("bucketStart", TimeUtils.fromEpochMillis(bucketStart))
+                .set("firstTimestamp", TimeUtils.fromEpochMillis(firstTimestamp))
+                .set("lastTimestamp", TimeUtils.fromEpochMillis(lastTimestamp))
+                .set("pointCount", encoder.getCount())
+                .set("points", encoder.toByteArray())
+                .set("simplified", false);
+        }
+
+        private synchronized boolean needsMerge() {
+            return needsMerge && dirty;
+        }
+
+        /**
+         * Folds the stored points of this window in with the ones held here, in time
+         * order. The merged window is marked unsimplified so it can be simplified again.
+         */
+        private synchronized void mergeWith(GpsTrackBucket stored) {
+            needsMerge = false;
+            if (stored == null || stored.getPoints() == null || stored.getPointCount() == 0) {
+                return;
+            }
+            int total = stored.getPointCount() + encoder.getCount();
+            long[] times = new long[total];
+            double[] latitudes = new double[total];
+            double[] longitudes = new double[total];
+            int[] size = new int[1];
+            TrackCodec.PointConsumer collect = (epochMillis, latitude, longitude) -> {
+                if (size[0] < total) {
+                    times[size[0]] = epochMillis;
+                    latitudes[size[0]] = latitude;
+                    longitudes[size[0]] = longitude;
+                    size[0]++;
+                }
+            };
+            TrackCodec.decode(stored.getPoints(), collect);
+            TrackCodec.decode(encoder.toByteArray(), collect);
+
+            Integer[] order = new Integer[size[0]];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+            TrackCodec.Encoder merged = new TrackCodec.Encoder();
+            for (int i : order) {
+                merged.append(times[i], latitudes[i], longitudes[i]);
+                firstTimestamp = Math.min(firstTimestamp, times[i]);
+                lastTimestamp = Math.max(lastTimestamp, times[i]);
+            }
+            encoder = merged;
+        }
+
+        private synchronized void markDirty() {
+            dirty = encoder.getCount() > 0;
+        }
+
+        private synchronized boolean isClosed(long cutoffMillis) {
+            return !dirty && bucketStart + windowMillis < cutoffMillis;
+        }
+    }
+}
@@ -1,18 +1,60 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.GpsLocation;
+import com.carrent.model.RecentTrack;
 import com.carrent.repository.GpsLocationRepository;
+import com.carrent.util.PageCursor;
+import com.carrent.util.TimeUtils;
+import com.carrent.util.TrackCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class GpsTrackingService {
     private final GpsLocationRepository gpsLocationRepository;
+    private final GpsWriteBuffer gpsWriteBuffer;
+    private final LatestPositionCache latestPositionCache;
+    private final GeoGridIndex geoGridIndex;
+    private final GpsStreamBroker gpsStreamBroker;
+    private final GpsTrackBucketService gpsTrackBucketService;
+    private final GeofenceService geofenceService;
+    private final RecentTrackBuffer recentTrackBuffer;
+
+    @Value("${gps.storage.mode:POINTS}")
+    private StorageMode storageMode;
+
+    public enum StorageMode {
+        POINTS,   // One document per fix in gps_locations
+        BUCKETS,  // Compressed time-window buckets in gps_track_buckets
+        BOTH
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        latestPositionCache.warmUp();
+        latestPositionCache.forEach((trackingId, latitude, longitude, timestampMillis) ->
+            geoGridIndex.update(trackingId, latitude, longitude));
+    }
 
     public GpsLocation updateLocation(String trackingId, double latitude, double longitude) {
         GpsLocation location = new GpsLocation();
@@ -21,10 +63,168 @@ public class GpsTrackingService {
         location.setLongitude(longitude);
         location.setTimestamp(LocalDateTime.now());
         
-        return gpsLocationRepository.save(location);
+        GpsLocation saved = writesPoints() ? gpsLocationRepository.save(location) : location;
+        onLocationAccepted(saved);
+        return saved;
+    }
+
+    /**
+     * Hands a batch of fixes to the write-behind buffer. Fixes are accepted in order
+     * until the buffer refuses one; the return value is how many were accepted, so the
+     * caller can retry the remainder.
+     */
+    public int ingestLocations(List<GpsLocation> locations) {
+        if (locations.stream().anyMatch(location -> location.getTrackingId() == null)) {
+            throw new IllegalArgumentException("trackingId is required for every location");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int accepted = 0;
+        for (GpsLocation location : locations) {
+            if (location.getTimestamp() == null) {
+                location.setTimestamp(now);
+            }
+            if (!ingestLocation(location)) {
+                log.warn("GPS write buffer full, accepted {} of {} locations", accepted, locations.size());
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    /**
+     * Hands a single timestamped fix to the write-behind buffer. Returns false if the
+     * buffer refused it.
+     */
+    public boolean ingestLocation(GpsLocation location) {
+        location.setId(null);
+        if (writesPoints() && !gpsWriteBuffer.enqueue(location)) {
+            return false;
+        }
+        onLocationAccepted(location);
+        return true;
     }
 
     public Optional<GpsLocation> getLatestLocation(String trackingId) {
-        return gpsLocationRepository.findFirstByTrackingIdOrderByTimestampDesc(trackingId);
+        Optional<GpsLocation> cached = latestPositionCache.get(trackingId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        Optional<GpsLocation> stored = writesPoints()
+            ? gpsLocationRepository.findFirstByTrackingIdOrderByTimestampDesc(trackingId)
+            : gpsTrackBucketService.findLatest(trackingId);
+        stored.ifPresent(this::rememberLatest);
+        return stored;
+    }
+
+    /**
+     * Streams the fixes of a trip in [from, to] in time order, straight from a Mongo
+     * cursor, so memory use does not depend on the length of the trip.
+     */
+    public int streamTripHistory(String trackingId, LocalDateTime from, LocalDateTime to,
+                                 TrackCodec.PointConsumer consumer) {
+        if (!writesPoints()) {
+            return gpsTrackBucketService.streamHistory(trackingId, from, to, consumer);
+        }
+        int emitted = 0;
+        try (Stream<GpsLocation> locations =
+                     gpsLocationRepository.streamByTrackingIdAndTimestampRange(trackingId, from, to)) {
+            for (Iterator<GpsLocation> it = locations.iterator(); it.hasNext(); ) {
+                GpsLocation location = it.next();
+                consumer.accept(TimeUtils.toEpochMillis(location.getTimestamp()),
+                    location.getLatitude(), location.getLongitude());
+                emitted++;
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * Returns one page of fixes in [from, to], oldest first. The cursor from the
+     * previous page resumes right after its last fix.
+     */
+    public CursorPage<GpsLocation> getTripHistoryPage(String trackingId, LocalDateTime from, LocalDateTime to,
+                                                      String cursor, int limit) {
+        if (!writesPoints()) {
+            throw new IllegalStateException("Paged history needs point storage; use the trip stream instead");
+        }
+        PageCursor after = cursor != null
+            ? PageCursor.decode(cursor)
+            : PageCursor.before(TimeUtils.toEpochMillis(from));
+        List<GpsLocation> items = gpsLocationRepository.findPageAfter(trackingId,
+            after.getTimestamp(), after.getId(), to,
+            PageRequest.of(0, limit, Sort.by("timestamp", "_id")));
+        return PageCursor.page(items, limit, GpsLocation::getTimestamp, GpsLocation::getId);
+    }
+
+    public int simplifyTripHistory(String trackingId, LocalDateTime from, LocalDateTime to, double toleranceMeters) {
+        return gpsTrackBucketService.simplify(trackingId, from, to, toleranceMeters);
+    }
+
+    public Optional<RecentTrack> getRecentTrack(String trackingId, long sinceMillis) {
+        return recentTrackBuffer.get(trackingId, sinceMillis);
+    }
+
+    public void startRecentTrack(String trackingId) {
+        recentTrackBuffer.track(trackingId);
+    }
+
+    public void releaseRecentTrack(String trackingId) {
+        recentTrackBuffer.release(trackingId);
+    }
+
+    public void retainRecentTracks(Set<String> trackingIds) {
+        recentTrackBuffer.retainOnly(trackingIds);
+    }
+
+    public Map<String, Object> getRecentTrackMemoryStats() {
+        return recentTrackBuffer.getMemoryStats();
+    }
+
+    public List<GeoGridIndex.Neighbor> findNearest(double latitude, double longitude, double radiusMeters,
+                                                   int limit, Predicate<String> trackingIdFilter) {
+        return geoGridIndex.nearest(latitude, longitude, radiusMeters, limit, trackingIdFilter);
+    }
+
+    /**
+     * Opens a live stream of fixes for the given tracking IDs. Subscribers first get
+     * the last known position of each ID, then every newer fix as it is accepted.
+     */
+    public SseEmitter subscribe(Collection<String> trackingIds) {
+        List<GpsLocation> latest = trackingIds.stream()
+            .map(latestPositionCache::get)
+            .flatMap(Optional::stream)
+            .collect(Collectors.toList());
+        return gpsStreamBroker.subscribe(trackingIds, latest);
+    }
+
+    private boolean writesPoints() {
+        return storageMode != StorageMode.BUCKETS;
+    }
+
+    private boolean writesBuckets() {
+        return storageMode == StorageMode.BUCKETS || storageMode == StorageMode.BOTH;
+    }
+
+    private void onLocationAccepted(GpsLocation location) {
+        if (writesBuckets()) {
+            gpsTrackBucketService.append(location);
+        }
+        if (rememberLatest(location)) {
+            recentTrackBuffer.append(location.getTrackingId(), location.getLatitude(), location.getLongitude(),
+                TimeUtils.toEpochMillis(location.getTimestamp()));
+            gpsStreamBroker.publish(location);
+            geofenceService.evaluate(location);
+        }
+    }
+
+    private boolean rememberLatest(GpsLocation location) {
+        if (!latestPositionCache.update(location)) {
+            return false;
+        }
+        geoGridIndex.update(location.getTrackingId(), location.getLatitude(), location.getLongitude());
+        return true;
     }
 }
@@ -0,0 +1,195 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for GPS fixes. Points are queued by the ingestion path and
+ * written by a single flusher thread as unordered bulk inserts, either when a full
+ * batch is available or when the flush interval elapses. The queue is bounded, so
+ * when Mongo falls behind producers are refused instead of growing the heap.
+ */
+@Slf4j
+@Component
+public class GpsWriteBuffer {
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlockingQueue<GpsLocation> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+
+    private final Timer flushTimer;
+    private final Counter flushedPoints;
+    private final Counter rejectedPoints;
+    private final Counter failedFlushes;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public GpsWriteBuffer(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${gps.ingest.queue-capacity:100000}") int queueCapacity,
+            @Value("${gps.ingest.batch-size:1000}") int batchSize,
+            @Value("${gps.ingest.flush-interval-ms:500}") long flushIntervalMillis,
+            @Value("${gps.ingest.offer-timeout-ms:50}") long offerTimeoutMillis
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+
+        Gauge.builder("gps.ingest.queue.depth", queue, BlockingQueue::size)
+            .description("GPS fixes waiting to be flushed")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("gps.ingest.flush")
+            .description("Time spent writing one batch of GPS fixes")
+            .register(meterRegistry);
+        this.flushedPoints = Counter.builder("gps.ingest.flushed").register(meterRegistry);
+        this.rejectedPoints = Counter.builder("gps.ingest.rejected").register(meterRegistry);
+        this.failedFlushes = Counter.builder("gps.ingest.flush.failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = new Thread(this::run, "gps-write-buffer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        List<GpsLocation> remaining = new ArrayList<>(batchSize);
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+    }
+
+    /**
+     * Queues a fix for writing. Waits at most the configured offer timeout for space,
+     * and returns {@code false} when the buffer is still full so the caller can push
+     * back on the client.
+     */
+    public boolean enqueue(GpsLocation location) {
+        try {
+            if (queue.offer(location, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedPoints.increment();
+        return false;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<GpsLocation> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                GpsLocation first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    GpsLocation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Anything already drained is written before the thread exits
+                flush(batch);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<GpsLocation> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flushTimer.record(() -> mongoTemplate
+                    .bulkOps(BulkOperations.BulkMode.UNORDERED, GpsLocation.class)
+                    .insert(batch)
+                    .execute());
+                flushedPoints.increment(batch.size());
+                return;
+            } catch (BulkOperationException e) {
+                // Individual documents were refused; retrying the batch won't help
+                failedFlushes.increment();
+                log.error("Bulk insert of {} GPS locations had {} write errors",
+                    batch.size(), e.getErrors().size());
+                return;
+            } catch (Exception e) {
+                failedFlushes.increment();
+                if (attempt >= MAX_FLUSH_ATTEMPTS) {
+                    log.error("Dropping {} GPS locations after {} failed flushes", batch.size(), attempt, e);
+                    return;
+                }
+                log.warn("Failed to flush {} GPS locations, retrying", batch.size(), e);
+                // Holding the batch keeps the queue full, which is what pushes back on producers
+                if (!backOff(attempt)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.util.TimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Last known position per tracking ID. Positions live in parallel primitive arrays
+ * indexed by a slot number, so each car costs a map entry and 24 bytes of array
+ * space rather than a full {@link GpsLocation}. Readers take an optimistic stamp
+ * and only fall back to the read lock if a write raced with them.
+ */
+@Slf4j
+@Component
+public class LatestPositionCache {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private long[] epochMillis = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public LatestPositionCache(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Records a fix if it is newer than the one already held for the tracking ID.
+     * Returns {@code false} for out-of-order fixes, which are ignored.
+     */
+    public boolean update(String trackingId, double latitude, double longitude, long timestampMillis) {
+        long stamp = lock.writeLock();
+        try {
+            Integer slot = slots.get(trackingId);
+            if (slot == null) {
+                slot = allocateSlot();
+                slots.put(trackingId, slot);
+            } else if (epochMillis[slot] > timestampMillis) {
+                return false;
+            }
+            latitudes[slot] = latitude;
+            longitudes[slot] = longitude;
+            epochMillis[slot] = timestampMillis;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean update(GpsLocation location) {
+        return update(location.getTrackingId(), location.getLatitude(), location.getLongitude(),
+            TimeUtils.toEpochMillis(location.getTimestamp()));
+    }
+
+    public Optional<GpsLocation> get(String trackingId) {
+        Integer slot = slots.get(trackingId);
+        if (slot == null) {
+            return Optional.empty();
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        double[] lats = latitudes;
+        double[] lons = longitudes;
+        long[] times = epochMillis;
+        if (slot < times.length) {
+            double latitude = lats[slot];
+            double longitude = lons[slot];
+            long timestamp = times[slot];
+            if (lock.validate(stamp)) {
+                return Optional.of(toLocation(trackingId, latitude, longitude, timestamp));
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return Optional.of(toLocation(trackingId, latitudes[slot], longitudes[slot], epochMillis[slot]));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Visits every cached position. Holds the read lock for the whole walk, so this is
+     * meant for start-up and maintenance, not the request path.
+     */
+    public void forEach(PositionVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            slots.forEach((trackingId, slot) ->
+                visitor.visit(trackingId, latitudes[slot], longitudes[slot], epochMillis[slot]));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void warmUp() {
+        // $sort on (trackingId, timestamp desc) followed by $group/$first lets Mongo
+        // walk the compound index and pick one entry per tracking ID
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.sort(Sort.by(Sort.Direction.ASC, "trackingId").and(Sort.by(Sort.Direction.DESC, "timestamp"))),
+            Aggregation.group("trackingId")
+                .first("latitude").as("latitude")
+                .first("longitude").as("longitude")
+                .first("timestamp").as("timestamp")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        long started = System.currentTimeMillis();
+        try (Stream<Document> latest = mongoTemplate.aggregateStream(aggregation, GpsLocation.class, Document.class)) {
+            latest.forEach(document -> update(
+                document.getString("_id"),
+                document.getDouble("latitude"),
+                document.getDouble("longitude"),
+                document.getDate("timestamp").getTime()));
+            log.info("Warmed latest-position cache with {} tracking IDs in {} ms",
+                size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to warm latest-position cache", e);
+        }
+    }
+
+    private int allocateSlot() {
+        if (size == epochMillis.length) {
+            int capacity = epochMillis.length * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            epochMillis = Arrays.copyOf(epochMillis, capacity);
+        }
+        return size++;
+    }
+
+    private GpsLocation toLocation(String trackingId, double latitude, double longitude, long timestampMillis) {
+        GpsLocation location = new GpsLocation();
+        location.setTrackingId(trackingId);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setTimestamp(TimeUtils.fromEpochMillis(timestampMillis));
+        return location;
+    }
+
+    @FunctionalInterface
+    public interface PositionVisitor {
+        void visit(String trackingId, double latitude, double longitude, long timestampMillis);
+    }
+}
@@ -0,0 +1,303 @@
+package com.carrent.service;
+
+import com.carrent.model.Notification;
+import com.carrent.model.OutboxEvent;
+import com.carrent.repository.OutboxEventRepository;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers notifications off the request path. Callers hand over a notification
+ * with its ID already assigned and return immediately; a single flusher thread
+ * inserts queued notifications in unordered batches, retrying with backoff.
+ * Notifications that cannot be queued or written are parked in the outbox_events
+ * collection and replayed on a schedule. Notifications known to be written are
+ * never retried; because IDs are fixed up front, a retry of one whose write went
+ * through unseen only hits a duplicate key, and it is then counted as delivered.
+ */
+@Slf4j
+@Component
+public class NotificationDispatcher {
+    private static final int MAX_FLUSH_ATTEMPTS = 4;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final UnreadCounterCache unreadCounterCache;
+    private final NotificationStreamBroker notificationStreamBroker;
+    private final NotificationRetentionService notificationRetentionService;
+    private final BlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Timer batchTimer;
+    private final Timer deliveryDelay;
+    private final Counter delivered;
+    private final Counter spilled;
+    private final Counter replayed;
+    private final Counter failedBatches;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public NotificationDispatcher(
+            MongoTemplate mongoTemplate,
+            OutboxEventRepository outboxEventRepository,
+            UnreadCounterCache unreadCounterCache,
+            NotificationStreamBroker notificationStreamBroker,
+            NotificationRetentionService notificationRetentionService,
+            MeterRegistry meterRegistry,
+            @Value("${notifications.dispatch.queue-capacity:50000}") int queueCapacity,
+            @Value("${notifications.dispatch.batch-size:500}") int batchSize,
+            @Value("${notifications.dispatch.flush-interval-ms:200}") long flushIntervalMillis
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.outboxEventRepository = outboxEventRepository;
+        this.unreadCounterCache = unreadCounterCache;
+        this.notificationStreamBroker = notificationStreamBroker;
+        this.notificationRetentionService = notificationRetentionService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        Gauge.builder("notifications.dispatch.queue.depth", queue, BlockingQueue::size)
+            .description("Notifications waiting to be written")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("notifications.dispatch.batch")
+            .description("Time spent writing one batch of notifications")
+            .register(meterRegistry);
+        this.deliveryDelay = Timer.builder("notifications.dispatch.delay")
+            .description("Time from creating a notification to it being stored")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.delivered = Counter.builder("notifications.dispatch.delivered").register(meterRegistry);
+        this.spilled = Counter.builder("notifications.dispatch.spilled").register(meterRegistry);
+        this.replayed = Counter.builder("notifications.dispatch.replayed").register(meterRegistry);
+        this.failedBatches = Counter.builder("notifications.dispatch.failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = new Thread(this::run, "notification-dispatcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        List<Notification> remaining = new ArrayList<>(batchSize);
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            spillIfAny(write(remaining));
+            remaining.clear();
+        }
+    }
+
+    /**
+     * Queues a notification for delivery without blocking. If the queue is full it is
+     * written to the outbox instead, which is a single small insert.
+     */
+    public void dispatch(Notification notification) {
+        if (notification.getId() == null) {
+            notification.setId(new ObjectId().toHexString());
+        }
+        if (!queue.offer(notification)) {
+            spill(List.of(notification));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.dispatch.replay-interval-ms:5000}")
+    public void replayOutbox() {
+        List<OutboxEvent> due = outboxEventRepository.findTop500ByNextAttemptAtBeforeOrderByNextAttemptAtAsc(
+            LocalDateTime.now());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<Notification> notifications = due.stream().map(OutboxEvent::getNotification).collect(Collectors.toList());
+        Set<Notification> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        failed.addAll(insert(notifications));
+        List<OutboxEvent> done = new ArrayList<>(due.size());
+        List<OutboxEvent> retry = new ArrayList<>(failed.size());
+        for (OutboxEvent event : due) {
+            if (failed.contains(event.getNotification())) {
+                retry.add(event);
+            } else {
+                done.add(event);
+            }
+        }
+        if (!done.isEmpty()) {
+            outboxEventRepository.deleteAll(done);
+            replayed.increment(done.size());
+        }
+        for (OutboxEvent event : retry) {
+            event.setAttempts(event.getAttempts() + 1);
+            long backoffSeconds = Math.min(3_600, 5L << Math.min(event.getAttempts(), 10));
+            event.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoffSeconds));
+        }
+        if (!retry.isEmpty()) {
+            outboxEventRepository.saveAll(retry);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Notification first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                spillIfAny(write(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    spill(batch);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, retrying what failed with backoff. Returns the notifications
+     * still not written after the last attempt.
+     */
+    private List<Notification> write(List<Notification> batch) {
+        List<Notification> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            pending = insert(pending);
+            if (pending.isEmpty()) {
+                return pending;
+            }
+            if (attempt >= MAX_FLUSH_ATTEMPTS) {
+                log.warn("Moving {} notifications to the outbox after {} failed writes", pending.size(), attempt);
+                return pending;
+            }
+            try {
+                Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return pending;
+            }
+        }
+    }
+
+    /**
+     * Inserts the batch unordered and runs the delivery side effects for every
+     * notification that is now stored. Returns the ones that were not written.
+     */
+    private List<Notification> insert(List<Notification> batch) {
+        try {
+            batchTimer.record(() -> mongoTemplate
+                .bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class)
+                .insert(batch)
+                .execute());
+            onDelivered(batch);
+            return List.of();
+        } catch (BulkOperationException e) {
+            // A duplicate was written by an attempt whose outcome was never seen, so its
+            // counter and stream updates have not run yet
+            Set<Integer> failedIndexes = e.getErrors().stream()
+                .filter(error -> error.getCode() != DUPLICATE_KEY)
+                .map(BulkWriteError::getIndex)
+                .collect(Collectors.toSet());
+            List<Notification> written = new ArrayList<>(batch.size());
+            List<Notification> failed = new ArrayList<>(failedIndexes.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (failedIndexes.contains(i)) {
+                    failed.add(batch.get(i));
+                } else {
+                    written.add(batch.get(i));
+                }
+            }
+            onDelivered(written);
+            if (!failed.isEmpty()) {
+                failedBatches.increment();
+                log.error("{} of {} notifications had write errors: {}", failed.size(), batch.size(),
+                    e.getErrors().stream()
+                        .filter(error -> error.getCode() != DUPLICATE_KEY)
+                        .map(BulkWriteError::getMessage)
+                        .distinct()
+                        .collect(Collectors.joining("; ")));
+            }
+            return failed;
+        } catch (Exception e) {
+            failedBatches.increment();
+            log.warn("Failed to write {} notifications", batch.size(), e);
+            return batch;
+        }
+    }
+
+    private void onDelivered(List<Notification> notifications) {
+        delivered.increment(notifications.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (Notification notification : notifications) {
+            deliveryDelay.record(Duration.between(notification.getTimestamp(), now));
+            unreadCounterCache.add(notification.getUserId(), 1);
+            notificationStreamBroker.notificationStored(notification);
+            notificationRetentionService.touch(notification.getUserId());
+        }
+    }
+
+    private void spillIfAny(List<Notification> notifications) {
+        if (!notifications.isEmpty()) {
+            spill(notifications);
+        }
+    }
+
+    private void spill(List<Notification> notifications) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            OutboxEvent event = new OutboxEvent();
+            event.setNotification(notification);
+            event.setCreatedAt(now);
+            event.setNextAttemptAt(now);
+            events.add(event);
+        }
+        try {
+            outboxEventRepository.insert(events);
+            spilled.increment(events.size());
+        } catch (Exception e) {
+            log.error("Lost {} notifications: outbox write failed", events.size(), e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.carrent.service;
+
+import com.carrent.model.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the notifications collection bounded. Read notifications expire through a
+ * TTL index on readAt. A background pass over users who recently received
+ * notifications rolls repeated unread alerts for the same reference into a single
+ * digest and trims each user to a fixed number of notifications, oldest first.
+ * A pass touches a bounded number of users and documents; users with more work
+ * left are picked up again by the next pass, and compaction continues after the
+ * last notification it scanned rather than at the newest one.
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+    private static final String READ_TTL_INDEX = "read_ttl";
+    private static final List<Notification.NotificationType> DIGEST_TYPES = List.of(
+        Notification.NotificationType.GPS_ALERT,
+        Notification.NotificationType.RENTAL_REMINDER
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final UnreadCounterCache unreadCounterCache;
+    private final NotificationStreamBroker notificationStreamBroker;
+    private final Duration readTtl;
+    private final int maxPerUser;
+    private final int batchSize;
+    private final int usersPerPass;
+
+    private final Counter compacted;
+    private final Counter trimmed;
+
+    private final Set<String> pendingUsers = ConcurrentHashMap.newKeySet();
+    // Compaction scans that stopped at a full batch, by user
+    private final Map<String, CompactionScan> compactionScans = new ConcurrentHashMap<>();
+
+    public NotificationRetentionService(
+            MongoTemplate mongoTemplate,
+            UnreadCounterCache unreadCounterCache,
+            NotificationStreamBroker notificationStreamBroker,
+            MeterRegistry meterRegistry,
+            @Value("${notifications.retention.read-ttl:P30D}") Duration readTtl,
+            @Value("${notifications.retention.max-per-user:1000}") int maxPerUser,
+            @Value("${notifications.retention.batch-size:500}") int batchSize,
+            @Value("${notifications.retention.users-per-pass:200}") int usersPerPass
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.unreadCounterCache = unreadCounterCache;
+        this.notificationStreamBroker = notificationStreamBroker;
+        this.readTtl = readTtl;
+        this.maxPerUser = maxPerUser;
+        this.batchSize = batchSize;
+        this.usersPerPass = usersPerPass;
+
+        this.compacted = Counter.builder("notifications.retention.compacted")
+            .description("Unread notifications rolled into a digest")
+            .register(meterRegistry);
+        this.trimmed = Counter.builder("notifications.retention.trimmed")
+            .description("Notifications deleted by the per-user cap")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Schedules a user for the next retention pass. Called whenever a notification
+     * for the user is stored.
+     */
+    public void touch(String userId) {
+        CompactionScan scan = compactionScans.get(userId);
+        if (scan != null) {
+            scan.touched = true;
+        }
+        pendingUsers.add(userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureReadTtlIndex() {
+        Index index = new Index().on("readAt", Sort.Direction.ASC).named(READ_TTL_INDEX).expire(readTtl);
+        try {
+            mongoTemplate.indexOps(Notification.class).ensureIndex(index);
+        } catch (DataAccessException e) {
+            // The index exists with another TTL; change it in place instead of rebuilding it
+            try {
+                mongoTemplate.executeCommand(new Document("collMod", mongoTemplate.getCollectionName(Notification.class))
+                    .append("index", new Document("name", READ_TTL_INDEX)
+                        .append("expireAfterSeconds", readTtl.getSeconds())));
+            } catch (DataAccessException collModFailure) {
+                log.error("Failed to set notification read TTL to {}", readTtl, collModFailure);
+            }
+        }
+        backfillReadAt();
+    }
+
+    /**
+     * Notifications marked read before readAt existed would never expire; they get
+     * their own timestamp as readAt. Matches nothing once done.
+     */
+    private void backfillReadAt() {
+        try {
+            long updated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Notification.class))
+                .updateMany(
+                    new Document("read", true).append("readAt", new Document("$exists", false)),
+                    List.of(new Document("$set", new Document("readAt",
+                        new Document("$ifNull", List.of("$timestamp", "$$NOW"))))))
+                .getModifiedCount();
+            if (updated > 0) {
+                log.info("Set readAt on {} notifications read before it was recorded", updated);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to backfill notification readAt", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.retention.interval-ms:60000}")
+    public void runPass() {
+        int processed = 0;
+        for (Iterator<String> it = pendingUsers.iterator(); it.hasNext() && processed < usersPerPass; processed++) {
+            String userId = it.next();
+            it.remove();
+            try {
+                long unreadRemoved = compact(userId) + trim(userId);
+                if (unreadRemoved > 0) {
+                    unreadCounterCache.add(userId, -unreadRemoved);
+                    notificationStreamBroker.unreadCountChanged(userId);
+                }
+            } catch (Exception e) {
+                log.warn("Notification retention failed for user {}", userId, e);
+                pendingUsers.add(userId);
+            }
+        }
+    }
+
+    public int getPendingUserCount() {
+        return pendingUsers.size();
+    }
+
+    /**
+     * Rolls unread notifications of the digest types that share a type and reference
+     * into the newest of them, one batch per call. A full batch leaves the user
+     * queued with a cursor after its last notification, so the next pass scans the
+     * following batch into the same digests. Returns the number of unread
+     * notifications removed.
+     */
+    private long compact(String userId) {
+        CompactionScan scan = compactionScans.remove(userId);
+        if (scan == null) {
+            scan = new CompactionScan();
+        }
+        Criteria criteria = Criteria.where("userId").is(userId)
+            .and("read").is(false)
+            .and("type").in(DIGEST_TYPES);
+        if (scan.afterId != null) {
+            criteria = criteria.orOperator(
+                Criteria.where("timestamp").lt(scan.afterTimestamp),
+                Criteria.where("timestamp").is(scan.afterTimestamp).and("_id").lt(scan.afterId));
+        }
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.DESC, "timestamp", "_id"))
+            .limit(batchSize);
+        query.fields().include("type", "referenceId", "digestCount", "timestamp");
+        List<Notification> candidates = mongoTemplate.find(query, Notification.class);
+
+        // Newest first, so the first notification seen for a key becomes the digest
+        Map<String, String> digestIdByKey = scan.digestIdByKey;
+        Map<String, Integer> rolledUpByDigestId = new LinkedHashMap<>();
+        List<String> rolledUpIds = new ArrayList<>();
+        for (Notification notification : candidates) {
+            if (notification.getReferenceId() == null) {
+                continue;
+            }
+            String key = notification.getType() + ":" + notification.getReferenceId();
+            String digestId = digestIdByKey.putIfAbsent(key, notification.getId());
+            if (digestId != null) {
+                rolledUpIds.add(notification.getId());
+                rolledUpByDigestId.merge(digestId, 1 + notification.getDigestCount(), Integer::sum);
+            }
+        }
+        if (rolledUpIds.isEmpty()) {
+            park(userId, scan, candidates);
+            return 0;
+        }
+
+        long removed = mongoTemplate.remove(
+            Query.query(Criteria.where("_id").in(rolledUpIds).and("read").is(false)),
+            Notification.class).getDeletedCount();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class);
+        rolledUpByDigestId.forEach((digestId, count) ->
+            bulk.updateOne(Query.query(Criteria.where("_id").is(digestId)), new Update().inc("digestCount", count)));
+        bulk.execute();
+        park(userId, scan, candidates);
+
+        compacted.increment(removed);
+        return removed;
+    }
+
+    // Keeps the scan for the next pass after a full batch; otherwise the scan is done
+    private void park(String userId, CompactionScan scan, List<Notification> candidates) {
+        if (candidates.size() == batchSize) {
+            Notification last = candidates.get(candidates.size() - 1);
+            scan.afterTimestamp = last.getTimestamp();
+            scan.afterId = last.getId();
+            compactionScans.put(userId, scan);
+            pendingUsers.add(userId);
+        } else if (scan.touched) {
+            // Notifications arrived while the scan was parked; start again at the newest
+            pendingUsers.add(userId);
+        }
+    }
+
+    /**
+     * Deletes a batch of the user's notifications beyond the newest maxPerUser.
+     * Returns the number of unread notifications among them.
+     */
+    private long trim(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+            .with(Sort.by(Sort.Direction.DESC, "timestamp", "_id"))
+            .skip(maxPerUser)
+            .limit(batchSize);
+        query.fields().include("read");
+        List<Notification> excess = mongoTemplate.find(query, Notification.class);
+        if (excess.isEmpty()) {
+            return 0;
+        }
+        if (excess.size() == batchSize) {
+            pendingUsers.add(userId);
+        }
+
+        List<String> ids = new ArrayList<>(excess.size());
+        long unread = 0;
+        for (Notification notification : excess) {
+            ids.add(notification.getId());
+            if (!notification.isRead()) {
+                unread++;
+            }
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Notification.class);
+        trimmed.increment(ids.size());
+        return unread;
+    }
+
+    private static final class CompactionScan {
+        private LocalDateTime afterTimestamp;
+        private String afterId;
+        private final Map<String, String> digestIdByKey = new HashMap<>();
+        private volatile boolean touched; // Set by touch() while the scan is parked
+    }
+}
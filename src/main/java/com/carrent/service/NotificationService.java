@@ -1,61 +1,100 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.Notification;
 import com.carrent.repository.NotificationRepository;
+import com.carrent.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
     private final NotificationRepository notificationRepository;
+    private final MongoTemplate mongoTemplate;
+    private final UnreadCounterCache unreadCounterCache;
+    private final NotificationDispatcher notificationDispatcher;
+    private final NotificationStreamBroker notificationStreamBroker;
+    private final NotificationRetentionService notificationRetentionService;
 
     public Notification createNotification(String userId, String title, String message, 
             Notification.NotificationType type, String referenceId) {
-        Notification notification = new Notification();
-        notification.setUserId(userId);
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setType(type);
-        notification.setReferenceId(referenceId);
-        notification.setTimestamp(LocalDateTime.now());
-        notification.setRead(false);
-        
-        return notificationRepository.save(notification);
+        Notification notification = newNotification(userId, title, message, type, referenceId);
+        Notification saved = notificationRepository.save(notification);
+        unreadCounterCache.add(userId, 1);
+        notificationStreamBroker.notificationStored(saved);
+        notificationRetentionService.touch(userId);
+        return saved;
     }
 
     public List<Notification> getUserNotifications(String userId) {
         return notificationRepository.findByUserIdOrderByTimestampDesc(userId);
     }
 
+    public CursorPage<Notification> getUserNotifications(String userId, String cursor, int limit) {
+        PageCursor before = PageCursor.decodeOrNewest(cursor);
+        List<Notification> items = notificationRepository.findPageBefore(userId,
+            before.getTimestamp(), before.getId(),
+            PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "timestamp", "_id")));
+        return PageCursor.page(items, limit, Notification::getTimestamp, Notification::getId);
+    }
+
     public List<Notification> getUnreadNotifications(String userId) {
         return notificationRepository.findByUserIdAndReadOrderByTimestampDesc(userId, false);
     }
 
     public void markAsRead(String notificationId) {
-        notificationRepository.findById(notificationId).ifPresent(notification -> {
-            notification.setRead(true);
-            notificationRepository.save(notification);
-        });
+        // Returns the document as it was before the update, or null if it was already read
+        Notification previous = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(notificationId).and("read").is(false)),
+            Update.update("read", true).currentDate("readAt"),
+            Notification.class);
+        if (previous != null) {
+            unreadCounterCache.add(previous.getUserId(), -1);
+            notificationStreamBroker.unreadCountChanged(previous.getUserId());
+        }
+    }
+
+    /**
+     * Marks the given notifications of a user as read in one update. IDs that belong
+     * to another user are ignored. Returns the number of notifications changed.
+     */
+    public long markAsRead(String userId, Collection<String> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return 0;
+        }
+        long updated = notificationRepository.markReadByIdInAndUserId(notificationIds, userId);
+        onMarkedRead(userId, updated);
+        return updated;
     }
 
-    public void markAllAsRead(String userId) {
-        List<Notification> unreadNotifications = getUnreadNotifications(userId);
-        unreadNotifications.forEach(notification -> {
-            notification.setRead(true);
-            notificationRepository.save(notification);
-        });
+    public long markAllAsRead(String userId) {
+        long updated = notificationRepository.markAllReadByUserId(userId);
+        onMarkedRead(userId, updated);
+        return updated;
+    }
+
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        return notificationStreamBroker.subscribe(userId, lastEventId);
     }
 
     public long getUnreadCount(String userId) {
-        return notificationRepository.countByUserIdAndRead(userId, false);
+        return unreadCounterCache.get(userId);
     }
 
-    // Notification templates
+    // Notification templates, delivered asynchronously so callers only pay for their own write
     public void notifyRentalCreated(String userId, String rentalId, String carDetails) {
-        createNotification(
+        dispatchNotification(
             userId,
             "New Rental Created",
             "Your rental for " + carDetails + " has been confirmed.",
@@ -65,7 +104,7 @@ public class NotificationService {
     }
 
     public void notifyRentalCompleted(String userId, String rentalId, String carDetails) {
-        createNotification(
+        dispatchNotification(
             userId,
             "Rental Completed",
             "Your rental for " + carDetails + " has been completed.",
@@ -75,7 +114,7 @@ public class NotificationService {
     }
 
     public void notifyPaymentReceived(String userId, String amount, String rentalId) {
-        createNotification(
+        dispatchNotification(
             userId,
             "Payment Received",
             "You have received a payment of " + amount + " ETH.",
@@ -85,7 +124,7 @@ public class NotificationService {
     }
 
     public void notifyNewReview(String userId, String carDetails, String rentalId) {
-        createNotification(
+        dispatchNotification(
             userId,
             "New Review Received",
             "You have received a new review for " + carDetails,
@@ -95,7 +134,7 @@ public class NotificationService {
     }
 
     public void notifyRentalReminder(String userId, String rentalId, String carDetails) {
-        createNotification(
+        dispatchNotification(
             userId,
             "Rental Reminder",
             "Your rental for " + carDetails + " is ending soon.",
@@ -105,7 +144,7 @@ public class NotificationService {
     }
 
     public void notifyGpsAlert(String userId, String rentalId, String message) {
-        createNotification(
+        dispatchNotification(
             userId,
             "GPS Alert",
             message,
@@ -113,4 +152,29 @@ public class NotificationService {
             rentalId
         );
     }
+
+    private void onMarkedRead(String userId, long updated) {
+        if (updated > 0) {
+            unreadCounterCache.add(userId, -updated);
+            notificationStreamBroker.unreadCountChanged(userId);
+        }
+    }
+
+    private void dispatchNotification(String userId, String title, String message,
+            Notification.NotificationType type, String referenceId) {
+        notificationDispatcher.dispatch(newNotification(userId, title, message, type, referenceId));
+    }
+
+    private Notification newNotification(String userId, String title, String message,
+            Notification.NotificationType type, String referenceId) {
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setTitle(title);
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setReferenceId(referenceId);
+        notification.setTimestamp(LocalDateTime.now());
+        notification.setRead(false);
+        return notification;
+    }
 }
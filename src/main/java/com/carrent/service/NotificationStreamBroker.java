@@ -0,0 +1,245 @@
+package com.carrent.service;
+
+import com.carrent.model.Notification;
+import com.carrent.repository.NotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes stored notifications and unread-count changes to each user's open SSE
+ * streams. Connections are async servlet responses, so an idle stream holds no
+ * thread; a small sender pool drains subscribers that have something pending.
+ * Each notification event carries its ID, which the browser sends back as
+ * Last-Event-ID on reconnect so missed notifications can be replayed. A subscriber
+ * that falls too far behind gets a single "resync" event instead of its backlog.
+ */
+@Slf4j
+@Component
+public class NotificationStreamBroker {
+    private static final int MAX_PENDING_PER_SUBSCRIBER = 256;
+    private static final int MAX_REPLAY = 100;
+
+    private final NotificationRepository notificationRepository;
+    private final UnreadCounterCache unreadCounterCache;
+    private final Map<String, Set<Subscriber>> subscribersByUserId = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ThreadPoolExecutor sender;
+    private final ScheduledExecutorService heartbeat;
+    private final long timeoutMillis;
+    private final Counter droppedDrains;
+
+    public NotificationStreamBroker(
+            NotificationRepository notificationRepository,
+            UnreadCounterCache unreadCounterCache,
+            MeterRegistry meterRegistry,
+            @Value("${notifications.stream.sender-threads:4}") int senderThreads,
+            @Value("${notifications.stream.sender-queue-capacity:65536}") int senderQueueCapacity,
+            @Value("${notifications.stream.timeout-ms:3600000}") long timeoutMillis,
+            @Value("${notifications.stream.heartbeat-interval-ms:30000}") long heartbeatIntervalMillis
+    ) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounterCache = unreadCounterCache;
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(senderQueueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "notification-stream-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeats,
+            heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+        this.timeoutMillis = timeoutMillis;
+
+        Gauge.builder("notifications.stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+        this.droppedDrains = Counter.builder("notifications.stream.drain.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for a user. With a last-seen notification ID, notifications
+     * stored after it are replayed first; clients should ignore IDs they already have,
+     * since a notification stored during the replay can arrive twice.
+     */
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        subscribersByUserId.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+
+        if (lastEventId != null && !lastEventId.isEmpty()) {
+            List<Notification> missed = notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                userId, lastEventId, PageRequest.of(0, MAX_REPLAY + 1));
+            if (missed.size() > MAX_REPLAY) {
+                subscriber.requestResync();
+            } else {
+                missed.forEach(subscriber::offer);
+            }
+        }
+        subscriber.offerUnreadCount(unreadCounterCache.get(userId));
+        return emitter;
+    }
+
+    public void notificationStored(Notification notification) {
+        Set<Subscriber> subscribers = subscribersByUserId.get(notification.getUserId());
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.offer(notification));
+            unreadCountChanged(notification.getUserId());
+        }
+    }
+
+    public void unreadCountChanged(String userId) {
+        Set<Subscriber> subscribers = subscribersByUserId.get(userId);
+        if (subscribers != null) {
+            long count = unreadCounterCache.get(userId);
+            subscribers.forEach(subscriber -> subscriber.offerUnreadCount(count));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        subscribersByUserId.values().forEach(subscribers ->
+            subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribersByUserId.computeIfPresent(subscriber.userId, (key, subscribers) -> {
+            if (subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private void sendHeartbeats() {
+        subscribersByUserId.values().forEach(subscribers -> subscribers.forEach(Subscriber::requestHeartbeat));
+    }
+
+    private final class Subscriber {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final Queue<Notification> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingSize = new AtomicInteger();
+        // Only the latest count matters; -1 means nothing to send
+        private final AtomicLong pendingUnreadCount = new AtomicLong(-1);
+        private final AtomicBoolean resyncDue = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Notification notification) {
+            if (pendingSize.incrementAndGet() > MAX_PENDING_PER_SUBSCRIBER) {
+                pendingSize.decrementAndGet();
+                requestResync();
+                return;
+            }
+            pending.add(notification);
+            schedule();
+        }
+
+        private void offerUnreadCount(long count) {
+            pendingUnreadCount.set(count);
+            schedule();
+        }
+
+        private void requestResync() {
+            resyncDue.set(true);
+            schedule();
+        }
+
+        private void requestHeartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private boolean hasWork() {
+            return !pending.isEmpty() || pendingUnreadCount.get() >= 0 || resyncDue.get() || heartbeatDue.get();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Pending state is kept; the next offer or heartbeat schedules it again
+                scheduled.set(false);
+                droppedDrains.increment();
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    if (heartbeatDue.getAndSet(false)) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    if (resyncDue.getAndSet(false)) {
+                        // The client refetches its notifications; the backlog is no longer needed
+                        pending.clear();
+                        pendingSize.set(0);
+                        emitter.send(SseEmitter.event().name("resync").data(""));
+                    }
+                    Notification notification;
+                    while ((notification = pending.poll()) != null) {
+                        pendingSize.decrementAndGet();
+                        emitter.send(SseEmitter.event()
+                            .id(notification.getId())
+                            .name("notification")
+                            .data(notification));
+                    }
+                    long count = pendingUnreadCount.getAndSet(-1);
+                    if (count >= 0) {
+                        emitter.send(SseEmitter.event().name("unread-count").data(count));
+                    }
+                    scheduled.set(false);
+                } while (hasWork() && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Closing notification stream of {}: {}", userId, e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
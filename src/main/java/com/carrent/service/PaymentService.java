@@ -1,20 +1,38 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.PaymentHistory;
 import com.carrent.repository.PaymentHistoryRepository;
+import com.carrent.util.LruCache;
+import com.carrent.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
+    // Receipts are polled by hash right after submission, so settled payments are kept at hand
+    private static final int LOOKUP_CACHE_SIZE = 1024;
+    private static final long LOOKUP_CACHE_TTL_MILLIS = 60_000;
+
     private final PaymentHistoryRepository paymentHistoryRepository;
     private final NotificationService notificationService;
     private final BlockchainService blockchainService;
+    private final WalletSummaryService walletSummaryService;
+    private final MongoTemplate mongoTemplate;
+    private final LruCache<String, PaymentHistory> paymentsByHash =
+        new LruCache<>(LOOKUP_CACHE_SIZE, LOOKUP_CACHE_TTL_MILLIS);
 
     public PaymentHistory recordPayment(
             String transactionHash,
@@ -36,7 +54,15 @@ public class PaymentService {
         payment.setTimestamp(LocalDateTime.now());
         payment.setCurrency(currency);
 
-        PaymentHistory savedPayment = paymentHistoryRepository.save(payment);
+        PaymentHistory savedPayment;
+        try {
+            savedPayment = paymentHistoryRepository.save(payment);
+        } catch (DuplicateKeyException e) {
+            // Already recorded, e.g. by a retried request; transaction hashes are unique
+            return paymentHistoryRepository.findByTransactionHash(transactionHash).orElseThrow(() -> e);
+        }
+        walletSummaryService.apply(savedPayment, 1);
+        cacheByHash(savedPayment);
 
         // Notify both parties
         notificationService.notifyPaymentReceived(
@@ -48,46 +74,99 @@ public class PaymentService {
         return savedPayment;
     }
 
-    public List<PaymentHistory> getUserPayments(String address) {
-        List<PaymentHistory> sentPayments = 
-            paymentHistoryRepository.findByFromAddressOrderByTimestampDesc(address);
-        List<PaymentHistory> receivedPayments = 
-            paymentHistoryRepository.findByToAddressOrderByTimestampDesc(address);
-        
-        // Create a new modifiable list and add all payments
-        List<PaymentHistory> allPayments = new ArrayList<>(sentPayments);
-        allPayments.addAll(receivedPayments);
-        allPayments.sort((p1, p2) -> p2.getTimestamp().compareTo(p1.getTimestamp()));
-        
-        return allPayments;
+    public CursorPage<PaymentHistory> getUserPayments(String address, String cursor, int limit) {
+        PageCursor before = PageCursor.decodeOrNewest(cursor);
+        List<PaymentHistory> items = paymentHistoryRepository.findPageByAddressBefore(address,
+            before.getTimestamp(), before.getId(),
+            PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "timestamp", "_id")));
+        return PageCursor.page(items, limit, PaymentHistory::getTimestamp, PaymentHistory::getId);
+    }
+
+    /**
+     * Moves a payment to a new status and keeps the wallet totals in step when it
+     * enters or leaves COMPLETED.
+     */
+    public PaymentHistory updatePaymentStatus(String paymentId, PaymentHistory.PaymentStatus status) {
+        // Returns the document as it was before the update, or null if nothing changed
+        PaymentHistory previous = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(paymentId).and("status").ne(status)),
+            Update.update("status", status),
+            PaymentHistory.class);
+        if (previous == null) {
+            return paymentHistoryRepository.findById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found"));
+        }
+
+        boolean wasCompleted = previous.getStatus() == PaymentHistory.PaymentStatus.COMPLETED;
+        boolean isCompleted = status == PaymentHistory.PaymentStatus.COMPLETED;
+        if (wasCompleted != isCompleted) {
+            walletSummaryService.apply(previous, isCompleted ? 1 : -1);
+        }
+        previous.setStatus(status);
+        cacheByHash(previous);
+        return previous;
     }
 
     public List<PaymentHistory> getRentalPayments(String rentalId) {
         return paymentHistoryRepository.findByRentalId(rentalId);
     }
 
+    /**
+     * Looks a payment up by transaction hash. Only payments past PENDING are cached,
+     * since a pending one may be settled by another instance at any moment. Callers
+     * always get their own copy.
+     */
     public PaymentHistory getPaymentByTransactionHash(String transactionHash) {
-        List<PaymentHistory> payments = paymentHistoryRepository.findByTransactionHash(transactionHash);
-        return payments.isEmpty() ? null : payments.get(0);
+        PaymentHistory cached = paymentsByHash.get(transactionHash);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        PaymentHistory payment = paymentHistoryRepository.findByTransactionHash(transactionHash).orElse(null);
+        if (payment != null) {
+            cacheByHash(payment);
+        }
+        return payment;
+    }
+
+    private void cacheByHash(PaymentHistory payment) {
+        if (payment.getTransactionHash() == null) {
+            return;
+        }
+        if (payment.getStatus() == PaymentHistory.PaymentStatus.PENDING) {
+            paymentsByHash.remove(payment.getTransactionHash());
+        } else {
+            paymentsByHash.put(payment.getTransactionHash(), copyOf(payment));
+        }
+    }
+
+    private static PaymentHistory copyOf(PaymentHistory payment) {
+        PaymentHistory copy = new PaymentHistory();
+        copy.setId(payment.getId());
+        copy.setTransactionHash(payment.getTransactionHash());
+        copy.setFromAddress(payment.getFromAddress());
+        copy.setToAddress(payment.getToAddress());
+        copy.setAmount(payment.getAmount());
+        copy.setRentalId(payment.getRentalId());
+        copy.setType(payment.getType());
+        copy.setStatus(payment.getStatus());
+        copy.setTimestamp(payment.getTimestamp());
+        copy.setCurrency(payment.getCurrency());
+        return copy;
     }
 
     public BigDecimal calculateTotalEarnings(String address) {
-        List<PaymentHistory> receivedPayments = 
-            paymentHistoryRepository.findByToAddressOrderByTimestampDesc(address);
-        
-        return receivedPayments.stream()
-                .filter(p -> p.getStatus() == PaymentHistory.PaymentStatus.COMPLETED)
-                .map(PaymentHistory::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return walletSummaryService.getTotalEarned(address);
     }
 
     public BigDecimal calculateTotalSpent(String address) {
-        List<PaymentHistory> sentPayments = 
-            paymentHistoryRepository.findByFromAddressOrderByTimestampDesc(address);
-        
-        return sentPayments.stream()
-                .filter(p -> p.getStatus() == PaymentHistory.PaymentStatus.COMPLETED)
-                .map(PaymentHistory::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return walletSummaryService.getTotalSpent(address);
+    }
+
+    public Map<String, Object> getWalletSummary(String address) {
+        return walletSummaryService.getSummary(address);
+    }
+
+    public void rebuildWalletSummaries() {
+        walletSummaryService.rebuild();
     }
 }
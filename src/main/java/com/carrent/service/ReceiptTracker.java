@@ -0,0 +1,256 @@
+package com.carrent.service;
+
+import com.carrent.model.PendingTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Waits for receipts of submitted transactions. Each poll reads the blocks mined
+ * since the previous one, with their transaction hashes only, and fetches receipts
+ * just for the tracked hashes found in them, so the cost of a poll follows the
+ * number of new blocks rather than the number of transactions waiting.
+ * <p>
+ * As a fallback every tracked transaction is also checked directly, first right
+ * away and then with exponential backoff, in case it was mined in a block that was
+ * skipped. Gas bumps by {@link TransactionSubmitter} are picked up from
+ * pending_transactions at the same time. All node requests go out as JSON-RPC batches
+ * through {@link BlockchainExecutor}, so each has a timeout and shows up in the
+ * ethereum.io metrics.
+ */
+@Slf4j
+@Service
+public class ReceiptTracker {
+    private final Web3j web3j;
+    private final BlockchainExecutor blockchainExecutor;
+    private final MongoTemplate mongoTemplate;
+    private final long timeoutMillis;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxBlocksPerPoll;
+    private final int batchSize;
+
+    private final Counter timedOut;
+
+    // Every hash of a tracked transaction, including gas bump replacements, to its entry
+    private final Map<String, Tracked> trackedByHash = new ConcurrentHashMap<>();
+    private long lastScannedBlock = -1; // Only touched by the polling thread
+
+    public ReceiptTracker(
+            Web3j web3j,
+            BlockchainExecutor blockchainExecutor,
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${ethereum.receipts.timeout-ms:600000}") long timeoutMillis,
+            @Value("${ethereum.receipts.min-backoff-ms:2000}") long minBackoffMillis,
+            @Value("${ethereum.receipts.max-backoff-ms:60000}") long maxBackoffMillis,
+            @Value("${ethereum.receipts.max-blocks-per-poll:64}") int maxBlocksPerPoll,
+            @Value("${ethereum.receipts.batch-size:100}") int batchSize
+    ) {
+        this.web3j = web3j;
+        this.blockchainExecutor = blockchainExecutor;
+        this.mongoTemplate = mongoTemplate;
+        this.timeoutMillis = timeoutMillis;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxBlocksPerPoll = maxBlocksPerPoll;
+        this.batchSize = batchSize;
+
+        this.timedOut = Counter.builder("ethereum.receipts.timed-out")
+            .description("Transactions given up on without a receipt")
+            .register(meterRegistry);
+        Gauge.builder("ethereum.receipts.pending", this, ReceiptTracker::getPendingCount)
+            .description("Transactions waiting for a receipt")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns a future completed with the receipt of the transaction, or with a
+     * {@link TimeoutException} if none shows up within the timeout. Tracking the same
+     * hash twice returns the same future.
+     */
+    public CompletableFuture<TransactionReceipt> track(String transactionHash) {
+        return trackedByHash.computeIfAbsent(transactionHash,
+            hash -> new Tracked(hash, System.currentTimeMillis() + timeoutMillis, minBackoffMillis)).future;
+    }
+
+    public int getPendingCount() {
+        return (int) trackedByHash.values().stream().distinct().count();
+    }
+
+    @Scheduled(fixedDelayString = "${ethereum.receipts.poll-interval-ms:1000}")
+    public void poll() {
+        if (trackedByHash.isEmpty()) {
+            // Nothing can be waiting in blocks mined while idle; new entries are checked directly first
+            lastScannedBlock = -1;
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Set<Tracked> due = new LinkedHashSet<>();
+            for (Tracked tracked : new HashSet<>(trackedByHash.values())) {
+                if (now >= tracked.deadline) {
+                    timedOut.increment();
+                    finish(tracked, null, new TimeoutException("No receipt for " + tracked.hash
+                        + " after " + timeoutMillis + " ms"));
+                } else if (now >= tracked.nextCheckAt) {
+                    due.add(tracked);
+                }
+            }
+            if (trackedByHash.isEmpty()) {
+                return;
+            }
+
+            Set<String> toFetch = new LinkedHashSet<>(scanNewBlocks(due));
+            if (!due.isEmpty()) {
+                addReplacements(due);
+                for (Tracked tracked : due) {
+                    toFetch.addAll(tracked.hashes);
+                    tracked.nextCheckAt = now + tracked.backoff;
+                    tracked.backoff = Math.min(tracked.backoff * 2, maxBackoffMillis);
+                }
+            }
+            fetchReceipts(toFetch);
+        } catch (Exception e) {
+            log.warn("Receipt poll failed", e);
+        }
+    }
+
+    /**
+     * Returns the tracked hashes included in blocks mined since the last poll. When
+     * too many blocks went by, only the newest are read and every entry is checked
+     * directly instead.
+     */
+    private Set<String> scanNewBlocks(Set<Tracked> due) throws IOException {
+        long head = call("eth_blockNumber", web3j.ethBlockNumber()).getBlockNumber().longValue();
+        long from = lastScannedBlock < 0 ? head : lastScannedBlock + 1;
+        if (head - from + 1 > maxBlocksPerPoll) {
+            from = head - maxBlocksPerPoll + 1;
+            due.addAll(trackedByHash.values());
+        }
+
+        Set<String> found = new HashSet<>();
+        for (long start = from; start <= head; start += batchSize) {
+            BatchRequest batch = web3j.newBatch();
+            for (long number = start; number <= Math.min(head, start + batchSize - 1); number++) {
+                batch.add(web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), false));
+            }
+            for (Response<?> response : blockchainExecutor.await("eth_getBlockByNumber", batch::send).getResponses()) {
+                EthBlock.Block block = ((EthBlock) response).getBlock();
+                if (block == null) {
+                    continue;
+                }
+                for (EthBlock.TransactionResult<?> transaction : block.getTransactions()) {
+                    String hash = (String) transaction.get();
+                    if (trackedByHash.containsKey(hash)) {
+                        found.add(hash);
+                    }
+                }
+            }
+        }
+        lastScannedBlock = head;
+        return found;
+    }
+
+    // Picks up hashes the submitter sent for the same nonce after a gas bump
+    private void addReplacements(Set<Tracked> due) {
+        List<String> hashes = new ArrayList<>();
+        due.forEach(tracked -> hashes.add(tracked.hash));
+        Query query = Query.query(Criteria.where("transactionHashes").in(hashes).and("attempts").gt(1));
+        query.fields().include("transactionHashes");
+        for (PendingTransaction transaction : mongoTemplate.find(query, PendingTransaction.class)) {
+            Tracked tracked = transaction.getTransactionHashes().stream()
+                .map(trackedByHash::get)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+            if (tracked == null) {
+                continue;
+            }
+            for (String hash : transaction.getTransactionHashes()) {
+                if (tracked.hashes.add(hash)) {
+                    trackedByHash.putIfAbsent(hash, tracked);
+                }
+            }
+        }
+    }
+
+    private void fetchReceipts(Collection<String> hashes) throws IOException {
+        List<String> pending = new ArrayList<>(hashes);
+        for (int start = 0; start < pending.size(); start += batchSize) {
+            List<String> chunk = pending.subList(start, Math.min(pending.size(), start + batchSize));
+            BatchRequest batch = web3j.newBatch();
+            chunk.forEach(hash -> batch.add(web3j.ethGetTransactionReceipt(hash)));
+            for (Response<?> response : blockchainExecutor.await("eth_getTransactionReceipt", batch::send)
+                    .getResponses()) {
+                ((EthGetTransactionReceipt) response).getTransactionReceipt().ifPresent(receipt -> {
+                    Tracked tracked = trackedByHash.get(receipt.getTransactionHash());
+                    if (tracked != null) {
+                        finish(tracked, receipt, null);
+                    }
+                });
+            }
+        }
+    }
+
+    private void finish(Tracked tracked, TransactionReceipt receipt, Throwable error) {
+        tracked.hashes.forEach(hash -> trackedByHash.remove(hash, tracked));
+        if (error != null) {
+            tracked.future.completeExceptionally(error);
+        } else {
+            tracked.future.complete(receipt);
+        }
+    }
+
+    private <T extends Response<?>> T call(String operation, Request<?, T> request) throws IOException {
+        T response = blockchainExecutor.await(operation, request::send);
+        if (response.hasError()) {
+            throw new IOException(response.getError().getMessage());
+        }
+        return response;
+    }
+
+    private static final class Tracked {
+        private final String hash;
+        private final Set<String> hashes = ConcurrentHashMap.newKeySet();
+        private final CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        private final long deadline;
+        private long nextCheckAt; // Checked on the first poll
+        private long backoff;
+
+        private Tracked(String hash, long deadline, long backoff) {
+            this.hash = hash;
+            this.deadline = deadline;
+            this.backoff = backoff;
+            this.hashes.add(hash);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.carrent.service;
+
+import com.carrent.model.RecentTrack;
+import com.carrent.util.TrackCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last few minutes of the path of each vehicle on an active rental, kept off-heap.
+ * Every such vehicle owns a fixed-size ring slot inside a direct-memory slab; a
+ * point is 16 bytes (epoch millis plus micro-degree latitude and longitude) and no
+ * object is created per point. Rings are only allocated by {@link #track} when a
+ * rental starts, fixes of other vehicles are ignored, and slots are reused once
+ * the rental ends. Slot bookkeeping lives in primitive arrays sized for the
+ * configured maximum, guarded by striped locks.
+ */
+@Slf4j
+@Component
+public class RecentTrackBuffer {
+    private static final int POINT_BYTES = 16;
+    private static final int SLOTS_PER_SLAB = 4096;
+    private static final int STRIPES = 256;
+    // Approximate on-heap cost per vehicle: map entry, boxed slot, key string and the slot arrays
+    private static final int HEAP_BYTES_PER_VEHICLE = 160;
+
+    private final int capacity;
+    private final int slotBytes;
+    private final int maxVehicles;
+
+    private final Map<String, Integer> slotsByTrackingId = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    private final ByteBuffer[] slabs;
+    private final String[] owners;
+    private final int[] heads;
+    private final int[] counts;
+
+    private final Object allocationLock = new Object();
+    private final int[] freeSlots;
+    private int freeCount;
+    private int nextUnusedSlot;
+    private int allocatedSlabs;
+
+    public RecentTrackBuffer(
+            MeterRegistry meterRegistry,
+            @Value("${gps.recent-track.capacity:120}") int capacity,
+            @Value("${gps.recent-track.max-vehicles:100000}") int maxVehicles
+    ) {
+        this.capacity = capacity;
+        this.slotBytes = capacity * POINT_BYTES;
+        this.maxVehicles = maxVehicles;
+        this.slabs = new ByteBuffer[(maxVehicles + SLOTS_PER_SLAB - 1) / SLOTS_PER_SLAB];
+        this.owners = new String[maxVehicles];
+        this.heads = new int[maxVehicles];
+        this.counts = new int[maxVehicles];
+        this.freeSlots = new int[maxVehicles];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+
+        Gauge.builder("gps.recent-track.vehicles", slotsByTrackingId, Map::size).register(meterRegistry);
+        Gauge.builder("gps.recent-track.offheap.bytes", this, RecentTrackBuffer::getAllocatedBytes)
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Gives the vehicle a ring, unless it has one. Returns false if every slot is taken.
+     */
+    public boolean track(String trackingId) {
+        return slotsByTrackingId.get(trackingId) != null
+            || slotsByTrackingId.computeIfAbsent(trackingId, this::allocate) != null;
+    }
+
+    /**
+     * Appends a fix to the vehicle's ring. Callers pass fixes in time order; returns
+     * false if the vehicle has no ring.
+     */
+    public boolean append(String trackingId, double latitude, double longitude, long epochMillis) {
+        Integer slot = slotsByTrackingId.get(trackingId);
+        if (slot == null) {
+            return false;
+        }
+
+        synchronized (stripe(slot)) {
+            // The slot may have been released and handed to another vehicle meanwhile
+            if (!trackingId.equals(owners[slot])) {
+                return false;
+            }
+            ByteBuffer slab = slabs[slot / SLOTS_PER_SLAB];
+            int offset = (slot % SLOTS_PER_SLAB) * slotBytes + heads[slot] * POINT_BYTES;
+            slab.putLong(offset, epochMillis);
+            slab.putInt(offset + 8, TrackCodec.scale(latitude));
+            slab.putInt(offset + 12, TrackCodec.scale(longitude));
+            heads[slot] = (heads[slot] + 1) % capacity;
+            counts[slot] = Math.min(counts[slot] + 1, capacity);
+        }
+        return true;
+    }
+
+    /**
+     * Copies the points newer than {@code sinceMillis} out of the ring, oldest first.
+     */
+    public Optional<RecentTrack> get(String trackingId, long sinceMillis) {
+        Integer slot = slotsByTrackingId.get(trackingId);
+        if (slot == null) {
+            return Optional.empty();
+        }
+
+        synchronized (stripe(slot)) {
+            if (!trackingId.equals(owners[slot])) {
+                return Optional.empty();
+            }
+            ByteBuffer slab = slabs[slot / SLOTS_PER_SLAB];
+            int base = (slot % SLOTS_PER_SLAB) * slotBytes;
+            int count = counts[slot];
+            int oldest = (heads[slot] - count + capacity) % capacity;
+
+            // Points are in time order, so skip the prefix older than the cutoff
+            int skip = 0;
+            while (skip < count && slab.getLong(base + ((oldest + skip) % capacity) * POINT_BYTES) <= sinceMillis) {
+                skip++;
+            }
+            int size = count - skip;
+            long[] times = new long[size];
+            double[] latitudes = new double[size];
+            double[] longitudes = new double[size];
+            for (int i = 0; i < size; i++) {
+                int offset = base + ((oldest + skip + i) % capacity) * POINT_BYTES;
+                times[i] = slab.getLong(offset);
+                latitudes[i] = slab.getInt(offset + 8) / TrackCodec.COORDINATE_SCALE;
+                longitudes[i] = slab.getInt(offset + 12) / TrackCodec.COORDINATE_SCALE;
+            }
+            return Optional.of(new RecentTrack(trackingId, times, latitudes, longitudes));
+        }
+    }
+
+    public void release(String trackingId) {
+        Integer slot = slotsByTrackingId.remove(trackingId);
+        if (slot == null) {
+            return;
+        }
+        synchronized (stripe(slot)) {
+            owners[slot] = null;
+            heads[slot] = 0;
+            counts[slot] = 0;
+        }
+        synchronized (allocationLock) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Makes the rings match the given tracking IDs: missing ones are allocated and
+     * rings of any other vehicle are released. Used to catch up with rentals started
+     * or ended elsewhere.
+     */
+    public void retainOnly(Set<String> trackingIds) {
+        slotsByTrackingId.keySet().stream()
+            .filter(trackingId -> !trackingIds.contains(trackingId))
+            .forEach(this::release);
+        trackingIds.forEach(this::track);
+    }
+
+    public Map<String, Object> getMemoryStats() {
+        long offHeapPerVehicle = slotBytes;
+        long perVehicle = offHeapPerVehicle + HEAP_BYTES_PER_VEHICLE;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeVehicles", slotsByTrackingId.size());
+        stats.put("maxVehicles", maxVehicles);
+        stats.put("pointsPerVehicle", capacity);
+        stats.put("offHeapBytesPerVehicle", offHeapPerVehicle);
+        stats.put("heapBytesPerVehicle", HEAP_BYTES_PER_VEHICLE);
+        stats.put("allocatedOffHeapBytes", getAllocatedBytes());
+        stats.put("bytesFor100kVehicles", perVehicle * 100_000L);
+        return stats;
+    }
+
+    public long getAllocatedBytes() {
+        synchronized (allocationLock) {
+            return (long) allocatedSlabs * SLOTS_PER_SLAB * slotBytes;
+        }
+    }
+
+    private Integer allocate(String trackingId) {
+        int slot;
+        synchronized (allocationLock) {
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else if (nextUnusedSlot < maxVehicles) {
+                slot = nextUnusedSlot++;
+                int slab = slot / SLOTS_PER_SLAB;
+                if (slabs[slab] == null) {
+                    slabs[slab] = ByteBuffer.allocateDirect(SLOTS_PER_SLAB * slotBytes);
+                    allocatedSlabs++;
+                }
+            } else {
+                log.warn("Recent track buffer is full ({} vehicles), not tracking {}", maxVehicles, trackingId);
+                return null;
+            }
+        }
+        synchronized (stripe(slot)) {
+            owners[slot] = trackingId;
+            heads[slot] = 0;
+            counts[slot] = 0;
+        }
+        return slot;
+    }
+
+    private Object stripe(int slot) {
+        return stripes[slot % STRIPES];
+    }
+}
@@ -1,11 +1,18 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.Rental;
 import com.carrent.repository.RentalRepository;
+import com.carrent.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -13,6 +20,8 @@ public class RentalService {
     private final RentalRepository rentalRepository;
     private final CarService carService;
     private final BlockchainService blockchainService;
+    private final GeofenceService geofenceService;
+    private final GpsTrackingService gpsTrackingService;
 
     public Rental createRental(Rental rental) {
         // Verify car availability and create rental contract on blockchain
@@ -22,13 +31,28 @@ public class RentalService {
         carService.updateCarAvailability(rental.getVinNumber(), false);
         
         // Save rental to MongoDB
-        return rentalRepository.save(rental);
+        if (rental.getStartTime() == null) {
+            rental.setStartTime(LocalDateTime.now());
+        }
+        Rental saved = rentalRepository.save(rental);
+        if (saved.getGpsTrackingId() != null) {
+            gpsTrackingService.startRecentTrack(saved.getGpsTrackingId());
+        }
+        return saved;
     }
 
     public List<Rental> getRentalsByRenter(String renterAddress) {
         return rentalRepository.findByRenterAddress(renterAddress);
     }
 
+    public CursorPage<Rental> getRentalsByRenter(String renterAddress, String cursor, int limit) {
+        PageCursor before = PageCursor.decodeOrNewest(cursor);
+        List<Rental> items = rentalRepository.findPageByRenterAddressBefore(renterAddress,
+            before.getTimestamp(), before.getId(),
+            PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "startTime", "_id")));
+        return PageCursor.page(items, limit, Rental::getStartTime, Rental::getId);
+    }
+
     public Optional<Rental> getActiveRental(String vinNumber) {
         return rentalRepository.findByVinNumberAndIsActive(vinNumber, true);
     }
@@ -43,6 +67,10 @@ public class RentalService {
             // Update rental status
             rental.setActive(false);
             carService.updateCarAvailability(rental.getVinNumber(), true);
+            geofenceService.deleteRentalGeofences(rentalId);
+            if (rental.getGpsTrackingId() != null) {
+                gpsTrackingService.releaseRecentTrack(rental.getGpsTrackingId());
+            }
             return rentalRepository.save(rental);
         }
         throw new RuntimeException("Rental not found");
@@ -51,4 +79,16 @@ public class RentalService {
     public List<Rental> getActiveRentals() {
         return rentalRepository.findByIsActive(true);
     }
+
+    /**
+     * Keeps recent-track rings for exactly the cars on an active rental, picking up
+     * rentals started or ended on other instances or by the contract indexer, and
+     * restoring the rings after a restart.
+     */
+    @Scheduled(fixedDelayString = "${gps.recent-track.sync-interval-ms:60000}")
+    public void syncRecentTracks() {
+        gpsTrackingService.retainRecentTracks(rentalRepository.findActiveTrackingIds().stream()
+            .map(Rental::getGpsTrackingId)
+            .collect(Collectors.toSet()));
+    }
 }
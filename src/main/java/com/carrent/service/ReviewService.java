@@ -1,8 +1,13 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.Review;
 import com.carrent.repository.ReviewRepository;
+import com.carrent.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -37,6 +42,20 @@ public class ReviewService {
         return reviewRepository.findByReviewerId(reviewerId);
     }
 
+    public CursorPage<Review> getCarReviews(String vinNumber, String cursor, int limit) {
+        PageCursor before = PageCursor.decodeOrNewest(cursor);
+        List<Review> items = reviewRepository.findPageByVinNumberBefore(vinNumber,
+            before.getTimestamp(), before.getId(), newestFirst(limit));
+        return PageCursor.page(items, limit, Review::getTimestamp, Review::getId);
+    }
+
+    public CursorPage<Review> getUserReviews(String reviewerId, String cursor, int limit) {
+        PageCursor before = PageCursor.decodeOrNewest(cursor);
+        List<Review> items = reviewRepository.findPageByReviewerIdBefore(reviewerId,
+            before.getTimestamp(), before.getId(), newestFirst(limit));
+        return PageCursor.page(items, limit, Review::getTimestamp, Review::getId);
+    }
+
     public List<Review> getRentalReviews(String rentalId) {
         return reviewRepository.findByRentalId(rentalId);
     }
@@ -49,4 +68,8 @@ public class ReviewService {
         return reviewRepository.findByRentalId(rentalId).stream()
                 .anyMatch(review -> review.getReviewerId().equals(reviewerId));
     }
+
+    private static Pageable newestFirst(int limit) {
+        return PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "timestamp", "_id"));
+    }
 }
@@ -0,0 +1,80 @@
+package com.carrent.service;
+
+import com.carrent.model.TelematicsDevice;
+import com.carrent.repository.TelematicsDeviceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps the small integer device indexes used in binary telematics frames to
+ * tracking IDs. Lookups read a plain array so the listener's hot path does no
+ * hashing or allocation; registrations replace the array.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TelematicsDeviceRegistry {
+    private static final int MAX_REGISTRATION_ATTEMPTS = 3;
+
+    private final TelematicsDeviceRepository telematicsDeviceRepository;
+
+    private volatile String[] trackingIds = new String[0];
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        List<TelematicsDevice> devices = telematicsDeviceRepository.findAll();
+        int size = devices.stream().mapToInt(TelematicsDevice::getDeviceIndex).max().orElse(-1) + 1;
+        String[] loaded = new String[size];
+        devices.forEach(device -> loaded[device.getDeviceIndex()] = device.getTrackingId());
+        trackingIds = loaded;
+        log.info("Loaded {} telematics devices", devices.size());
+    }
+
+    public String getTrackingId(int deviceIndex) {
+        String[] current = trackingIds;
+        return deviceIndex >= 0 && deviceIndex < current.length ? current[deviceIndex] : null;
+    }
+
+    /**
+     * Returns the device index for a tracking ID, assigning the next free one if the
+     * device is new. Unique indexes on both fields keep concurrent registrations
+     * from different instances apart.
+     */
+    public synchronized int register(String trackingId) {
+        for (int attempt = 1; ; attempt++) {
+            TelematicsDevice existing = telematicsDeviceRepository.findByTrackingId(trackingId).orElse(null);
+            if (existing != null) {
+                remember(existing);
+                return existing.getDeviceIndex();
+            }
+
+            TelematicsDevice device = new TelematicsDevice();
+            device.setTrackingId(trackingId);
+            device.setDeviceIndex(telematicsDeviceRepository.findFirstByOrderByDeviceIndexDesc()
+                .map(last -> last.getDeviceIndex() + 1)
+                .orElse(0));
+            try {
+                TelematicsDevice saved = telematicsDeviceRepository.save(device);
+                remember(saved);
+                return saved.getDeviceIndex();
+            } catch (DuplicateKeyException e) {
+                if (attempt == MAX_REGISTRATION_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void remember(TelematicsDevice device) {
+        String[] current = trackingIds;
+        String[] updated = Arrays.copyOf(current, Math.max(current.length, device.getDeviceIndex() + 1));
+        updated[device.getDeviceIndex()] = device.getTrackingId();
+        trackingIds = updated;
+    }
+}
@@ -0,0 +1,318 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.util.DirectBufferPool;
+import com.carrent.util.TelematicsFrameCodec;
+import com.carrent.util.TimeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Binary GPS ingestion for in-car units, bypassing HTTP and JWT. Accepts
+ * {@link TelematicsFrameCodec} frames over TCP (a stream of frames per connection)
+ * and UDP (one or more whole frames per datagram) on a single selector thread.
+ * Each TCP connection borrows a direct buffer from a fixed pool for its lifetime;
+ * frames are decoded in place and queued for an ingest thread that feeds them to
+ * {@link GpsTrackingService#ingestLocation}, so slow storage or geofence checks
+ * never hold up the selector. Frames that find the queue full are dropped and
+ * counted. A failure on one channel closes that connection only; the listener
+ * keeps selecting.
+ * Only devices registered in {@link TelematicsDeviceRegistry} are accepted, so the
+ * ports should still be limited to the carrier's network.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "telematics.listener.enabled", havingValue = "true")
+public class TelematicsListener {
+    private final GpsTrackingService gpsTrackingService;
+    private final TelematicsDeviceRegistry telematicsDeviceRegistry;
+    private final String bindAddress;
+    private final int tcpPort;
+    private final int udpPort;
+    private final DirectBufferPool bufferPool;
+    private final BlockingQueue<GpsLocation> ingestQueue;
+
+    private final Counter acceptedFrames;
+    private final Counter unknownDeviceFrames;
+    private final Counter invalidFrames;
+    private final Counter rejectedFrames;
+    private final Counter refusedConnections;
+    private final Counter droppedFrames;
+    private final Counter errors;
+
+    // Held in a field so decoding does not capture a new lambda per read
+    private final TelematicsFrameCodec.FrameSink frameSink = this::onFrame;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private DatagramChannel datagramChannel;
+    private ByteBuffer datagramBuffer;
+    private volatile boolean running;
+    private Thread selectorThread;
+    private Thread ingestThread;
+    private long acceptResumeAt; // Selector thread only; 0 while accepting
+
+    public TelematicsListener(
+            GpsTrackingService gpsTrackingService,
+            TelematicsDeviceRegistry telematicsDeviceRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${telematics.listener.bind-address:0.0.0.0}") String bindAddress,
+            @Value("${telematics.listener.tcp-port:5050}") int tcpPort,
+            @Value("${telematics.listener.udp-port:5051}") int udpPort,
+            @Value("${telematics.listener.max-connections:10000}") int maxConnections,
+            @Value("${telematics.listener.buffer-size:4096}") int bufferSize,
+            @Value("${telematics.listener.ingest-queue-capacity:50000}") int ingestQueueCapacity
+    ) {
+        this.gpsTrackingService = gpsTrackingService;
+        this.telematicsDeviceRegistry = telematicsDeviceRegistry;
+        this.bindAddress = bindAddress;
+        this.tcpPort = tcpPort;
+        this.udpPort = udpPort;
+        // One buffer per TCP connection plus one for UDP
+        this.bufferPool = new DirectBufferPool(maxConnections + 1, bufferSize);
+        this.ingestQueue = new ArrayBlockingQueue<>(ingestQueueCapacity);
+
+        this.acceptedFrames = Counter.builder("telematics.frames.accepted").register(meterRegistry);
+        this.unknownDeviceFrames = Counter.builder("telematics.frames.unknown-device").register(meterRegistry);
+        this.invalidFrames = Counter.builder("telematics.frames.invalid").register(meterRegistry);
+        this.rejectedFrames = Counter.builder("telematics.frames.rejected").register(meterRegistry);
+        this.refusedConnections = Counter.builder("telematics.connections.refused").register(meterRegistry);
+        this.droppedFrames = Counter.builder("telematics.frames.dropped").register(meterRegistry);
+        this.errors = Counter.builder("telematics.errors").register(meterRegistry);
+        Gauge.builder("telematics.ingest.queue.depth", ingestQueue, BlockingQueue::size)
+            .description("Decoded frames waiting to be ingested")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        selector = Selector.open();
+        if (tcpPort > 0) {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(bindAddress, tcpPort), 1024);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        if (udpPort > 0) {
+            datagramChannel = DatagramChannel.open();
+            datagramChannel.bind(new InetSocketAddress(bindAddress, udpPort));
+            datagramChannel.configureBlocking(false);
+            datagramChannel.register(selector, SelectionKey.OP_READ);
+            datagramBuffer = bufferPool.acquire();
+        }
+
+        running = true;
+        ingestThread = new Thread(this::ingest, "telematics-ingest");
+        ingestThread.setDaemon(true);
+        ingestThread.start();
+        selectorThread = new Thread(this::run, "telematics-listener");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        log.info("Telematics listener started on {} (tcp {}, udp {})", bindAddress, tcpPort, udpPort);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        selectorThread.join(5_000);
+        ingestThread.interrupt();
+        ingestThread.join(5_000);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(1_000);
+                resumeAccepting();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.channel() == datagramChannel) {
+                            receiveDatagrams();
+                        } else {
+                            readStream(key);
+                        }
+                    } catch (Exception e) {
+                        onKeyFailure(key, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Telematics listener stopped", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Keeps the listener alive after a failure on one key. A broken connection is
+     * closed; the server and datagram channels stay open, since errors such as
+     * running out of file descriptors usually pass.
+     */
+    private void onKeyFailure(SelectionKey key, Exception e) {
+        errors.increment();
+        if (key.channel() == serverChannel) {
+            // Stop accepting for a moment instead of spinning on a key that stays ready
+            log.warn("Accepting telematics connections failed, pausing for a second", e);
+            key.interestOps(0);
+            acceptResumeAt = System.currentTimeMillis() + 1_000;
+        } else if (key.channel() == datagramChannel) {
+            log.warn("Receiving telematics datagrams failed, continuing", e);
+        } else {
+            log.debug("Closing telematics connection after failure", e);
+            close(key);
+        }
+    }
+
+    private void resumeAccepting() {
+        if (acceptResumeAt > 0 && System.currentTimeMillis() >= acceptResumeAt) {
+            acceptResumeAt = 0;
+            serverChannel.keyFor(selector).interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void ingest() {
+        while (running || !ingestQueue.isEmpty()) {
+            GpsLocation location;
+            try {
+                location = ingestQueue.take();
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+                continue;
+            }
+            try {
+                if (gpsTrackingService.ingestLocation(location)) {
+                    acceptedFrames.increment();
+                } else {
+                    rejectedFrames.increment();
+                }
+            } catch (RuntimeException e) {
+                errors.increment();
+                log.warn("Failed to ingest telematics fix of {}", location.getTrackingId(), e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            ByteBuffer buffer = bufferPool.acquire();
+            if (buffer == null) {
+                refusedConnections.increment();
+                channel.close();
+                continue;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, buffer);
+            } catch (IOException e) {
+                bufferPool.release(buffer);
+                channel.close();
+                throw e;
+            }
+        }
+    }
+
+    private void readStream(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        try {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                close(key);
+                return;
+            }
+            buffer.flip();
+            TelematicsFrameCodec.decode(buffer, frameSink);
+            buffer.compact();
+        } catch (IOException e) {
+            log.debug("Closing telematics connection: {}", e.getMessage());
+            close(key);
+        }
+    }
+
+    private void receiveDatagrams() throws IOException {
+        ByteBuffer buffer = datagramBuffer;
+        while (true) {
+            buffer.clear();
+            if (datagramChannel.receive(buffer) == null) {
+                return;
+            }
+            buffer.flip();
+            TelematicsFrameCodec.decode(buffer, frameSink);
+            if (buffer.hasRemaining()) {
+                // Datagrams must carry whole frames; the tail can't be completed later
+                invalidFrames.increment();
+            }
+        }
+    }
+
+    private void onFrame(int deviceIndex, double latitude, double longitude, long epochMillis) {
+        String trackingId = telematicsDeviceRegistry.getTrackingId(deviceIndex);
+        if (trackingId == null) {
+            unknownDeviceFrames.increment();
+            return;
+        }
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180 || epochMillis <= 0) {
+            invalidFrames.increment();
+            return;
+        }
+
+        GpsLocation location = new GpsLocation();
+        location.setTrackingId(trackingId);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setTimestamp(TimeUtils.fromEpochMillis(epochMillis));
+        if (!ingestQueue.offer(location)) {
+            droppedFrames.increment();
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        bufferPool.release((ByteBuffer) key.attachment());
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Failed to close telematics connection", e);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Failed to close telematics selector", e);
+        }
+    }
+}
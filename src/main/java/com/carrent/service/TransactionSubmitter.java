@@ -0,0 +1,510 @@
+package com.carrent.service;
+
+import com.carrent.model.PendingTransaction;
+import com.carrent.repository.PendingTransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.utils.Numeric;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends transactions from the service wallet without waiting on the node for each
+ * one. Nonces are handed out locally, transactions are signed offline and every
+ * nonce is recorded in pending_transactions before it is broadcast, so many
+ * transactions can be in flight at once and survive a restart.
+ * <p>
+ * A periodic sweep marks mined nonces confirmed, rebroadcasts transactions that have
+ * been pending too long with a higher gas price, and fills nonces that never made it
+ * to the node with empty self-transfers so the ones after them can be mined.
+ */
+@Slf4j
+@Service
+public class TransactionSubmitter {
+    private static final BigInteger FILLER_GAS_LIMIT = BigInteger.valueOf(21_000);
+    // Nodes reject replacements that raise the gas price by less than 10%
+    private static final BigInteger GAS_BUMP_PERCENT = BigInteger.valueOf(125);
+    private static final BigInteger HUNDRED = BigInteger.valueOf(100);
+    private static final int SWEEP_BATCH_SIZE = 100;
+    // Nonces from the lowest unmined one that may be re-priced; later ones wait for them
+    private static final int BUMP_WINDOW = 4;
+
+    private final Web3j web3j;
+    private final BlockchainExecutor blockchainExecutor;
+    private final Credentials credentials;
+    private final PendingTransactionRepository pendingTransactionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final BigInteger gasPrice;
+    private final BigInteger maxGasPrice;
+    private final BigInteger gasLimit;
+    private final long stuckAfterMillis;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    private final Counter submitted;
+    private final Counter replaced;
+    private final Counter gapsFilled;
+    private final Counter rejected;
+
+    private final Object nonceLock = new Object();
+    private long nextNonce = -1; // Guarded by nonceLock, -1 until read from the chain
+    private volatile long chainId;
+    // Nonces handed out whose record is not written yet; the sweep must not fill them
+    private final Set<Long> unrecordedNonces = ConcurrentHashMap.newKeySet();
+
+    public TransactionSubmitter(
+            Web3j web3j,
+            BlockchainExecutor blockchainExecutor,
+            Credentials credentials,
+            PendingTransactionRepository pendingTransactionRepository,
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${ethereum.chain-id:0}") long chainId,
+            @Value("${ethereum.transactions.gas-price-wei:20000000000}") BigInteger gasPrice,
+            @Value("${ethereum.transactions.max-gas-price-wei:200000000000}") BigInteger maxGasPrice,
+            @Value("${ethereum.transactions.gas-limit:6721975}") BigInteger gasLimit,
+            @Value("${ethereum.transactions.max-in-flight:256}") int maxInFlight,
+            @Value("${ethereum.transactions.stuck-after-ms:60000}") long stuckAfterMillis
+    ) {
+        this.web3j = web3j;
+        this.blockchainExecutor = blockchainExecutor;
+        this.credentials = credentials;
+        this.pendingTransactionRepository = pendingTransactionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.chainId = chainId;
+        this.gasPrice = gasPrice;
+        this.maxGasPrice = maxGasPrice;
+        this.gasLimit = gasLimit;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.stuckAfterMillis = stuckAfterMillis;
+
+        this.submitted = Counter.builder("ethereum.transactions.submitted")
+            .description("Transactions accepted by the node")
+            .register(meterRegistry);
+        this.replaced = Counter.builder("ethereum.transactions.replaced")
+            .description("Pending transactions rebroadcast with a higher gas price")
+            .register(meterRegistry);
+        this.gapsFilled = Counter.builder("ethereum.transactions.gaps-filled")
+            .description("Unused nonces filled with an empty self-transfer")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("ethereum.transactions.rejected")
+            .description("Transactions the node refused")
+            .register(meterRegistry);
+        Gauge.builder("ethereum.transactions.in-flight", inFlight, s -> maxInFlight - s.availablePermits())
+            .description("Transactions handed to the node whose broadcast has not completed")
+            .register(meterRegistry);
+    }
+
+    public String getAddress() {
+        return credentials.getAddress();
+    }
+
+    /**
+     * Signs the call with the next local nonce and broadcasts it. The future completes
+     * with the transaction hash once the node has it; if the node cannot be reached,
+     * or the call times out after the transaction was recorded, the transaction stays
+     * recorded and the sweep keeps rebroadcasting it. A call that times out before
+     * that fails, and its nonce is only ever used by a filler. A gas bump later gives
+     * the nonce a new hash, so look receipts up by every hash in
+     * {@link PendingTransaction#getTransactionHashes()}.
+     */
+    public CompletableFuture<String> submit(String to, String data, BigInteger value) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        Attempt attempt = new Attempt();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        blockchainExecutor.submit("eth_sendRawTransaction", () -> send(to, data, value, attempt))
+            .whenComplete((hash, error) -> {
+                inFlight.release();
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (error == null) {
+                    result.complete(hash);
+                } else if (cause instanceof TimeoutException || cause instanceof CancellationException) {
+                    // Once recorded the transaction will be mined, so the caller must not retry it
+                    String recorded = attempt.abandon();
+                    if (recorded != null) {
+                        result.complete(recorded);
+                    } else {
+                        result.completeExceptionally(cause);
+                    }
+                } else {
+                    result.completeExceptionally(cause);
+                }
+            });
+        return result;
+    }
+
+    private String send(String to, String data, BigInteger value, Attempt attempt) {
+        long nonce = allocateNonce();
+        Signed signed;
+        try {
+            signed = record(nonce, to, data, value, gasPrice, gasLimit, false);
+        } catch (RuntimeException e) {
+            if (attempt.isAbandoned()) {
+                // An interrupted insert may still have been written
+                Thread.interrupted();
+                fillIfRecorded(nonce);
+            }
+            throw e;
+        }
+        PendingTransaction transaction = signed.transaction;
+        if (!attempt.recorded(transaction.getTransactionHash())) {
+            // The caller already saw a failure, so the call itself must never be mined
+            Thread.interrupted();
+            replaceWithFiller(transaction, "Submission timed out before broadcast");
+            throw new CancellationException("Submission timed out before broadcast");
+        }
+
+        EthSendTransaction response;
+        try {
+            response = web3j.ethSendRawTransaction(signed.raw).send();
+        } catch (IOException e) {
+            log.warn("Broadcast of nonce {} failed, leaving it to the sweep", transaction.getNonce(), e);
+            return transaction.getTransactionHash();
+        }
+        if (!response.hasError() || isAlreadyKnown(response.getError())) {
+            submitted.increment();
+            return transaction.getTransactionHash();
+        }
+
+        String message = response.getError().getMessage();
+        if (isNonceTaken(message)) {
+            // Something outside this submitter used the nonce; give up the record and move on
+            log.warn("Nonce {} is already used ({}), resubmitting with a new nonce", transaction.getNonce(), message);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(transaction.getId())), PendingTransaction.class);
+            resyncNonce();
+            return send(to, data, value, attempt.retry());
+        }
+
+        rejected.increment();
+        log.warn("Transaction with nonce {} rejected: {}", transaction.getNonce(), message);
+        // Later nonces are already in flight, so the rejected one must still be used up
+        replaceWithFiller(transaction, message);
+        throw new IllegalStateException("Transaction rejected: " + message);
+    }
+
+    /**
+     * Confirms mined nonces, fills nonce gaps and bumps the gas price of the lowest
+     * pending transactions once they are pending longer than the stuck threshold.
+     * Each step handles a bounded batch; the rest is left to the next sweep.
+     */
+    @Scheduled(fixedDelayString = "${ethereum.transactions.sweep-interval-ms:15000}")
+    public void sweep() {
+        try {
+            long limit;
+            synchronized (nonceLock) {
+                ensureInitialized();
+                limit = nextNonce;
+            }
+            // Copied before reading the records: a nonce not in here was recorded before the query
+            Set<Long> unrecorded = new HashSet<>(unrecordedNonces);
+
+            long minedCount = call(web3j.ethGetTransactionCount(getAddress(), DefaultBlockParameterName.LATEST))
+                .getTransactionCount().longValue();
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("fromAddress").is(getAddress())
+                    .and("status").is(PendingTransaction.Status.PENDING)
+                    .and("nonce").lt(minedCount)),
+                new Update().set("status", PendingTransaction.Status.CONFIRMED).set("confirmedAt", LocalDateTime.now()),
+                PendingTransaction.class);
+
+            List<PendingTransaction> pending = pendingTransactionRepository
+                .findByFromAddressAndStatusOrderByNonceAsc(getAddress(), PendingTransaction.Status.PENDING);
+            fillGaps(minedCount, limit, pending, unrecorded);
+            bumpStuck(minedCount, pending);
+        } catch (Exception e) {
+            log.warn("Pending transaction sweep failed", e);
+        }
+    }
+
+    private void fillGaps(long minedCount, long limit, List<PendingTransaction> pending, Set<Long> unrecorded) {
+        Set<Long> recorded = new HashSet<>();
+        pending.forEach(transaction -> recorded.add(transaction.getNonce()));
+        int filled = 0;
+        for (long nonce = minedCount; nonce < limit && filled < SWEEP_BATCH_SIZE; nonce++) {
+            if (recorded.contains(nonce) || unrecorded.contains(nonce)) {
+                continue;
+            }
+            try {
+                Signed signed = record(nonce, getAddress(), "", BigInteger.ZERO, gasPrice, FILLER_GAS_LIMIT, true);
+                broadcast(signed);
+                gapsFilled.increment();
+                filled++;
+            } catch (DuplicateKeyException e) {
+                // Recorded after the records were read
+            }
+        }
+        if (filled > 0) {
+            log.info("Filled {} nonce gaps from {}", filled, minedCount);
+        }
+    }
+
+    /**
+     * Re-prices stuck transactions among the lowest pending nonces only. Everything
+     * after them waits for them anyway, so bumping those too would only spend gas
+     * and flood the node with replacements.
+     */
+    private void bumpStuck(long minedCount, List<PendingTransaction> pending) throws IOException {
+        LocalDateTime stuckBefore = LocalDateTime.now().minus(stuckAfterMillis, ChronoUnit.MILLIS);
+        BigInteger networkGasPrice = null;
+        for (PendingTransaction transaction : pending) {
+            if (transaction.getNonce() >= minedCount + BUMP_WINDOW) {
+                break; // Ordered by nonce
+            }
+            if (transaction.getLastSentAt() != null && transaction.getLastSentAt().isAfter(stuckBefore)) {
+                continue;
+            }
+            if (networkGasPrice == null) {
+                networkGasPrice = call(web3j.ethGasPrice()).getGasPrice();
+            }
+            BigInteger price = transaction.getGasPrice().multiply(GAS_BUMP_PERCENT).divide(HUNDRED)
+                .max(networkGasPrice)
+                .min(maxGasPrice);
+            if (price.compareTo(transaction.getGasPrice()) > 0) {
+                transaction.setGasPrice(price);
+                replaced.increment();
+            }
+            // At the cap the same bytes are rebroadcast, in case the node dropped them
+            String raw = sign(transaction);
+            String hash = Hash.sha3(raw);
+            Update update = new Update()
+                .set("gasPrice", transaction.getGasPrice())
+                .set("transactionHash", hash)
+                .set("lastSentAt", LocalDateTime.now())
+                .inc("attempts", 1);
+            if (!transaction.getTransactionHashes().contains(hash)) {
+                update.push("transactionHashes", hash);
+            }
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(transaction.getId())
+                .and("status").is(PendingTransaction.Status.PENDING)), update, PendingTransaction.class);
+            transaction.setTransactionHash(hash);
+            broadcast(new Signed(transaction, raw));
+        }
+    }
+
+    private long allocateNonce() {
+        synchronized (nonceLock) {
+            ensureInitialized();
+            long nonce = nextNonce++;
+            unrecordedNonces.add(nonce);
+            return nonce;
+        }
+    }
+
+    // Caller holds nonceLock
+    private void ensureInitialized() {
+        if (nextNonce < 0) {
+            if (chainId <= 0) {
+                chainId = callUnchecked(web3j.ethChainId()).getChainId().longValue();
+            }
+            nextNonce = Math.max(chainNonce(), recordedNonce());
+            log.info("Submitting transactions from {} on chain {} starting at nonce {}", getAddress(), chainId, nextNonce);
+        }
+    }
+
+    private void resyncNonce() {
+        synchronized (nonceLock) {
+            nextNonce = Math.max(nextNonce, chainNonce());
+        }
+    }
+
+    private long chainNonce() {
+        return callUnchecked(web3j.ethGetTransactionCount(getAddress(), DefaultBlockParameterName.PENDING))
+            .getTransactionCount().longValue();
+    }
+
+    private long recordedNonce() {
+        return pendingTransactionRepository.findFirstByFromAddressOrderByNonceDesc(getAddress())
+            .map(transaction -> transaction.getNonce() + 1)
+            .orElse(0L);
+    }
+
+    private Signed record(long nonce, String to, String data, BigInteger value, BigInteger price, BigInteger limit,
+                          boolean filler) {
+        try {
+            PendingTransaction transaction = new PendingTransaction();
+            transaction.setFromAddress(getAddress());
+            transaction.setNonce(nonce);
+            transaction.setToAddress(to);
+            transaction.setData(data);
+            transaction.setValue(value);
+            transaction.setGasPrice(price);
+            transaction.setGasLimit(limit);
+            transaction.setFiller(filler);
+            transaction.setStatus(PendingTransaction.Status.PENDING);
+            transaction.setAttempts(1);
+            transaction.setCreatedAt(LocalDateTime.now());
+            transaction.setLastSentAt(transaction.getCreatedAt());
+
+            String raw = sign(transaction);
+            transaction.setTransactionHash(Hash.sha3(raw));
+            transaction.getTransactionHashes().add(transaction.getTransactionHash());
+            return new Signed(pendingTransactionRepository.insert(transaction), raw);
+        } finally {
+            unrecordedNonces.remove(nonce);
+        }
+    }
+
+    private void fillIfRecorded(long nonce) {
+        try {
+            PendingTransaction transaction = mongoTemplate.findOne(Query.query(Criteria.where("fromAddress").is(getAddress())
+                .and("nonce").is(nonce)
+                .and("filler").is(false)), PendingTransaction.class);
+            if (transaction != null) {
+                replaceWithFiller(transaction, "Submission timed out before broadcast");
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to check abandoned nonce {}, the sweep may broadcast it", nonce, e);
+        }
+    }
+
+    private void replaceWithFiller(PendingTransaction transaction, String reason) {
+        try {
+            transaction.setFiller(true);
+            transaction.setFailureReason(reason);
+            transaction.setToAddress(getAddress());
+            transaction.setData("");
+            transaction.setValue(BigInteger.ZERO);
+            transaction.setGasLimit(FILLER_GAS_LIMIT);
+            String raw = sign(transaction);
+            transaction.setTransactionHash(Hash.sha3(raw));
+            transaction.getTransactionHashes().add(transaction.getTransactionHash());
+            transaction.setLastSentAt(LocalDateTime.now());
+            pendingTransactionRepository.save(transaction);
+            broadcast(new Signed(transaction, raw));
+        } catch (RuntimeException e) {
+            log.error("Failed to fill rejected nonce {}, the sweep will retry", transaction.getNonce(), e);
+        }
+    }
+
+    // Fire and forget; failures are picked up by the next sweep
+    private void broadcast(Signed signed) {
+        blockchainExecutor.submit("eth_sendRawTransaction", () -> web3j.ethSendRawTransaction(signed.raw).send())
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    log.warn("Rebroadcast of nonce {} failed", signed.transaction.getNonce(), error);
+                } else if (response.hasError() && !isAlreadyKnown(response.getError())) {
+                    log.warn("Rebroadcast of nonce {} rejected: {}", signed.transaction.getNonce(),
+                        response.getError().getMessage());
+                }
+            });
+    }
+
+    private String sign(PendingTransaction transaction) {
+        RawTransaction raw = RawTransaction.createTransaction(
+            BigInteger.valueOf(transaction.getNonce()),
+            transaction.getGasPrice(),
+            transaction.getGasLimit(),
+            transaction.getToAddress(),
+            transaction.getValue(),
+            transaction.getData()
+        );
+        return Numeric.toHexString(TransactionEncoder.signMessage(raw, chainId, credentials));
+    }
+
+    private static <T extends Response<?>> T call(Request<?, T> request) throws IOException {
+        T response = request.send();
+        if (response.hasError()) {
+            throw new IOException(response.getError().getMessage());
+        }
+        return response;
+    }
+
+    private static <T extends Response<?>> T callUnchecked(Request<?, T> request) {
+        try {
+            return call(request);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ethereum node request failed", e);
+        }
+    }
+
+    private static boolean isAlreadyKnown(Response.Error error) {
+        String message = error.getMessage() != null ? error.getMessage().toLowerCase() : "";
+        return message.contains("already known") || message.contains("already imported");
+    }
+
+    private static boolean isNonceTaken(String message) {
+        String lower = message != null ? message.toLowerCase() : "";
+        return lower.contains("nonce too low") || lower.contains("replacement transaction underpriced");
+    }
+
+    /**
+     * Decides, for one submit call, whether a timeout or the record came first.
+     */
+    private static final class Attempt {
+        private String recordedHash;
+        private boolean abandoned;
+
+        private synchronized boolean recorded(String hash) {
+            if (abandoned) {
+                return false;
+            }
+            recordedHash = hash;
+            return true;
+        }
+
+        // Returns the recorded hash, or null if nothing was recorded yet and nothing will be
+        private synchronized String abandon() {
+            if (recordedHash == null) {
+                abandoned = true;
+            }
+            return recordedHash;
+        }
+
+        private synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        // The previous record was removed; a new one starts over
+        private synchronized Attempt retry() {
+            recordedHash = null;
+            return this;
+        }
+    }
+
+    private static final class Signed {
+        private final PendingTransaction transaction;
+        private final String raw;
+
+        private Signed(PendingTransaction transaction, String raw) {
+            this.transaction = transaction;
+            this.raw = raw;
+        }
+    }
+}
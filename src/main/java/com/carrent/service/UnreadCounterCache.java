@@ -0,0 +1,97 @@
+package com.carrent.service;
+
+import com.carrent.model.UnreadCount;
+import com.carrent.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unread notification count per user, kept in memory so polling the count does not
+ * hit Mongo. A user's counter is loaded on first read and then adjusted by the
+ * notification writes on this instance. Writes from other instances and races with
+ * the initial load are corrected by a periodic reconciliation, which also drops
+ * counters nobody has read for a while.
+ */
+@Slf4j
+@Component
+public class UnreadCounterCache {
+    private static final int RECONCILE_CHUNK_SIZE = 1000;
+
+    private final NotificationRepository notificationRepository;
+    private final long idleTimeoutMillis;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public UnreadCounterCache(
+            NotificationRepository notificationRepository,
+            @Value("${notifications.unread-count.idle-timeout-ms:3600000}") long idleTimeoutMillis
+    ) {
+        this.notificationRepository = notificationRepository;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long get(String userId) {
+        Counter counter = counters.get(userId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(userId,
+                key -> new Counter(notificationRepository.countByUserIdAndRead(key, false)));
+        }
+        counter.lastReadMillis = System.currentTimeMillis();
+        return counter.value.get();
+    }
+
+    /**
+     * Adjusts a cached counter. Users without a counter are left alone; their count
+     * is loaded from Mongo, including this change, on the next read.
+     */
+    public void add(String userId, long delta) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.value.accumulateAndGet(delta, (current, change) -> Math.max(0, current + change));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.unread-count.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long idleCutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        counters.entrySet().removeIf(entry -> entry.getValue().lastReadMillis < idleCutoff);
+
+        List<String> userIds = new ArrayList<>(counters.keySet());
+        int corrected = 0;
+        for (int start = 0; start < userIds.size(); start += RECONCILE_CHUNK_SIZE) {
+            List<String> chunk = userIds.subList(start, Math.min(start + RECONCILE_CHUNK_SIZE, userIds.size()));
+            Map<String, Long> actual = new HashMap<>();
+            for (UnreadCount count : notificationRepository.countUnreadByUserIdIn(chunk)) {
+                actual.put(count.getUserId(), count.getCount());
+            }
+            for (String userId : chunk) {
+                Counter counter = counters.get(userId);
+                long expected = actual.getOrDefault(userId, 0L);
+                if (counter != null && counter.value.getAndSet(expected) != expected) {
+                    corrected++;
+                }
+            }
+        }
+        if (corrected > 0) {
+            log.debug("Corrected {} of {} unread notification counters", corrected, userIds.size());
+        }
+    }
+
+    private static final class Counter {
+        private final AtomicLong value;
+        private volatile long lastReadMillis;
+
+        private Counter(long initial) {
+            this.value = new AtomicLong(initial);
+            this.lastReadMillis = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.carrent.service;
+
+import com.carrent.model.PaymentHistory;
+import com.carrent.model.WalletPaymentSummary;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-wallet earned and spent totals, split by currency and payment type. Every
+ * payment that enters or leaves the COMPLETED status adjusts the totals of both
+ * parties with $inc, so reading them is a single document lookup. {@link #rebuild()}
+ * recomputes everything from payment_history on the server, for repairing drift.
+ * <p>
+ * Totals are only read from the summaries, so on the first start after upgrading,
+ * while the summary collection is still empty but completed payments exist, the
+ * summaries are rebuilt once before requests are served.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletSummaryService {
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void rebuildIfMissing() {
+        boolean hasSummaries = mongoTemplate.exists(new Query(), WalletPaymentSummary.class);
+        if (hasSummaries || !mongoTemplate.exists(Query.query(Criteria.where("status")
+                .is(PaymentHistory.PaymentStatus.COMPLETED)), PaymentHistory.class)) {
+            return;
+        }
+        log.info("Wallet payment summaries are missing, building them from payment history");
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Totals read as zero until an admin rebuilds; the application still starts
+            log.error("Failed to build wallet payment summaries", e);
+        }
+    }
+
+    /**
+     * Adds a completed payment to (sign 1) or removes it from (sign -1) the totals
+     * of its sender and recipient.
+     */
+    public void apply(PaymentHistory payment, int sign) {
+        if (payment.getAmount() == null) {
+            return;
+        }
+        Decimal128 amount = new Decimal128(sign < 0 ? payment.getAmount().negate() : payment.getAmount());
+        String breakdown = fieldKey(payment.getCurrency()) + "." + fieldKey(payment.getType());
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WalletPaymentSummary.class);
+        int pending = 0;
+        if (payment.getToAddress() != null) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(payment.getToAddress())),
+                new Update().inc("totalEarned", amount).inc("earned." + breakdown, amount));
+            pending++;
+        }
+        if (payment.getFromAddress() != null) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(payment.getFromAddress())),
+                new Update().inc("totalSpent", amount).inc("spent." + breakdown, amount));
+            pending++;
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+    }
+
+    public BigDecimal getTotalEarned(String address) {
+        WalletPaymentSummary summary = findSummary(address, "totalEarned");
+        return summary != null ? toBigDecimal(summary.getTotalEarned()) : BigDecimal.ZERO;
+    }
+
+    public BigDecimal getTotalSpent(String address) {
+        WalletPaymentSummary summary = findSummary(address, "totalSpent");
+        return summary != null ? toBigDecimal(summary.getTotalSpent()) : BigDecimal.ZERO;
+    }
+
+    public Map<String, Object> getSummary(String address) {
+        WalletPaymentSummary summary = mongoTemplate.findById(address, WalletPaymentSummary.class);
+        Map<String, Object> response = new HashMap<>();
+        response.put("address", address);
+        response.put("totalEarned", summary != null ? toBigDecimal(summary.getTotalEarned()) : BigDecimal.ZERO);
+        response.put("totalSpent", summary != null ? toBigDecimal(summary.getTotalSpent()) : BigDecimal.ZERO);
+        response.put("earned", summary != null ? toBigDecimals(summary.getEarned()) : Map.of());
+        response.put("spent", summary != null ? toBigDecimals(summary.getSpent()) : Map.of());
+        return response;
+    }
+
+    /**
+     * Recomputes all wallet summaries from completed payments with one aggregation
+     * that replaces the summary collection via $out. Increments applied while it
+     * runs are overwritten, so run it when payments are quiet.
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        String target = mongoTemplate.getCollectionName(WalletPaymentSummary.class);
+        List<Document> pipeline = Arrays.asList(
+            new Document("$match", new Document("status", PaymentHistory.PaymentStatus.COMPLETED.name())),
+            // Amounts may be stored as strings; $toDecimal handles both
+            new Document("$project", new Document("amount", new Document("$toDecimal", "$amount"))
+                .append("currency", new Document("$ifNull", Arrays.asList("$currency", UNKNOWN)))
+                .append("type", new Document("$ifNull", Arrays.asList("$type", UNKNOWN)))
+                .append("sides", Arrays.asList(
+                    new Document("address", "$toAddress").append("direction", "earned"),
+                    new Document("address", "$fromAddress").append("direction", "spent")))),
+            new Document("$unwind", "$sides"),
+            new Document("$match", new Document("sides.address", new Document("$ne", null))),
+            new Document("$group", new Document("_id", new Document("address", "$sides.address")
+                    .append("direction", "$sides.direction")
+                    .append("currency", "$currency")
+                    .append("type", "$type"))
+                .append("amount", new Document("$sum", "$amount"))),
+            new Document("$group", new Document("_id", new Document("address", "$_id.address")
+                    .append("direction", "$_id.direction")
+                    .append("currency", "$_id.currency"))
+                .append("types", new Document("$push", new Document("k", "$_id.type").append("v", "$amount")))
+                .append("total", new Document("$sum", "$amount"))),
+            new Document("$group", new Document("_id", new Document("address", "$_id.address")
+                    .append("direction", "$_id.direction"))
+                .append("currencies", new Document("$push", new Document("k", "$_id.currency")
+                    .append("v", new Document("$arrayToObject", "$types"))))
+                .append("total", new Document("$sum", "$total"))),
+            new Document("$group", new Document("_id", "$_id.address")
+                .append("directions", new Document("$push", new Document("k", "$_id.direction")
+                    .append("v", new Document("$arrayToObject", "$currencies"))))
+                .append("totalEarned", new Document("$sum", totalFor("earned")))
+                .append("totalSpent", new Document("$sum", totalFor("spent")))),
+            new Document("$replaceWith", new Document("$mergeObjects", Arrays.asList(
+                new Document("_id", "$_id")
+                    .append("totalEarned", new Document("$toDecimal", "$totalEarned"))
+                    .append("totalSpent", new Document("$toDecimal", "$totalSpent")),
+                new Document("$arrayToObject", "$directions")))),
+            new Document("$out", target)
+        );
+
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(PaymentHistory.class))
+            .aggregate(pipeline)
+            .allowDiskUse(true)
+            .toCollection();
+        log.info("Rebuilt wallet payment summaries in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private WalletPaymentSummary findSummary(String address, String field) {
+        Query query = Query.query(Criteria.where("_id").is(address));
+        query.fields().include(field);
+        return mongoTemplate.findOne(query, WalletPaymentSummary.class);
+    }
+
+    private static Document totalFor(String direction) {
+        return new Document("$cond", Arrays.asList(
+            new Document("$eq", Arrays.asList("$_id.direction", direction)), "$total", 0));
+    }
+
+    // Currency and type become field names, so they must not contain path separators
+    private static String fieldKey(Object value) {
+        return value != null ? value.toString().replace('.', '_').replace('$', '_') : UNKNOWN;
+    }
+
+    private static BigDecimal toBigDecimal(Decimal128 value) {
+        return value != null ? value.bigDecimalValue() : BigDecimal.ZERO;
+    }
+
+    private static Map<String, Map<String, BigDecimal>> toBigDecimals(Map<String, Map<String, Decimal128>> amounts) {
+        Map<String, Map<String, BigDecimal>> converted = new HashMap<>();
+        if (amounts != null) {
+            amounts.forEach((currency, byType) -> {
+                Map<String, BigDecimal> values = new HashMap<>();
+                byType.forEach((type, amount) -> values.put(type, toBigDecimal(amount)));
+                converted.put(currency, values);
+            });
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,41 @@
+package com.carrent.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size pool of equally sized direct buffers. Buffers are allocated once up
+ * front; {@link #acquire()} returns null when the pool is exhausted rather than
+ * allocating, so the number of live direct buffers stays bounded.
+ */
+public final class DirectBufferPool {
+    private final BlockingQueue<ByteBuffer> free;
+    private final int bufferSize;
+
+    public DirectBufferPool(int buffers, int bufferSize) {
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.bufferSize = bufferSize;
+        for (int i = 0; i < buffers; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.isDirect() && buffer.capacity() == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+
+    public int available() {
+        return free.size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.carrent.util;
+
+public final class GeoUtils {
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    public static final double METERS_PER_DEGREE_LATITUDE = 111_320.0;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance between two points using the haversine formula.
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
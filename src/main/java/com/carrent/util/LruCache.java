@@ -0,0 +1,58 @@
+package com.carrent.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small least-recently-used cache whose entries also expire after a fixed time.
+ * Every operation locks the whole cache, which is fine for the few thousand
+ * entries it is meant for.
+ */
+public final class LruCache<K, V> {
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public LruCache(int capacity, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtMillis;
+
+        private Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.carrent.util;
+
+import com.carrent.model.CursorPage;
+import org.bson.types.ObjectId;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset pagination cursor: the sort value and document ID of the last item
+ * on a page. The next page starts strictly after that pair, so results stay stable
+ * while new documents are inserted and no page costs more than an index seek.
+ */
+public final class PageCursor {
+    private static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+    private static final ObjectId MAX_ID = new ObjectId("ffffffffffffffffffffffff");
+    private static final long END_OF_TIME_MILLIS = 253_402_300_799_999L; // 9999-12-31T23:59:59.999Z
+
+    private final long epochMillis;
+    private final ObjectId id;
+
+    private PageCursor(long epochMillis, ObjectId id) {
+        this.epochMillis = epochMillis;
+        this.id = id;
+    }
+
+    public static PageCursor of(long epochMillis, String id) {
+        return new PageCursor(epochMillis, new ObjectId(id));
+    }
+
+    /**
+     * A cursor positioned just before everything at {@code epochMillis}, for the first page.
+     */
+    public static PageCursor before(long epochMillis) {
+        return new PageCursor(epochMillis, MIN_ID);
+    }
+
+    /**
+     * A cursor positioned after everything, for the first page of a newest-first listing.
+     */
+    public static PageCursor newest() {
+        return new PageCursor(END_OF_TIME_MILLIS, MAX_ID);
+    }
+
+    /**
+     * Decodes a cursor from a newest-first listing, or starts at the newest item.
+     */
+    public static PageCursor decodeOrNewest(String encoded) {
+        return encoded != null ? decode(encoded) : newest();
+    }
+
+    /**
+     * Wraps a page fetched with {@code limit}. A full page gets a cursor pointing at
+     * its last item; a short page is the last one, so no count query is needed.
+     */
+    public static <T> CursorPage<T> page(List<T> items, int limit,
+                                         Function<T, LocalDateTime> sortValue, Function<T, String> id) {
+        String nextCursor = null;
+        if (items.size() == limit) {
+            T last = items.get(items.size() - 1);
+            nextCursor = of(TimeUtils.toEpochMillis(sortValue.apply(last)), id.apply(last)).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    public static PageCursor decode(String encoded) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return new PageCursor(Long.parseLong(decoded.substring(0, separator)),
+                new ObjectId(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = epochMillis + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTimestamp() {
+        return TimeUtils.fromEpochMillis(epochMillis);
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+}
@@ -0,0 +1,56 @@
+package com.carrent.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary frame sent by in-car units, 20 bytes, big-endian:
+ * <pre>
+ *   int  deviceIndex   index assigned when the device was registered
+ *   int  latitudeE7    latitude  * 10^7
+ *   int  longitudeE7   longitude * 10^7
+ *   long epochMillis
+ * </pre>
+ * Decoding reads primitives straight out of the buffer and hands them to a sink,
+ * so nothing is allocated per frame.
+ */
+public final class TelematicsFrameCodec {
+    public static final int FRAME_SIZE = 20;
+    public static final double COORDINATE_SCALE = 10_000_000.0;
+
+    private TelematicsFrameCodec() {
+    }
+
+    @FunctionalInterface
+    public interface FrameSink {
+        void accept(int deviceIndex, double latitude, double longitude, long epochMillis);
+    }
+
+    /**
+     * Decodes every complete frame between the buffer's position and limit. The
+     * position is left at the start of any trailing partial frame, so a stream
+     * reader can compact the buffer and keep reading. Returns the number of frames.
+     */
+    public static int decode(ByteBuffer buffer, FrameSink sink) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int frames = 0;
+        while (limit - position >= FRAME_SIZE) {
+            sink.accept(
+                buffer.getInt(position),
+                buffer.getInt(position + 4) / COORDINATE_SCALE,
+                buffer.getInt(position + 8) / COORDINATE_SCALE,
+                buffer.getLong(position + 12));
+            position += FRAME_SIZE;
+            frames++;
+        }
+        buffer.position(position);
+        return frames;
+    }
+
+    public static void encode(ByteBuffer buffer, int deviceIndex, double latitude, double longitude, long epochMillis) {
+        buffer.putInt(deviceIndex)
+            .putInt((int) Math.round(latitude * COORDINATE_SCALE))
+            .putInt((int) Math.round(longitude * COORDINATE_SCALE))
+            .putLong(epochMillis);
+    }
+}
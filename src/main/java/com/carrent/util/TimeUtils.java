@@ -0,0 +1,24 @@
+package com.carrent.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Conversions between the {@link LocalDateTime} values stored on documents and the
+ * epoch milliseconds used by the in-memory GPS structures. Uses the system zone,
+ * which is also what the Mongo converters use for {@code LocalDateTime}.
+ */
+public final class TimeUtils {
+
+    private TimeUtils() {
+    }
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
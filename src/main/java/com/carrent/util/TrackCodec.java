@@ -0,0 +1,133 @@
+package com.carrent.util;
+
+import java.util.Arrays;
+
+/**
+ * Compact encoding for a sequence of GPS points. Each point is written as three
+ * zigzag varints: the timestamp delta in milliseconds and the latitude/longitude
+ * deltas in micro-degrees, all relative to the previous point. A fix every few
+ * seconds from a moving car typically costs 5-7 bytes.
+ */
+public final class TrackCodec {
+    public static final double COORDINATE_SCALE = 1_000_000.0;
+
+    private TrackCodec() {
+    }
+
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(long epochMillis, double latitude, double longitude);
+    }
+
+    /**
+     * Decodes every point in order, passing primitives straight to the consumer.
+     * Returns the number of points decoded.
+     */
+    public static int decode(byte[] encoded, PointConsumer consumer) {
+        Decoder decoder = new Decoder(encoded);
+        int count = 0;
+        while (decoder.hasNext()) {
+            decoder.next();
+            consumer.accept(decoder.epochMillis, decoder.latitude / COORDINATE_SCALE,
+                decoder.longitude / COORDINATE_SCALE);
+            count++;
+        }
+        return count;
+    }
+
+    public static int scale(double coordinate) {
+        return (int) Math.round(coordinate * COORDINATE_SCALE);
+    }
+
+    public static final class Encoder {
+        private byte[] buffer;
+        private int length;
+        private long lastEpochMillis;
+        private int lastLatitude;
+        private int lastLongitude;
+        private int count;
+
+        public Encoder() {
+            this.buffer = new byte[64];
+        }
+
+        public void append(long epochMillis, double latitude, double longitude) {
+            int scaledLatitude = scale(latitude);
+            int scaledLongitude = scale(longitude);
+            ensureCapacity(3 * 10);
+            writeVarLong(epochMillis - lastEpochMillis);
+            writeVarLong((long) scaledLatitude - lastLatitude);
+            writeVarLong((long) scaledLongitude - lastLongitude);
+            lastEpochMillis = epochMillis;
+            lastLatitude = scaledLatitude;
+            lastLongitude = scaledLongitude;
+            count++;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+
+        private void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[length++] = (byte) zigzag;
+        }
+    }
+
+    private static final class Decoder {
+        private final byte[] encoded;
+        private int position;
+        private long epochMillis;
+        private int latitude;
+        private int longitude;
+
+        private Decoder(byte[] encoded) {
+            this.encoded = encoded;
+        }
+
+        private boolean hasNext() {
+            return position < encoded.length;
+        }
+
+        private void next() {
+            epochMillis += readVarLong();
+            latitude += (int) readVarLong();
+            longitude += (int) readVarLong();
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                if (position >= encoded.length) {
+                    throw new IllegalArgumentException("Truncated track encoding");
+                }
+                byte b = encoded[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+            }
+            return (result >>> 1) ^ -(result & 1);
+        }
+    }
+}
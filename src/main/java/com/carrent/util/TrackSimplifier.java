@@ -0,0 +1,76 @@
+package com.carrent.util;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker line simplification over primitive coordinate arrays. Distances
+ * are measured in an equirectangular projection around each segment, which is
+ * accurate enough at the scale of a single trip.
+ */
+public final class TrackSimplifier {
+
+    private TrackSimplifier() {
+    }
+
+    /**
+     * Marks the points to keep so that no dropped point lies further than
+     * {@code toleranceMeters} from the simplified line. The first and last points
+     * are always kept.
+     */
+    public static boolean[] simplify(double[] latitudes, double[] longitudes, int count, double toleranceMeters) {
+        boolean[] keep = new boolean[count];
+        if (count <= 2) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        // Explicit stack of [start, end] ranges instead of recursion, so long trips can't overflow
+        int[] stack = new int[2 * count];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+
+            double maxDistance = 0;
+            int farthest = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distanceToSegment(latitudes[i], longitudes[i],
+                    latitudes[start], longitudes[start], latitudes[end], longitudes[end]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+
+            if (farthest != -1 && maxDistance > toleranceMeters) {
+                keep[farthest] = true;
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+        return keep;
+    }
+
+    private static double distanceToSegment(double lat, double lon,
+                                            double startLat, double startLon,
+                                            double endLat, double endLon) {
+        double metersPerDegreeLon = GeoUtils.METERS_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(startLat));
+        double x = (lon - startLon) * metersPerDegreeLon;
+        double y = (lat - startLat) * GeoUtils.METERS_PER_DEGREE_LATITUDE;
+        double dx = (endLon - startLon) * metersPerDegreeLon;
+        double dy = (endLat - startLat) * GeoUtils.METERS_PER_DEGREE_LATITUDE;
+
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            return Math.hypot(x, y);
+        }
+        double t = Math.max(0, Math.min(1, (x * dx + y * dy) / lengthSquared));
+        return Math.hypot(x - t * dx, y - t * dy);
+    }
+}
@@ -0,0 +1,42 @@
+package com.carrent.benchmark;
+
+import com.carrent.config.GpsLocationCollection;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+
+/**
+ * Builds a {@link MongoTemplate} outside of Spring Boot whose mapping context can
+ * still resolve the {@code gpsLocationCollection} bean used by {@code GpsLocation}.
+ */
+final class BenchmarkMongo {
+    static final String DATABASE = "carrent_benchmark";
+
+    private BenchmarkMongo() {
+    }
+
+    static MongoTemplate template(MongoClient mongoClient, boolean timeSeries) {
+        MongoDatabaseFactory databaseFactory = new SimpleMongoClientDatabaseFactory(mongoClient, DATABASE);
+        GpsLocationCollection collection = new GpsLocationCollection(databaseFactory, timeSeries,
+            "gps_locations_ts", Duration.ofDays(90), TimeSeriesGranularity.SECONDS);
+
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean("gpsLocationCollection", GpsLocationCollection.class, () -> collection);
+        context.refresh();
+
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setApplicationContext(context);
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        return new MongoTemplate(databaseFactory, converter);
+    }
+}
@@ -0,0 +1,159 @@
+package com.carrent.benchmark;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.repository.GpsLocationRepository;
+import com.carrent.service.GpsTrackingService;
+import com.carrent.util.PageCursor;
+import com.carrent.util.TimeUtils;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trip history reads against a seeded gps_locations collection. Needs a running
+ * MongoDB; point it elsewhere with -Dbenchmark.mongo.uri. The dataset is seeded once
+ * and reused by later runs.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.carrent.benchmark.GpsHistoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class GpsHistoryBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final String TRACKING_ID = "BENCH-0";
+
+    @Param("5000000")
+    private int totalPoints;
+
+    @Param("50")
+    private int vehicles;
+
+    @Param("500")
+    private int pageSize;
+
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private GpsTrackingService gpsTrackingService;
+    private LocalDateTime end;
+    private String middleCursor;
+    private int middleOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongoClient = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        mongoTemplate = BenchmarkMongo.template(mongoClient, false);
+        mongoTemplate.indexOps(GpsLocation.class).ensureIndex(new Index()
+            .on("trackingId", Sort.Direction.ASC)
+            .on("timestamp", Sort.Direction.ASC)
+            .on("_id", Sort.Direction.ASC));
+        seedIfNeeded();
+
+        GpsLocationRepository repository = new MongoRepositoryFactory(mongoTemplate)
+            .getRepository(GpsLocationRepository.class);
+        gpsTrackingService = new GpsTrackingService(repository, null, null, null, null, null, null, null);
+
+        int pointsPerVehicle = totalPoints / vehicles;
+        end = START.plusSeconds(pointsPerVehicle);
+        middleOffset = pointsPerVehicle / 2;
+        GpsLocation middle = mongoTemplate.findOne(tripQuery().skip(middleOffset - 1).limit(1), GpsLocation.class);
+        middleCursor = PageCursor.of(TimeUtils.toEpochMillis(middle.getTimestamp()), middle.getId()).encode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public void keysetPageInMiddleOfTrip(Blackhole blackhole) {
+        blackhole.consume(gpsTrackingService.getTripHistoryPage(TRACKING_ID, START, end, middleCursor, pageSize));
+    }
+
+    @Benchmark
+    public void offsetPageInMiddleOfTrip(Blackhole blackhole) {
+        blackhole.consume(mongoTemplate.find(tripQuery().skip(middleOffset).limit(pageSize), GpsLocation.class));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void streamWholeTrip(Blackhole blackhole) {
+        blackhole.consume(gpsTrackingService.streamTripHistory(TRACKING_ID, START, end,
+            (epochMillis, latitude, longitude) -> blackhole.consume(epochMillis)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void loadWholeTripIntoList(Blackhole blackhole) {
+        blackhole.consume(mongoTemplate.find(tripQuery(), GpsLocation.class));
+    }
+
+    private Query tripQuery() {
+        return new Query(Criteria.where("trackingId").is(TRACKING_ID).and("timestamp").gte(START).lte(end))
+            .with(Sort.by("timestamp", "_id"));
+    }
+
+    private void seedIfNeeded() {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(GpsLocation.class));
+        long existing = collection.countDocuments();
+        if (existing >= totalPoints) {
+            return;
+        }
+        collection.drop();
+        mongoTemplate.indexOps(GpsLocation.class).ensureIndex(new Index()
+            .on("trackingId", Sort.Direction.ASC)
+            .on("timestamp", Sort.Direction.ASC)
+            .on("_id", Sort.Direction.ASC));
+
+        // Vehicles report once a second, interleaved in time like real ingestion
+        long startMillis = TimeUtils.toEpochMillis(START);
+        List<Document> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < totalPoints; i++) {
+            int vehicle = i % vehicles;
+            int second = i / vehicles;
+            batch.add(new Document("_id", new ObjectId())
+                .append("trackingId", "BENCH-" + vehicle)
+                .append("latitude", 52.0 + vehicle * 0.01 + second * 1e-5)
+                .append("longitude", 13.0 + second * 1e-5)
+                .append("timestamp", new Date(startMillis + second * 1_000L)));
+            if (batch.size() == 10_000) {
+                collection.insertMany(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collection.insertMany(batch);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GpsHistoryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,124 @@
+package com.carrent.benchmark;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.repository.GpsLocationRepository;
+import com.carrent.util.TimeUtils;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the regular gps_locations layout with the time-series collection:
+ * bulk insert cost per fix and latest-point lookup latency. Storage and index
+ * sizes of both collections are printed after each trial. Needs a running
+ * MongoDB 6.0+; point it elsewhere with -Dbenchmark.mongo.uri.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.carrent.benchmark.GpsStorageLayoutBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class GpsStorageLayoutBenchmark {
+    private static final int INSERT_BATCH = 1_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"REGULAR", "TIME_SERIES"})
+    private String layout;
+
+    @Param("1000000")
+    private int seededPoints;
+
+    @Param("1000")
+    private int vehicles;
+
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private GpsLocationRepository repository;
+    private String collectionName;
+    private long nextSecond;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongoClient = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        // Start from empty collections; the time-series one is recreated on first use
+        mongoClient.getDatabase(BenchmarkMongo.DATABASE).getCollection("gps_locations").drop();
+        mongoClient.getDatabase(BenchmarkMongo.DATABASE).getCollection("gps_locations_ts").drop();
+
+        mongoTemplate = BenchmarkMongo.template(mongoClient, "TIME_SERIES".equals(layout));
+        collectionName = mongoTemplate.getCollectionName(GpsLocation.class);
+        mongoTemplate.indexOps(GpsLocation.class).ensureIndex(new Index()
+            .on("trackingId", Sort.Direction.ASC)
+            .on("timestamp", Sort.Direction.ASC)
+            .on("_id", Sort.Direction.ASC));
+        repository = new MongoRepositoryFactory(mongoTemplate).getRepository(GpsLocationRepository.class);
+
+        while (nextSecond * vehicles < seededPoints) {
+            insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Document stats = mongoTemplate.getDb().runCommand(new Document("collStats", collectionName));
+        System.out.printf("%n[%s] %s: count=%s size=%s storageSize=%s totalIndexSize=%s%n",
+            layout, collectionName, stats.get("count"), stats.get("size"),
+            stats.get("storageSize"), stats.get("totalIndexSize"));
+        mongoClient.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSERT_BATCH)
+    public void insertFixes() {
+        insertBatch();
+    }
+
+    @Benchmark
+    public void latestPointLookup(Blackhole blackhole) {
+        String trackingId = "BENCH-" + ThreadLocalRandom.current().nextInt(vehicles);
+        blackhole.consume(repository.findFirstByTrackingIdOrderByTimestampDesc(trackingId));
+    }
+
+    // Same write path as GpsWriteBuffer: one unordered bulk insert per batch
+    private void insertBatch() {
+        List<GpsLocation> batch = new ArrayList<>(INSERT_BATCH);
+        long startMillis = TimeUtils.toEpochMillis(START);
+        for (int i = 0; i < INSERT_BATCH; i++) {
+            int vehicle = i % vehicles;
+            if (vehicle == 0 && i > 0) {
+                nextSecond++;
+            }
+            GpsLocation location = new GpsLocation();
+            location.setTrackingId("BENCH-" + vehicle);
+            location.setLatitude(52.0 + vehicle * 0.001 + nextSecond * 1e-5);
+            location.setLongitude(13.0 + nextSecond * 1e-5);
+            location.setTimestamp(TimeUtils.fromEpochMillis(startMillis + nextSecond * 1_000L));
+            batch.add(location);
+        }
+        nextSecond++;
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GpsLocation.class).insert(batch).execute();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GpsStorageLayoutBenchmark.class.getSimpleName()).build()).run();
+    }
+}
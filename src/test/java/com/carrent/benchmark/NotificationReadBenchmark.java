@@ -0,0 +1,104 @@
+package com.carrent.benchmark;
+
+import com.carrent.model.Notification;
+import com.carrent.repository.NotificationRepository;
+import com.carrent.service.NotificationService;
+import com.carrent.service.UnreadCounterCache;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marking every unread notification of a user as read: the old load-then-save-each
+ * loop against the single updateMulti. Needs a running MongoDB; point it elsewhere
+ * with -Dbenchmark.mongo.uri.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.carrent.benchmark.NotificationReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class NotificationReadBenchmark {
+    private static final String USER_ID = "0xbenchmark";
+
+    @Param({"100", "1000", "5000"})
+    private int unreadNotifications;
+
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+    private NotificationRepository notificationRepository;
+    private NotificationService notificationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongoClient = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        mongoTemplate = BenchmarkMongo.template(mongoClient, false);
+        mongoTemplate.dropCollection(Notification.class);
+        mongoTemplate.indexOps(Notification.class).ensureIndex(new Index()
+            .on("userId", Sort.Direction.ASC)
+            .on("read", Sort.Direction.ASC));
+        notificationRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(NotificationRepository.class);
+        notificationService = new NotificationService(notificationRepository, mongoTemplate,
+            new UnreadCounterCache(notificationRepository, 3_600_000), null, null, null);
+
+        List<Notification> notifications = new ArrayList<>(unreadNotifications);
+        for (int i = 0; i < unreadNotifications; i++) {
+            Notification notification = new Notification();
+            notification.setUserId(USER_ID);
+            notification.setTitle("Rental Reminder");
+            notification.setMessage("Your rental is ending soon.");
+            notification.setType(Notification.NotificationType.RENTAL_REMINDER);
+            notification.setTimestamp(LocalDateTime.now().minusMinutes(i));
+            notifications.add(notification);
+        }
+        notificationRepository.insert(notifications);
+    }
+
+    @Setup(Level.Invocation)
+    public void markAllUnread() {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("userId").is(USER_ID)),
+            Update.update("read", false), Notification.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public void loadAndSaveEach() {
+        List<Notification> unread = notificationRepository.findByUserIdAndReadOrderByTimestampDesc(USER_ID, false);
+        unread.forEach(notification -> {
+            notification.setRead(true);
+            notificationRepository.save(notification);
+        });
+    }
+
+    @Benchmark
+    public long singleUpdate() {
+        return notificationService.markAllAsRead(USER_ID);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationReadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
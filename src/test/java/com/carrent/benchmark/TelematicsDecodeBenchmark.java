@@ -0,0 +1,61 @@
+package com.carrent.benchmark;
+
+import com.carrent.util.TelematicsFrameCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding binary telematics frames out of a direct buffer, reported per
+ * frame. Run with -prof gc to confirm the decode path does not allocate.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.carrent.benchmark.TelematicsDecodeBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TelematicsDecodeBenchmark {
+    private static final int FRAMES_PER_READ = 200; // A full 4 KiB read buffer
+
+    private ByteBuffer buffer;
+    private Blackhole blackhole;
+    private TelematicsFrameCodec.FrameSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        this.sink = this::consume;
+        buffer = ByteBuffer.allocateDirect(FRAMES_PER_READ * TelematicsFrameCodec.FRAME_SIZE);
+        long start = 1_700_000_000_000L;
+        for (int i = 0; i < FRAMES_PER_READ; i++) {
+            TelematicsFrameCodec.encode(buffer, i, 52.52 + i * 1e-5, 13.40 - i * 1e-5, start + i * 1_000L);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES_PER_READ)
+    public int decodeFrames() {
+        buffer.clear();
+        return TelematicsFrameCodec.decode(buffer, sink);
+    }
+
+    private void consume(int deviceIndex, double latitude, double longitude, long epochMillis) {
+        blackhole.consume(deviceIndex);
+        blackhole.consume(latitude);
+        blackhole.consume(longitude);
+        blackhole.consume(epochMillis);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TelematicsDecodeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
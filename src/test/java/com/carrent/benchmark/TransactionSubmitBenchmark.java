@@ -0,0 +1,107 @@
+package com.carrent.benchmark;
+
+import com.carrent.model.PendingTransaction;
+import com.carrent.repository.PendingTransactionRepository;
+import com.carrent.service.BlockchainExecutor;
+import com.carrent.service.TransactionSubmitter;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained submission of a burst of transactions: fetching the nonce from the node
+ * and waiting for each send in turn, against the pipelined {@link TransactionSubmitter}.
+ * Needs a running MongoDB and a local dev chain (anvil, hardhat or ganache) with a
+ * funded key; set -Dbenchmark.eth.url, -Dbenchmark.eth.key and -Dbenchmark.mongo.uri.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.carrent.benchmark.TransactionSubmitBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransactionSubmitBenchmark {
+    // First default account of anvil and hardhat
+    private static final String DEFAULT_KEY = "0xac0974bec39a17e36ba4a6b4d238ff944bacb478cbed5efcae784d7bf4f2ff80";
+    private static final BigInteger GAS_PRICE = BigInteger.valueOf(20_000_000_000L);
+    private static final BigInteger GAS_LIMIT = BigInteger.valueOf(21_000);
+
+    @Param({"1000"})
+    private int transactions;
+
+    private MongoClient mongoClient;
+    private Web3j web3j;
+    private Credentials credentials;
+    private long chainId;
+    private TransactionSubmitter transactionSubmitter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mongoClient = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        MongoTemplate mongoTemplate = BenchmarkMongo.template(mongoClient, false);
+        mongoTemplate.dropCollection(PendingTransaction.class);
+        PendingTransactionRepository repository =
+            new MongoRepositoryFactory(mongoTemplate).getRepository(PendingTransactionRepository.class);
+
+        web3j = Web3j.build(new HttpService(System.getProperty("benchmark.eth.url", "http://localhost:8545")));
+        credentials = Credentials.create(System.getProperty("benchmark.eth.key", DEFAULT_KEY));
+        chainId = web3j.ethChainId().send().getChainId().longValue();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BlockchainExecutor blockchainExecutor = new BlockchainExecutor(meterRegistry, 64, 10_000, 30_000, true);
+        transactionSubmitter = new TransactionSubmitter(web3j, blockchainExecutor, credentials, repository,
+            mongoTemplate, meterRegistry, chainId, GAS_PRICE, GAS_PRICE.multiply(BigInteger.TEN), GAS_LIMIT, 256, 60_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        web3j.shutdown();
+        mongoClient.close();
+    }
+
+    @Benchmark
+    public void nonceFromNodePerTransaction() throws Exception {
+        for (int i = 0; i < transactions; i++) {
+            BigInteger nonce = web3j.ethGetTransactionCount(credentials.getAddress(), DefaultBlockParameterName.PENDING)
+                .send().getTransactionCount();
+            RawTransaction raw = RawTransaction.createEtherTransaction(nonce, GAS_PRICE, GAS_LIMIT,
+                credentials.getAddress(), BigInteger.ZERO);
+            web3j.ethSendRawTransaction(Numeric.toHexString(TransactionEncoder.signMessage(raw, chainId, credentials)))
+                .send();
+        }
+    }
+
+    @Benchmark
+    public void pipelined() {
+        List<CompletableFuture<String>> hashes = new ArrayList<>(transactions);
+        for (int i = 0; i < transactions; i++) {
+            hashes.add(transactionSubmitter.submit(credentials.getAddress(), "", BigInteger.ZERO));
+        }
+        CompletableFuture.allOf(hashes.toArray(new CompletableFuture[0])).join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TransactionSubmitBenchmark.class.getSimpleName()).build()).run();
+    }
+}
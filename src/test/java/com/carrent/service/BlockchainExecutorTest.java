@@ -0,0 +1,87 @@
+package com.carrent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockchainExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlockchainExecutor blockchainExecutor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        blockchainExecutor = new BlockchainExecutor(meterRegistry, 1, 1, 30_000, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        blockchainExecutor.shutdown();
+    }
+
+    @Test
+    void submit_ShouldCompleteWithResultOffCallerThread() throws Exception {
+        // Act
+        String threadName = blockchainExecutor.submit("test", () -> Thread.currentThread().getName())
+            .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(threadName.startsWith("blockchain-io-"));
+        assertEquals(1, meterRegistry.get("ethereum.io").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void submit_ShouldRejectWhenQueueIsFull() {
+        // Arrange
+        blockchainExecutor.submit("test", this::block);
+        blockchainExecutor.submit("test", this::block);
+
+        // Act
+        CompletableFuture<Boolean> result = blockchainExecutor.submit("test", this::block);
+
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(1, meterRegistry.get("ethereum.io.rejected").counter().count());
+    }
+
+    @Test
+    void submit_ShouldInterruptCallAfterTimeout() throws Exception {
+        // Arrange
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        // Act
+        CompletableFuture<Boolean> result = blockchainExecutor.submit("test", () -> {
+            try {
+                return block();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, Duration.ofMillis(50));
+
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("ethereum.io.timed-out").counter().count());
+    }
+
+    private boolean block() throws InterruptedException {
+        return release.await(10, TimeUnit.SECONDS);
+    }
+}
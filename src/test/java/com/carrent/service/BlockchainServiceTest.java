@@ -4,13 +4,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.web3j.protocol.Web3j;
-import org.web3j.protocol.core.Request;
-import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
 import java.math.BigInteger;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -21,35 +16,31 @@ import static org.junit.jupiter.api.Assertions.*;
 class BlockchainServiceTest {
 
     @Mock
-    private Web3j web3j;
+    private TransactionSubmitter transactionSubmitter;
+
+    @Mock
+    private ReceiptTracker receiptTracker;
+
+    @Mock
+    private ContractViewCache contractViewCache;
 
     private BlockchainService blockchainService;
-    private static final String NETWORK_URL = "http://localhost:8545";
-    private static final String PRIVATE_KEY = "0x1234567890abcdef1234567890abcdef1234567890abcdef1234567890abcdef";
     private static final String CONTRACT_ADDRESS = "0x1234567890123456789012345678901234567890";
 
-    @SuppressWarnings("unchecked")
     @BeforeEach
     void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
         
-        // Mock transaction response
-        EthSendTransaction ethSendTransaction = mock(EthSendTransaction.class);
-        when(ethSendTransaction.getTransactionHash()).thenReturn("0xHash123");
-        Request<?, EthSendTransaction> sendRequest = mock(Request.class);
-        when(sendRequest.send()).thenReturn(ethSendTransaction);
-        when(web3j.ethSendTransaction(any())).thenReturn(sendRequest);
+        // Mock transaction submission
+        when(transactionSubmitter.submit(anyString(), anyString(), any()))
+            .thenReturn(CompletableFuture.completedFuture("0xHash123"));
 
         // Mock receipt response
         TransactionReceipt receipt = mock(TransactionReceipt.class);
         when(receipt.isStatusOK()).thenReturn(true);
-        EthGetTransactionReceipt ethGetReceipt = mock(EthGetTransactionReceipt.class);
-        when(ethGetReceipt.getTransactionReceipt()).thenReturn(Optional.of(receipt));
-        Request<?, EthGetTransactionReceipt> receiptRequest = mock(Request.class);
-        when(receiptRequest.send()).thenReturn(ethGetReceipt);
-        when(web3j.ethGetTransactionReceipt(anyString())).thenReturn(receiptRequest);
+        when(receiptTracker.track("0xHash123")).thenReturn(CompletableFuture.completedFuture(receipt));
 
-        blockchainService = new BlockchainService(NETWORK_URL, PRIVATE_KEY, CONTRACT_ADDRESS);
+        blockchainService = new BlockchainService(transactionSubmitter, receiptTracker, contractViewCache, CONTRACT_ADDRESS);
     }
 
     @Test
@@ -70,8 +61,8 @@ class BlockchainServiceTest {
         // Assert
         TransactionReceipt actualReceipt = result.join();
         assertTrue(actualReceipt.isStatusOK());
-        verify(web3j).ethSendTransaction(any());
-        verify(web3j).ethGetTransactionReceipt(anyString());
+        verify(transactionSubmitter).submit(eq(CONTRACT_ADDRESS), anyString(), any());
+        verify(receiptTracker).track("0xHash123");
     }
 
     @Test
@@ -90,8 +81,8 @@ class BlockchainServiceTest {
         // Assert
         TransactionReceipt actualReceipt = result.join();
         assertTrue(actualReceipt.isStatusOK());
-        verify(web3j).ethSendTransaction(any());
-        verify(web3j).ethGetTransactionReceipt(anyString());
+        verify(transactionSubmitter).submit(eq(CONTRACT_ADDRESS), anyString(), any());
+        verify(receiptTracker).track("0xHash123");
     }
 
     @Test
@@ -105,7 +96,7 @@ class BlockchainServiceTest {
         // Assert
         TransactionReceipt actualReceipt = result.join();
         assertTrue(actualReceipt.isStatusOK());
-        verify(web3j).ethSendTransaction(any());
-        verify(web3j).ethGetTransactionReceipt(anyString());
+        verify(transactionSubmitter).submit(eq(CONTRACT_ADDRESS), anyString(), any());
+        verify(receiptTracker).track("0xHash123");
     }
 }
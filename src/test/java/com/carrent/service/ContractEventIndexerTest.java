@@ -0,0 +1,229 @@
+package com.carrent.service;
+
+import com.carrent.model.Car;
+import com.carrent.model.IndexerCheckpoint;
+import com.carrent.model.Rental;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractEventIndexerTest {
+    private static final String CONTRACT_ADDRESS = "0x1234567890123456789012345678901234567890";
+    private static final String OWNER = "0x00000000000000000000000000000000000000aa";
+    private static final String RENTER = "0x00000000000000000000000000000000000000bb";
+
+    @Mock
+    private Web3jService web3jService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ContractViewCache contractViewCache;
+
+    @Mock
+    private BulkOperations carBulk;
+
+    @Mock
+    private BulkOperations rentalBulk;
+
+    private BlockchainExecutor blockchainExecutor;
+    private ContractEventIndexer indexer;
+    private final Map<Long, String> chainHashes = new HashMap<>();
+    private final Deque<EthLog> logResponses = new ArrayDeque<>();
+    private final List<String> requestedMethods = new ArrayList<>();
+    private long head = 10;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Car.class))).thenReturn(carBulk);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Rental.class))).thenReturn(rentalBulk);
+        when(web3jService.send(any(Request.class), any())).thenAnswer(invocation -> respond(invocation.getArgument(0)));
+        for (long block = 0; block <= 20; block++) {
+            chainHashes.put(block, "0xa" + block);
+        }
+
+        blockchainExecutor = new BlockchainExecutor(new SimpleMeterRegistry(), 4, 100, 30_000, false);
+        indexer = new ContractEventIndexer(Web3j.build(web3jService), blockchainExecutor, mongoTemplate,
+            new SimpleMeterRegistry(), contractViewCache, CONTRACT_ADDRESS, true, 5, 0, 500, 10_000, 2000, 64, 20_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blockchainExecutor.shutdown();
+    }
+
+    @Test
+    void catchUp_ShouldApplyEventsAndCheckpoint() throws Exception {
+        // Arrange
+        logResponses.add(logs(
+            log(ContractEventIndexer.CAR_REGISTERED, 6, "0xt1", new Utf8String("VIN1"), new Address(OWNER)),
+            log(ContractEventIndexer.CAR_RENTED, 7, "0xt2", new Utf8String("VIN1"), new Address(RENTER),
+                new Uint256(1_700_000_000L), new Uint256(1_700_086_400L))));
+
+        // Act
+        long blocks = indexer.catchUp();
+
+        // Assert
+        assertEquals(6, blocks);
+        verify(carBulk, times(1)).upsert(any(Query.class), any(Update.class));
+        verify(carBulk, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(rentalBulk, times(1)).upsert(any(Query.class), any(Update.class));
+        ArgumentCaptor<Query> claim = ArgumentCaptor.forClass(Query.class);
+        verify(rentalBulk).updateOne(claim.capture(), any(Update.class));
+        assertEquals("VIN1", claim.getValue().getQueryObject().get("vinNumber"));
+        assertTrue(claim.getValue().getQueryObject().containsKey("blockNumber"));
+        verify(carBulk).execute();
+        verify(rentalBulk).execute();
+        verify(contractViewCache, times(1)).invalidate("VIN1");
+        IndexerCheckpoint checkpoint = lastSavedCheckpoint();
+        assertEquals(10, checkpoint.getLastBlock());
+        assertEquals("0xa10", checkpoint.getRecentBlocks().get(0).getHash());
+    }
+
+    @Test
+    void catchUp_ShouldShrinkRangeWhenNodeRefusesIt() throws Exception {
+        // Arrange
+        EthLog tooLarge = new EthLog();
+        tooLarge.setError(new Response.Error(-32005, "query returned more than 10000 results"));
+        logResponses.add(tooLarge);
+        logResponses.add(logs());
+
+        // Act
+        long blocks = indexer.catchUp();
+
+        // Assert
+        assertEquals(6, blocks);
+        assertEquals(2, requestedMethods.stream().filter("eth_getLogs"::equals).count());
+        assertEquals(10, lastSavedCheckpoint().getLastBlock());
+    }
+
+    @Test
+    void catchUp_ShouldStopAfterMaxBlocksPerRun() throws Exception {
+        // Arrange
+        indexer = new ContractEventIndexer(Web3j.build(web3jService), blockchainExecutor, mongoTemplate,
+            new SimpleMeterRegistry(), contractViewCache, CONTRACT_ADDRESS, true, 5, 0, 500, 10_000, 2000, 64, 3);
+        logResponses.add(logs());
+
+        // Act
+        long blocks = indexer.catchUp();
+
+        // Assert
+        assertEquals(3, blocks);
+        assertEquals(7, lastSavedCheckpoint().getLastBlock());
+    }
+
+    @Test
+    void catchUp_ShouldRewindToLastBlockStillOnChain() throws Exception {
+        // Arrange
+        IndexerCheckpoint checkpoint = new IndexerCheckpoint();
+        checkpoint.setId(CONTRACT_ADDRESS);
+        checkpoint.setLastBlock(10);
+        checkpoint.getRecentBlocks().add(new IndexerCheckpoint.BlockRef(8, "0xa8"));
+        checkpoint.getRecentBlocks().add(new IndexerCheckpoint.BlockRef(10, "0xorphaned"));
+        when(mongoTemplate.findById(CONTRACT_ADDRESS, IndexerCheckpoint.class)).thenReturn(checkpoint);
+        when(mongoTemplate.findDistinct(any(Query.class), eq("vinNumber"), eq(Car.class), eq(String.class)))
+            .thenReturn(List.of("VIN1"));
+        // Canonical history of VIN1 up to the fork point, then the blocks after it
+        logResponses.add(logs(
+            log(ContractEventIndexer.CAR_REGISTERED, 6, "0xt1", new Utf8String("VIN1"), new Address(OWNER))));
+        logResponses.add(logs());
+
+        // Act
+        long blocks = indexer.catchUp();
+
+        // Assert
+        assertEquals(2, blocks);
+        verify(mongoTemplate, never()).remove(any(Query.class), any(Class.class));
+        verify(mongoTemplate, times(2)).updateMulti(any(Query.class), any(Update.class), eq(Rental.class));
+        ArgumentCaptor<Update> carUpdate = ArgumentCaptor.forClass(Update.class);
+        verify(carBulk).updateOne(any(Query.class), carUpdate.capture());
+        assertEquals(true, carUpdate.getValue().getUpdateObject().get("$set", Document.class).get("isAvailable"));
+        verify(contractViewCache).invalidate("VIN1");
+        assertEquals(10, checkpoint.getLastBlock());
+        assertEquals(Arrays.asList("0xa8", "0xa10"),
+            checkpoint.getRecentBlocks().stream().map(IndexerCheckpoint.BlockRef::getHash).toList());
+    }
+
+    private Response<?> respond(Request<?, ?> request) {
+        requestedMethods.add(request.getMethod());
+        switch (request.getMethod()) {
+            case "eth_blockNumber":
+                EthBlockNumber blockNumber = new EthBlockNumber();
+                blockNumber.setResult(Numeric.encodeQuantity(BigInteger.valueOf(head)));
+                return blockNumber;
+            case "eth_getBlockByNumber":
+                long number = Numeric.decodeQuantity((String) request.getParams().get(0)).longValue();
+                EthBlock.Block block = new EthBlock.Block();
+                block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+                block.setHash(chainHashes.get(number));
+                EthBlock response = new EthBlock();
+                response.setResult(block);
+                return response;
+            case "eth_getLogs":
+                return logResponses.poll();
+            default:
+                throw new IllegalArgumentException(request.getMethod());
+        }
+    }
+
+    private IndexerCheckpoint lastSavedCheckpoint() {
+        ArgumentCaptor<IndexerCheckpoint> captor = ArgumentCaptor.forClass(IndexerCheckpoint.class);
+        verify(mongoTemplate, atLeastOnce()).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private EthLog logs(EthLog.LogObject... entries) {
+        EthLog response = new EthLog();
+        response.setResult(new ArrayList<>(Arrays.asList(entries)));
+        return response;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private EthLog.LogObject log(Event event, long block, String transactionHash, Type... values) {
+        EthLog.LogObject entry = new EthLog.LogObject();
+        entry.setTopics(List.of(EventEncoder.encode(event)));
+        entry.setData("0x" + FunctionEncoder.encodeConstructor(Arrays.asList(values)));
+        entry.setBlockNumber(Numeric.encodeQuantity(BigInteger.valueOf(block)));
+        entry.setTransactionHash(transactionHash);
+        return entry;
+    }
+}
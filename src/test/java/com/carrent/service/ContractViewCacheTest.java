@@ -0,0 +1,134 @@
+package com.carrent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractViewCacheTest {
+    private static final String CONTRACT_ADDRESS = "0x1234567890123456789012345678901234567890";
+
+    @Mock
+    private Web3j web3j;
+
+    @Mock
+    private Request<?, EthCall> callRequest;
+
+    private BlockchainExecutor blockchainExecutor;
+    private ContractViewCache contractViewCache;
+    private final EthCall callResponse = new EthCall();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        callResponse.setResult("0x" + FunctionEncoder.encodeConstructor(Arrays.asList(new Uint256(42))));
+        when(callRequest.send()).thenReturn(callResponse);
+        doReturn(callRequest).when(web3j).ethCall(any(Transaction.class), any(DefaultBlockParameter.class));
+
+        blockchainExecutor = new BlockchainExecutor(new SimpleMeterRegistry(), 4, 100, 30_000, false);
+        contractViewCache = new ContractViewCache(web3j, blockchainExecutor, new SimpleMeterRegistry(),
+            CONTRACT_ADDRESS, 10_000);
+        contractViewCache.blockObserved(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blockchainExecutor.shutdown();
+    }
+
+    @Test
+    void call_ShouldCoalesceConcurrentIdenticalCalls() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(callRequest.send()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return callResponse;
+        });
+
+        // Act
+        CompletableFuture<List<Type>> first = contractViewCache.call("VIN1", view("VIN1"));
+        CompletableFuture<List<Type>> second = contractViewCache.call("VIN1", view("VIN1"));
+        release.countDown();
+
+        // Assert
+        assertEquals(BigInteger.valueOf(42), first.get(5, TimeUnit.SECONDS).get(0).getValue());
+        assertSame(first, second);
+        verify(web3j, times(1)).ethCall(any(Transaction.class), any(DefaultBlockParameter.class));
+    }
+
+    @Test
+    void call_ShouldReadAgainAfterNewBlock() throws Exception {
+        // Arrange
+        contractViewCache.call("VIN1", view("VIN1")).get(5, TimeUnit.SECONDS);
+        contractViewCache.call("VIN1", view("VIN1")).get(5, TimeUnit.SECONDS);
+
+        // Act
+        contractViewCache.blockObserved(101);
+        contractViewCache.call("VIN1", view("VIN1")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        verify(web3j, times(2)).ethCall(any(Transaction.class), any(DefaultBlockParameter.class));
+    }
+
+    @Test
+    void invalidate_ShouldOnlyDropEntriesOfSubject() throws Exception {
+        // Arrange
+        contractViewCache.call("VIN1", view("VIN1")).get(5, TimeUnit.SECONDS);
+        contractViewCache.call("VIN2", view("VIN2")).get(5, TimeUnit.SECONDS);
+
+        // Act
+        contractViewCache.invalidate("VIN1");
+        contractViewCache.call("VIN1", view("VIN1")).get(5, TimeUnit.SECONDS);
+        contractViewCache.call("VIN2", view("VIN2")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        verify(web3j, times(3)).ethCall(any(Transaction.class), any(DefaultBlockParameter.class));
+    }
+
+    @Test
+    void call_ShouldNotCacheFailures() throws Exception {
+        // Arrange
+        EthCall reverted = new EthCall();
+        reverted.setError(new Response.Error(3, "execution reverted"));
+        when(callRequest.send()).thenReturn(reverted, callResponse);
+        CompletableFuture<List<Type>> failed = contractViewCache.call("VIN1", view("VIN1"));
+        assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+
+        // Act
+        List<Type> values = contractViewCache.call("VIN1", view("VIN1")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(BigInteger.valueOf(42), values.get(0).getValue());
+        verify(web3j, times(2)).ethCall(any(Transaction.class), any(DefaultBlockParameter.class));
+    }
+
+    private Function view(String vinNumber) {
+        return new Function("getCarPrice", Arrays.asList(new Utf8String(vinNumber)),
+            Arrays.asList(new TypeReference<Uint256>() {}));
+    }
+}
@@ -0,0 +1,111 @@
+package com.carrent.service;
+
+import com.carrent.model.PaymentHistory;
+import com.carrent.repository.PaymentHistoryRepository;
+import com.carrent.repository.RentalRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportServiceTest {
+
+    @Mock
+    private PaymentHistoryRepository paymentHistoryRepository;
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    private ExportService exportService;
+
+    private final LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private final LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new ExportService(paymentHistoryRepository, rentalRepository, objectMapper);
+    }
+
+    @Test
+    void exportPayments_ShouldWriteGzippedCsvWithHeaderAndEscaping() throws IOException {
+        // Arrange
+        when(paymentHistoryRepository.streamByTimestampRange(from, to)).thenReturn(Stream.of(
+            createPayment("p1", "ETH"),
+            createPayment("p2", "US\"D,C")
+        ));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.exportPayments(from, to, ExportService.Format.CSV, out);
+
+        // Assert
+        assertEquals(2, rows);
+        String[] lines = gunzip(out.toByteArray()).split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,transactionHash,fromAddress"));
+        assertEquals("p1,0xhash,0xabc,0xdef,1.50,ETH,RENTAL_PAYMENT,COMPLETED,rental1,2024-01-15T10:30:15", lines[1]);
+        assertTrue(lines[2].contains(",\"US\"\"D,C\","));
+    }
+
+    @Test
+    void exportPayments_ShouldWriteOneJsonObjectPerLine() throws IOException {
+        // Arrange
+        when(paymentHistoryRepository.streamByTimestampRange(from, to)).thenReturn(Stream.of(
+            createPayment("p1", "ETH"),
+            createPayment("p2", "ETH")
+        ));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.exportPayments(from, to, ExportService.Format.NDJSON, out);
+
+        // Assert
+        assertEquals(2, rows);
+        String[] lines = gunzip(out.toByteArray()).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"p1\""));
+        assertTrue(lines[0].contains("\"amount\":1.50"));
+        assertTrue(lines[0].contains("\"timestamp\":\"2024-01-15T10:30:15\""));
+    }
+
+    private PaymentHistory createPayment(String id, String currency) {
+        PaymentHistory payment = new PaymentHistory();
+        payment.setId(id);
+        payment.setTransactionHash("0xhash");
+        payment.setFromAddress("0xabc");
+        payment.setToAddress("0xdef");
+        payment.setAmount(new BigDecimal("1.50"));
+        payment.setCurrency(currency);
+        payment.setType(PaymentHistory.PaymentType.RENTAL_PAYMENT);
+        payment.setStatus(PaymentHistory.PaymentStatus.COMPLETED);
+        payment.setRentalId("rental1");
+        payment.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30, 15));
+        return payment;
+    }
+
+    private String gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
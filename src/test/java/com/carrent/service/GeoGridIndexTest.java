@@ -0,0 +1,79 @@
+package com.carrent.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoGridIndexTest {
+
+    private GeoGridIndex geoGridIndex;
+
+    @BeforeEach
+    void setUp() {
+        geoGridIndex = new GeoGridIndex(0.01);
+    }
+
+    @Test
+    void nearest_ShouldReturnClosestFirstWithinRadius() {
+        // Arrange
+        geoGridIndex.update("near", 52.5200, 13.4050);
+        geoGridIndex.update("middle", 52.5300, 13.4050);
+        geoGridIndex.update("far", 52.6000, 13.4050);
+
+        // Act
+        List<GeoGridIndex.Neighbor> result = geoGridIndex.nearest(52.5201, 13.4050, 5000, 10, id -> true);
+
+        // Assert
+        assertEquals(List.of("near", "middle"), trackingIds(result));
+        assertTrue(result.get(0).getDistanceMeters() < result.get(1).getDistanceMeters());
+    }
+
+    @Test
+    void nearest_ShouldHonourLimitAndFilter() {
+        // Arrange
+        for (int i = 0; i < 50; i++) {
+            geoGridIndex.update("car" + i, 52.52 + i * 0.001, 13.40);
+        }
+
+        // Act
+        List<GeoGridIndex.Neighbor> result = geoGridIndex.nearest(52.52, 13.40, 50_000, 3,
+            id -> !id.equals("car0"));
+
+        // Assert
+        assertEquals(List.of("car1", "car2", "car3"), trackingIds(result));
+    }
+
+    @Test
+    void update_ShouldMoveEntryBetweenCells() {
+        // Arrange
+        geoGridIndex.update("car", 52.52, 13.40);
+
+        // Act
+        geoGridIndex.update("car", 48.85, 2.35);
+
+        // Assert
+        assertTrue(geoGridIndex.nearest(52.52, 13.40, 1000, 5, id -> true).isEmpty());
+        assertEquals(List.of("car"), trackingIds(geoGridIndex.nearest(48.85, 2.35, 1000, 5, id -> true)));
+        assertEquals(1, geoGridIndex.size());
+    }
+
+    @Test
+    void nearest_ShouldFindNeighboursAcrossTheAntimeridian() {
+        // Arrange
+        geoGridIndex.update("east", -17.0, 179.999);
+
+        // Act
+        List<GeoGridIndex.Neighbor> result = geoGridIndex.nearest(-17.0, -179.999, 1000, 5, id -> true);
+
+        // Assert
+        assertEquals(List.of("east"), trackingIds(result));
+    }
+
+    private List<String> trackingIds(List<GeoGridIndex.Neighbor> neighbors) {
+        return neighbors.stream().map(GeoGridIndex.Neighbor::getTrackingId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,201 @@
+package com.carrent.service;
+
+import com.carrent.model.Geofence;
+import com.carrent.model.GpsLocation;
+import com.carrent.model.Rental;
+import com.carrent.repository.GeofenceRepository;
+import com.carrent.repository.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeofenceServiceTest {
+
+    @Mock
+    private GeofenceRepository geofenceRepository;
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    private GeofenceService geofenceService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        geofenceService = new GeofenceService(geofenceRepository, rentalRepository, notificationService, 0.05, 600_000, 3);
+
+        Rental rental = new Rental();
+        rental.setId("rental1");
+        rental.setGpsTrackingId("GPS1");
+        rental.setRenterAddress("0xrenter");
+        when(rentalRepository.findById("rental1")).thenReturn(Optional.of(rental));
+        when(geofenceRepository.save(any(Geofence.class))).thenAnswer(invocation -> {
+            Geofence fence = invocation.getArgument(0);
+            fence.setId("fence-" + fence.getType());
+            return fence;
+        });
+    }
+
+    @Test
+    void evaluate_ShouldAlertOncePerViolation() {
+        // Arrange
+        Geofence zone = new Geofence();
+        zone.setRentalId("rental1");
+        zone.setName("Airport");
+        zone.setType(Geofence.FenceType.FORBIDDEN_ZONE);
+        zone.setCenterLatitude(52.3667);
+        zone.setCenterLongitude(13.5033);
+        zone.setRadiusMeters(1_000.0);
+        geofenceService.createGeofence(zone);
+        LocalDateTime start = LocalDateTime.now();
+
+        // Act
+        geofenceService.evaluate(createLocation(52.3667, 13.5033, start));
+        geofenceService.evaluate(createLocation(52.3668, 13.5034, start.plusSeconds(10)));
+        geofenceService.evaluate(createLocation(52.5200, 13.4050, start.plusSeconds(20)));
+        geofenceService.evaluate(createLocation(52.5201, 13.4051, start.plusSeconds(30)));
+        geofenceService.evaluate(createLocation(52.5202, 13.4052, start.plusSeconds(40)));
+        geofenceService.evaluate(createLocation(52.3667, 13.5033, start.plusSeconds(50)));
+
+        // Assert
+        verify(notificationService, times(2)).notifyGpsAlert(eq("0xrenter"), eq("rental1"), contains("Airport"));
+    }
+
+    @Test
+    void evaluate_ShouldNotRealertWhenJitteringAtFenceEdge() {
+        // Arrange
+        Geofence zone = new Geofence();
+        zone.setRentalId("rental1");
+        zone.setName("Airport");
+        zone.setType(Geofence.FenceType.FORBIDDEN_ZONE);
+        zone.setCenterLatitude(52.3667);
+        zone.setCenterLongitude(13.5033);
+        zone.setRadiusMeters(1_000.0);
+        geofenceService.createGeofence(zone);
+        LocalDateTime start = LocalDateTime.now();
+
+        // Act
+        // Alternates just inside and just outside the 1 km radius
+        for (int i = 0; i < 10; i++) {
+            double latitude = i % 2 == 0 ? 52.3755 : 52.3760;
+            geofenceService.evaluate(createLocation(latitude, 13.5033, start.plusSeconds(i * 10L)));
+        }
+
+        // Assert
+        verify(notificationService, times(1)).notifyGpsAlert(eq("0xrenter"), eq("rental1"), contains("Airport"));
+    }
+
+    @Test
+    void evaluate_ShouldAlertWhenLeavingAllowedRegion() {
+        // Arrange
+        Geofence region = new Geofence();
+        region.setRentalId("rental1");
+        region.setName("Berlin");
+        region.setType(Geofence.FenceType.ALLOWED_REGION);
+        region.setPolygonLatitudes(new double[] {52.3, 52.3, 52.7, 52.7});
+        region.setPolygonLongitudes(new double[] {13.0, 13.8, 13.8, 13.0});
+        geofenceService.createGeofence(region);
+        LocalDateTime start = LocalDateTime.now();
+
+        // Act
+        geofenceService.evaluate(createLocation(52.52, 13.40, start));
+
+        // Assert
+        verify(notificationService, never()).notifyGpsAlert(anyString(), anyString(), anyString());
+
+        // Act
+        geofenceService.evaluate(createLocation(51.34, 12.37, start.plusHours(2)));
+
+        // Assert
+        verify(notificationService, times(1)).notifyGpsAlert(eq("0xrenter"), eq("rental1"), contains("Berlin"));
+    }
+
+    @Test
+    void evaluate_ShouldAlertWhenSpeedLimitExceeded() {
+        // Arrange
+        Geofence limit = new Geofence();
+        limit.setRentalId("rental1");
+        limit.setType(Geofence.FenceType.SPEED_LIMIT);
+        limit.setSpeedLimitKmh(130.0);
+        geofenceService.createGeofence(limit);
+        LocalDateTime start = LocalDateTime.now();
+
+        // Act: roughly 1.1 km in 20 seconds, about 200 km/h
+        geofenceService.evaluate(createLocation(52.50, 13.40, start));
+        geofenceService.evaluate(createLocation(52.51, 13.40, start.plusSeconds(20)));
+
+        // Assert
+        verify(notificationService, times(1)).notifyGpsAlert(eq("0xrenter"), eq("rental1"), contains("km/h"));
+    }
+
+    @Test
+    void deleteRentalGeofences_ShouldStopAlertsAndForgetLastFix() {
+        // Arrange
+        Geofence zone = new Geofence();
+        zone.setRentalId("rental1");
+        zone.setName("Airport");
+        zone.setType(Geofence.FenceType.FORBIDDEN_ZONE);
+        zone.setCenterLatitude(52.3667);
+        zone.setCenterLongitude(13.5033);
+        zone.setRadiusMeters(1_000.0);
+        Geofence limit = new Geofence();
+        limit.setRentalId("rental1");
+        limit.setType(Geofence.FenceType.SPEED_LIMIT);
+        limit.setSpeedLimitKmh(130.0);
+        geofenceService.createGeofence(zone);
+        geofenceService.createGeofence(limit);
+        when(geofenceRepository.findByRentalId("rental1")).thenReturn(List.of(zone, limit));
+        LocalDateTime start = LocalDateTime.now();
+        geofenceService.evaluate(createLocation(52.50, 13.40, start));
+
+        // Act
+        geofenceService.deleteRentalGeofences("rental1");
+        geofenceService.evaluate(createLocation(52.3667, 13.5033, start.plusSeconds(10)));
+        Geofence newLimit = new Geofence();
+        newLimit.setRentalId("rental1");
+        newLimit.setType(Geofence.FenceType.SPEED_LIMIT);
+        newLimit.setSpeedLimitKmh(130.0);
+        geofenceService.createGeofence(newLimit);
+        // Far from the fix before the delete; only a remembered fix would make this a speeding jump
+        geofenceService.evaluate(createLocation(52.51, 13.40, start.plusSeconds(20)));
+
+        // Assert
+        verify(notificationService, never()).notifyGpsAlert(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void createGeofence_ShouldRejectZoneWithoutShape() {
+        // Arrange
+        Geofence zone = new Geofence();
+        zone.setRentalId("rental1");
+        zone.setType(Geofence.FenceType.FORBIDDEN_ZONE);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> geofenceService.createGeofence(zone));
+        verify(geofenceRepository, never()).save(any(Geofence.class));
+    }
+
+    private GpsLocation createLocation(double latitude, double longitude, LocalDateTime timestamp) {
+        GpsLocation location = new GpsLocation();
+        location.setTrackingId("GPS1");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setTimestamp(timestamp);
+        return location;
+    }
+}
@@ -0,0 +1,132 @@
+package com.carrent.service;
+
+import com.carrent.config.GpsLocationCollection;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpsTimeSeriesMigrationTest {
+    private static final String TRACKING_ID = "GPS1";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private GpsLocationCollection gpsLocationCollection;
+
+    @Mock
+    private MongoCollection<Document> source;
+
+    @Mock
+    private MongoCollection<Document> target;
+
+    @Mock
+    private MongoCollection<Document> checkpoints;
+
+    @Mock
+    private FindIterable<Document> sourceFind;
+
+    @Mock
+    private FindIterable<Document> targetFind;
+
+    @Mock
+    private FindIterable<Document> checkpointFind;
+
+    private GpsTimeSeriesMigration migration;
+    private final Date cutover = new Date(1_700_000_000_000L);
+    private final Document oldFix = fix(cutover.getTime() - 7_200_000L);
+    private final Document olderFix = fix(cutover.getTime() - 3_600_000L);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(source.find(any(Bson.class))).thenReturn(sourceFind);
+        when(sourceFind.sort(any())).thenReturn(sourceFind);
+        when(sourceFind.batchSize(anyInt())).thenReturn(sourceFind);
+        when(sourceFind.iterator()).thenAnswer(invocation -> cursor(Arrays.asList(oldFix, olderFix)));
+        when(target.find(any(Bson.class))).thenReturn(targetFind);
+        when(targetFind.projection(any())).thenReturn(targetFind);
+        when(checkpoints.find(any(Bson.class))).thenReturn(checkpointFind);
+
+        migration = new GpsTimeSeriesMigration(mongoTemplate, gpsLocationCollection, 5000, 1);
+    }
+
+    @Test
+    void copy_ShouldCopyHistoryWhenTargetAlreadyHoldsLiveFix() {
+        // Arrange
+        // The live fix is newer than anything in the source, so it never matches a batch
+        when(targetFind.iterator()).thenAnswer(invocation -> cursor(Collections.emptyList()));
+
+        // Act
+        migration.copy(source, target, checkpoints, TRACKING_ID, cutover);
+
+        // Assert
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        verify(source).find(filter.capture());
+        BsonDocument rendered = render(filter.getValue());
+        assertFalse(rendered.toJson().contains("$gt"));
+        assertTrue(rendered.toJson().contains("$lte"));
+        verify(target).insertMany(eq(Arrays.asList(oldFix, olderFix)), any(InsertManyOptions.class));
+        verify(checkpoints).replaceOne(any(Bson.class),
+            eq(new Document("_id", TRACKING_ID).append("lastTimestamp", olderFix.get("timestamp"))),
+            any(ReplaceOptions.class));
+    }
+
+    @Test
+    void copy_ShouldSkipFixesAlreadyCopiedOnRerun() {
+        // Arrange
+        when(checkpointFind.first()).thenReturn(new Document("_id", TRACKING_ID)
+            .append("lastTimestamp", oldFix.get("timestamp")));
+        when(targetFind.iterator()).thenAnswer(invocation ->
+            cursor(List.of(new Document("timestamp", oldFix.get("timestamp")))));
+
+        // Act
+        migration.copy(source, target, checkpoints, TRACKING_ID, cutover);
+
+        // Assert
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        verify(source).find(filter.capture());
+        assertTrue(render(filter.getValue()).toJson().contains("$gte"));
+        verify(target).insertMany(eq(List.of(olderFix)), any(InsertManyOptions.class));
+    }
+
+    private Document fix(long timestamp) {
+        return new Document("trackingId", TRACKING_ID).append("timestamp", new Date(timestamp));
+    }
+
+    private BsonDocument render(Bson filter) {
+        return filter.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    @SuppressWarnings("unchecked")
+    private MongoCursor<Document> cursor(List<Document> documents) {
+        Iterator<Document> iterator = documents.iterator();
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return cursor;
+    }
+}
@@ -0,0 +1,138 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.model.GpsTrackBucket;
+import com.carrent.repository.GpsTrackBucketRepository;
+import com.carrent.util.TimeUtils;
+import com.carrent.util.TrackCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpsTrackBucketServiceTest {
+    private static final long HOUR = 3_600_000L;
+    private static final long WINDOW_START = 1_700_000_000_000L / HOUR * HOUR;
+
+    @Mock
+    private GpsTrackBucketRepository gpsTrackBucketRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private GpsTrackBucketService gpsTrackBucketService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(GpsTrackBucket.class)))
+            .thenReturn(bulkOperations);
+        gpsTrackBucketService = new GpsTrackBucketService(gpsTrackBucketRepository, mongoTemplate, Duration.ofHours(1));
+    }
+
+    @Test
+    void streamHistory_ShouldIncludeBucketContainingFrom() {
+        // Arrange
+        LocalDateTime windowStart = TimeUtils.fromEpochMillis(WINDOW_START);
+        LocalDateTime from = TimeUtils.fromEpochMillis(WINDOW_START + HOUR / 2);
+        LocalDateTime to = TimeUtils.fromEpochMillis(WINDOW_START + HOUR + HOUR / 2);
+        GpsTrackBucket first = bucket(WINDOW_START, WINDOW_START + 600_000L, WINDOW_START + 2_400_000L);
+        GpsTrackBucket second = bucket(WINDOW_START + HOUR, WINDOW_START + HOUR + 1_200_000L);
+        when(gpsTrackBucketRepository.streamByTrackingIdAndBucketStartRange("GPS1", windowStart, to))
+            .thenReturn(Stream.of(first, second));
+        List<Long> emitted = new ArrayList<>();
+
+        // Act
+        int count = gpsTrackBucketService.streamHistory("GPS1", from, to,
+            (epochMillis, latitude, longitude) -> emitted.add(epochMillis));
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals(List.of(WINDOW_START + 2_400_000L, WINDOW_START + HOUR + 1_200_000L), emitted);
+        verify(gpsTrackBucketRepository).streamByTrackingIdAndBucketStartRange("GPS1", windowStart, to);
+    }
+
+    @Test
+    void flush_ShouldMergeWithStoredWindowAndUpsertByWindow() {
+        // Arrange
+        // The service starts after the window began, as after a restart
+        long now = System.currentTimeMillis();
+        long windowStart = now / HOUR * HOUR;
+        GpsTrackBucket stored = bucket(windowStart, windowStart + 1_000L, windowStart + 2_000L);
+        stored.setSimplified(true);
+        when(mongoTemplate.findOne(any(Query.class), eq(GpsTrackBucket.class))).thenReturn(stored);
+        gpsTrackBucketService.append(location(windowStart + 3_000L));
+
+        // Act
+        gpsTrackBucketService.flush();
+
+        // Assert
+        ArgumentCaptor<Query> window = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(window.capture(), update.capture());
+        assertEquals("GPS1", window.getValue().getQueryObject().get("trackingId"));
+        assertFalse(window.getValue().getQueryObject().containsKey("_id"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(3, set.get("pointCount"));
+        assertEquals(false, set.get("simplified"));
+    }
+
+    @Test
+    void simplify_ShouldSkipWindowsStillInMemory() {
+        // Arrange
+        long previousWindow = (System.currentTimeMillis() / HOUR - 1) * HOUR;
+        gpsTrackBucketService.append(location(previousWindow + 1_000L));
+        when(mongoTemplate.stream(any(Query.class), eq(GpsTrackBucket.class))).thenReturn(Stream.empty());
+
+        // Act
+        gpsTrackBucketService.simplify("GPS1", TimeUtils.fromEpochMillis(previousWindow - HOUR),
+            TimeUtils.fromEpochMillis(previousWindow), 5.0);
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(GpsTrackBucket.class));
+        Document bucketStart = (Document) query.getValue().getQueryObject().get("bucketStart");
+        assertEquals(List.of(TimeUtils.fromEpochMillis(previousWindow)), bucketStart.get("$nin"));
+    }
+
+    private GpsLocation location(long epochMillis) {
+        GpsLocation location = new GpsLocation();
+        location.setTrackingId("GPS1");
+        location.setLatitude(52.52);
+        location.setLongitude(13.405);
+        location.setTimestamp(TimeUtils.fromEpochMillis(epochMillis));
+        return location;
+    }
+
+    private GpsTrackBucket bucket(long bucketStart, long... timestamps) {
+        TrackCodec.Encoder encoder = new TrackCodec.Encoder();
+        for (long timestamp : timestamps) {
+            encoder.append(timestamp, 52.52, 13.405);
+        }
+        GpsTrackBucket bucket = new GpsTrackBucket();
+        bucket.setTrackingId("GPS1");
+        bucket.setBucketStart(TimeUtils.fromEpochMillis(bucketStart));
+        bucket.setPointCount(encoder.getCount());
+        bucket.setPoints(encoder.toByteArray());
+        return bucket;
+    }
+}
@@ -0,0 +1,191 @@
+package com.carrent.service;
+
+import com.carrent.model.CursorPage;
+import com.carrent.model.GpsLocation;
+import com.carrent.repository.GpsLocationRepository;
+import com.carrent.util.PageCursor;
+import com.carrent.util.TimeUtils;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpsTrackingServiceTest {
+
+    @Mock
+    private GpsLocationRepository gpsLocationRepository;
+
+    @Mock
+    private GpsWriteBuffer gpsWriteBuffer;
+
+    @Mock
+    private LatestPositionCache latestPositionCache;
+
+    @Mock
+    private GeoGridIndex geoGridIndex;
+
+    @Mock
+    private GpsStreamBroker gpsStreamBroker;
+
+    @Mock
+    private GpsTrackBucketService gpsTrackBucketService;
+
+    @Mock
+    private GeofenceService geofenceService;
+
+    @Mock
+    private RecentTrackBuffer recentTrackBuffer;
+
+    @InjectMocks
+    private GpsTrackingService gpsTrackingService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void ingestLocations_ShouldStampTimestampAndEnqueue() {
+        // Arrange
+        List<GpsLocation> locations = Arrays.asList(
+            createLocation("GPS1", 52.52, 13.40),
+            createLocation("GPS2", 48.85, 2.35)
+        );
+        when(gpsWriteBuffer.enqueue(any(GpsLocation.class))).thenReturn(true);
+
+        // Act
+        int accepted = gpsTrackingService.ingestLocations(locations);
+
+        // Assert
+        assertEquals(2, accepted);
+        locations.forEach(location -> assertNotNull(location.getTimestamp()));
+        verify(gpsWriteBuffer, times(2)).enqueue(any(GpsLocation.class));
+        verify(gpsLocationRepository, never()).save(any(GpsLocation.class));
+    }
+
+    @Test
+    void ingestLocations_ShouldStopAtFirstRejection() {
+        // Arrange
+        List<GpsLocation> locations = Arrays.asList(
+            createLocation("GPS1", 52.52, 13.40),
+            createLocation("GPS2", 48.85, 2.35),
+            createLocation("GPS3", 40.41, -3.70)
+        );
+        when(gpsWriteBuffer.enqueue(any(GpsLocation.class))).thenReturn(true, false);
+
+        // Act
+        int accepted = gpsTrackingService.ingestLocations(locations);
+
+        // Assert
+        assertEquals(1, accepted);
+        verify(gpsWriteBuffer, times(2)).enqueue(any(GpsLocation.class));
+    }
+
+    @Test
+    void ingestLocations_ShouldRejectMissingTrackingId() {
+        // Arrange
+        List<GpsLocation> locations = Arrays.asList(
+            createLocation("GPS1", 52.52, 13.40),
+            createLocation(null, 48.85, 2.35)
+        );
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> gpsTrackingService.ingestLocations(locations));
+        verify(gpsWriteBuffer, never()).enqueue(any(GpsLocation.class));
+    }
+
+    @Test
+    void getLatestLocation_ShouldServeFromCache() {
+        // Arrange
+        GpsLocation cached = createLocation("GPS1", 52.52, 13.40);
+        when(latestPositionCache.get("GPS1")).thenReturn(Optional.of(cached));
+
+        // Act
+        Optional<GpsLocation> result = gpsTrackingService.getLatestLocation("GPS1");
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals(52.52, result.get().getLatitude());
+        verify(gpsLocationRepository, never()).findFirstByTrackingIdOrderByTimestampDesc(any());
+    }
+
+    @Test
+    void getLatestLocation_ShouldFallBackToRepositoryOnMiss() {
+        // Arrange
+        GpsLocation stored = createLocation("GPS1", 52.52, 13.40);
+        when(latestPositionCache.get("GPS1")).thenReturn(Optional.empty());
+        when(gpsLocationRepository.findFirstByTrackingIdOrderByTimestampDesc("GPS1"))
+            .thenReturn(Optional.of(stored));
+
+        // Act
+        Optional<GpsLocation> result = gpsTrackingService.getLatestLocation("GPS1");
+
+        // Assert
+        assertTrue(result.isPresent());
+        verify(latestPositionCache, times(1)).update(stored);
+    }
+
+    @Test
+    void getTripHistoryPage_ShouldReturnCursorAfterLastItemOfFullPage() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 8, 0);
+        LocalDateTime to = from.plusHours(2);
+        GpsLocation first = createLocation("GPS1", 52.52, 13.40);
+        first.setId(new ObjectId().toHexString());
+        first.setTimestamp(from.plusMinutes(1));
+        GpsLocation second = createLocation("GPS1", 52.53, 13.41);
+        second.setId(new ObjectId().toHexString());
+        second.setTimestamp(from.plusMinutes(2));
+        when(gpsLocationRepository.findPageAfter(eq("GPS1"), eq(from), any(ObjectId.class), eq(to), any(Pageable.class)))
+            .thenReturn(Arrays.asList(first, second));
+
+        // Act
+        CursorPage<GpsLocation> page = gpsTrackingService.getTripHistoryPage("GPS1", from, to, null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        PageCursor next = PageCursor.decode(page.getNextCursor());
+        assertEquals(second.getId(), next.getId().toHexString());
+        assertEquals(TimeUtils.toEpochMillis(second.getTimestamp()), next.getEpochMillis());
+    }
+
+    @Test
+    void getTripHistoryPage_ShouldEndOnShortPage() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 8, 0);
+        LocalDateTime to = from.plusHours(2);
+        String cursor = PageCursor.of(TimeUtils.toEpochMillis(from.plusMinutes(5)), new ObjectId().toHexString()).encode();
+        when(gpsLocationRepository.findPageAfter(eq("GPS1"), eq(from.plusMinutes(5)), any(ObjectId.class), eq(to),
+                any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
+
+        // Act
+        CursorPage<GpsLocation> page = gpsTrackingService.getTripHistoryPage("GPS1", from, to, cursor, 100);
+
+        // Assert
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    private GpsLocation createLocation(String trackingId, double latitude, double longitude) {
+        GpsLocation location = new GpsLocation();
+        location.setTrackingId(trackingId);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+}
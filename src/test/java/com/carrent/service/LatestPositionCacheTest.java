@@ -0,0 +1,57 @@
+package com.carrent.service;
+
+import com.carrent.model.GpsLocation;
+import com.carrent.util.TimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatestPositionCacheTest {
+
+    private LatestPositionCache latestPositionCache;
+
+    @BeforeEach
+    void setUp() {
+        latestPositionCache = new LatestPositionCache(mock(MongoTemplate.class));
+    }
+
+    @Test
+    void update_ShouldKeepNewestFix() {
+        // Arrange
+        latestPositionCache.update("GPS1", 52.52, 13.40, 2000L);
+
+        // Act
+        boolean applied = latestPositionCache.update("GPS1", 48.85, 2.35, 1000L);
+        Optional<GpsLocation> result = latestPositionCache.get("GPS1");
+
+        // Assert
+        assertFalse(applied);
+        assertTrue(result.isPresent());
+        assertEquals(52.52, result.get().getLatitude());
+        assertEquals(13.40, result.get().getLongitude());
+        assertEquals(2000L, TimeUtils.toEpochMillis(result.get().getTimestamp()));
+    }
+
+    @Test
+    void update_ShouldGrowBeyondInitialCapacity() {
+        // Act
+        for (int i = 0; i < 5000; i++) {
+            latestPositionCache.update("GPS" + i, i * 0.001, -i * 0.001, i);
+        }
+
+        // Assert
+        assertEquals(5000, latestPositionCache.size());
+        assertEquals(4.999, latestPositionCache.get("GPS4999").get().getLatitude(), 1e-9);
+        assertEquals(-0.5, latestPositionCache.get("GPS500").get().getLongitude(), 1e-9);
+    }
+
+    @Test
+    void get_ShouldReturnEmptyForUnknownTrackingId() {
+        assertFalse(latestPositionCache.get("unknown").isPresent());
+    }
+}
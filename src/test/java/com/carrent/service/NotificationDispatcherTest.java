@@ -0,0 +1,113 @@
+package com.carrent.service;
+
+import com.carrent.model.Notification;
+import com.carrent.model.OutboxEvent;
+import com.carrent.repository.OutboxEventRepository;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private UnreadCounterCache unreadCounterCache;
+
+    @Mock
+    private NotificationStreamBroker notificationStreamBroker;
+
+    @Mock
+    private NotificationRetentionService notificationRetentionService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private NotificationDispatcher notificationDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Notification.class))).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        notificationDispatcher = new NotificationDispatcher(mongoTemplate, outboxEventRepository, unreadCounterCache,
+            notificationStreamBroker, notificationRetentionService, new SimpleMeterRegistry(), 100, 10, 200);
+    }
+
+    @Test
+    void replayOutbox_ShouldCountDuplicatesAsDelivered() {
+        // Arrange
+        OutboxEvent written = outboxEvent("user1");
+        OutboxEvent duplicate = outboxEvent("user2");
+        when(outboxEventRepository.findTop500ByNextAttemptAtBeforeOrderByNextAttemptAtAsc(any(LocalDateTime.class)))
+            .thenReturn(List.of(written, duplicate));
+        when(bulkOperations.execute()).thenThrow(bulkFailure(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)));
+
+        // Act
+        notificationDispatcher.replayOutbox();
+
+        // Assert
+        verify(unreadCounterCache, times(1)).add("user1", 1);
+        verify(unreadCounterCache, times(1)).add("user2", 1);
+        verify(notificationStreamBroker, times(1)).notificationStored(duplicate.getNotification());
+        verify(outboxEventRepository).deleteAll(List.of(written, duplicate));
+        verify(outboxEventRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void replayOutbox_ShouldOnlyRetryNotificationsThatFailed() {
+        // Arrange
+        OutboxEvent written = outboxEvent("user1");
+        OutboxEvent failed = outboxEvent("user2");
+        when(outboxEventRepository.findTop500ByNextAttemptAtBeforeOrderByNextAttemptAtAsc(any(LocalDateTime.class)))
+            .thenReturn(List.of(written, failed));
+        when(bulkOperations.execute()).thenThrow(bulkFailure(new BulkWriteError(121, "validation failed", new BsonDocument(), 1)));
+
+        // Act
+        notificationDispatcher.replayOutbox();
+
+        // Assert
+        verify(unreadCounterCache, times(1)).add("user1", 1);
+        verify(unreadCounterCache, never()).add("user2", 1);
+        verify(outboxEventRepository).deleteAll(List.of(written));
+        verify(outboxEventRepository).saveAll(List.of(failed));
+        assertEquals(1, failed.getAttempts());
+    }
+
+    private OutboxEvent outboxEvent(String userId) {
+        Notification notification = new Notification();
+        notification.setId(new ObjectId().toHexString());
+        notification.setUserId(userId);
+        notification.setTimestamp(LocalDateTime.now());
+        OutboxEvent event = new OutboxEvent();
+        event.setNotification(notification);
+        event.setNextAttemptAt(LocalDateTime.now());
+        return event;
+    }
+
+    private BulkOperationException bulkFailure(BulkWriteError error) {
+        BulkOperationException exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(List.of(error));
+        return exception;
+    }
+}
@@ -0,0 +1,146 @@
+package com.carrent.service;
+
+import com.carrent.model.Notification;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationRetentionServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UnreadCounterCache unreadCounterCache;
+
+    @Mock
+    private NotificationStreamBroker notificationStreamBroker;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private NotificationRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        retentionService = new NotificationRetentionService(mongoTemplate, unreadCounterCache, notificationStreamBroker,
+            new SimpleMeterRegistry(), Duration.ofDays(30), 1000, 500, 200);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Notification.class))).thenReturn(bulkOperations);
+        when(bulkOperations.updateOne(any(Query.class), any(Update.class))).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void runPass_ShouldRollRepeatedAlertsIntoDigest() {
+        // Arrange
+        Notification newest = createAlert("rental1", Notification.NotificationType.GPS_ALERT);
+        Notification older = createAlert("rental1", Notification.NotificationType.GPS_ALERT);
+        Notification oldest = createAlert("rental1", Notification.NotificationType.GPS_ALERT);
+        Notification otherRental = createAlert("rental2", Notification.NotificationType.GPS_ALERT);
+        when(mongoTemplate.find(any(Query.class), eq(Notification.class)))
+            .thenReturn(Arrays.asList(newest, older, otherRental, oldest), Collections.emptyList());
+        when(mongoTemplate.remove(any(Query.class), eq(Notification.class))).thenReturn(DeleteResult.acknowledged(2));
+        retentionService.touch("user1");
+
+        // Act
+        retentionService.runPass();
+
+        // Assert
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(Notification.class));
+        verify(bulkOperations, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(unreadCounterCache, times(1)).add("user1", -2);
+        verify(notificationStreamBroker, times(1)).unreadCountChanged("user1");
+        assertEquals(0, retentionService.getPendingUserCount());
+    }
+
+    @Test
+    void runPass_ShouldTrimNotificationsBeyondCap() {
+        // Arrange
+        Notification read = createAlert("rental1", Notification.NotificationType.NEW_REVIEW);
+        read.setRead(true);
+        Notification unread = createAlert("rental2", Notification.NotificationType.NEW_REVIEW);
+        when(mongoTemplate.find(any(Query.class), eq(Notification.class)))
+            .thenReturn(Collections.emptyList(), Arrays.asList(read, unread));
+        when(mongoTemplate.remove(any(Query.class), eq(Notification.class))).thenReturn(DeleteResult.acknowledged(2));
+        retentionService.touch("user1");
+
+        // Act
+        retentionService.runPass();
+
+        // Assert
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(Notification.class));
+        verify(unreadCounterCache, times(1)).add("user1", -1);
+    }
+
+    @Test
+    void runPass_ShouldContinueCompactionAfterFullBatch() {
+        // Arrange
+        retentionService = new NotificationRetentionService(mongoTemplate, unreadCounterCache, notificationStreamBroker,
+            new SimpleMeterRegistry(), Duration.ofDays(30), 1000, 2, 200);
+        LocalDateTime now = LocalDateTime.now();
+        Notification newest = createAlert("rental1", Notification.NotificationType.GPS_ALERT);
+        newest.setTimestamp(now);
+        Notification other = createAlert("rental2", Notification.NotificationType.GPS_ALERT);
+        other.setTimestamp(now.minusMinutes(1));
+        Notification older = createAlert("rental1", Notification.NotificationType.GPS_ALERT);
+        older.setTimestamp(now.minusMinutes(2));
+        // Compaction and trim query alternately on each pass
+        when(mongoTemplate.find(any(Query.class), eq(Notification.class))).thenReturn(
+            Arrays.asList(newest, other), Collections.emptyList(), List.of(older), Collections.emptyList());
+        when(mongoTemplate.remove(any(Query.class), eq(Notification.class))).thenReturn(DeleteResult.acknowledged(1));
+        retentionService.touch("user1");
+
+        // Act
+        retentionService.runPass();
+        int pendingAfterFirstPass = retentionService.getPendingUserCount();
+        retentionService.runPass();
+
+        // Assert
+        assertEquals(1, pendingAfterFirstPass);
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(4)).find(queries.capture(), eq(Notification.class));
+        assertTrue(queries.getAllValues().get(2).getQueryObject().containsKey("$or"));
+        ArgumentCaptor<Query> digestUpdate = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations).updateOne(digestUpdate.capture(), any(Update.class));
+        assertEquals(newest.getId(), digestUpdate.getValue().getQueryObject().get("_id"));
+        verify(unreadCounterCache, times(1)).add("user1", -1);
+        assertEquals(0, retentionService.getPendingUserCount());
+    }
+
+    @Test
+    void runPass_ShouldOnlyVisitTouchedUsers() {
+        // Act
+        retentionService.runPass();
+
+        // Assert
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Notification.class));
+    }
+
+    private Notification createAlert(String referenceId, Notification.NotificationType type) {
+        Notification notification = new Notification();
+        notification.setId(new ObjectId().toHexString());
+        notification.setUserId("user1");
+        notification.setType(type);
+        notification.setReferenceId(referenceId);
+        return notification;
+    }
+}
@@ -4,16 +4,22 @@ import com.carrent.model.Notification;
 import com.carrent.repository.NotificationRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +28,21 @@ class NotificationServiceTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UnreadCounterCache unreadCounterCache;
+
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    @Mock
+    private NotificationStreamBroker notificationStreamBroker;
+
+    @Mock
+    private NotificationRetentionService notificationRetentionService;
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -63,6 +84,25 @@ class NotificationServiceTest {
         assertEquals(referenceId, result.getReferenceId());
         assertFalse(result.isRead());
         verify(notificationRepository, times(1)).save(any(Notification.class));
+        verify(unreadCounterCache, times(1)).add(userId, 1);
+        verify(notificationStreamBroker, times(1)).notificationStored(expectedNotification);
+        verify(notificationRetentionService, times(1)).touch(userId);
+    }
+
+    @Test
+    void notifyPaymentReceived_ShouldDispatchWithoutWriting() {
+        // Arrange
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+
+        // Act
+        notificationService.notifyPaymentReceived("0xdef", "1.5", "rental123");
+
+        // Assert
+        verify(notificationDispatcher, times(1)).dispatch(captor.capture());
+        assertEquals("0xdef", captor.getValue().getUserId());
+        assertEquals(Notification.NotificationType.PAYMENT_RECEIVED, captor.getValue().getType());
+        assertFalse(captor.getValue().isRead());
+        verify(notificationRepository, never()).save(any(Notification.class));
     }
 
     @Test
@@ -88,19 +128,65 @@ class NotificationServiceTest {
     void markAsRead_ShouldUpdateNotificationStatus() {
         // Arrange
         String notificationId = "notif123";
-        Notification notification = new Notification();
-        notification.setId(notificationId);
-        notification.setRead(false);
-
-        when(notificationRepository.findById(notificationId)).thenReturn(Optional.of(notification));
-        when(notificationRepository.save(any(Notification.class))).thenReturn(notification);
+        Notification previous = new Notification();
+        previous.setId(notificationId);
+        previous.setUserId("user123");
+        previous.setRead(false);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Notification.class)))
+            .thenReturn(previous);
 
         // Act
         notificationService.markAsRead(notificationId);
 
         // Assert
-        verify(notificationRepository, times(1)).findById(notificationId);
-        verify(notificationRepository, times(1)).save(any(Notification.class));
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class), eq(Notification.class));
+        verify(unreadCounterCache, times(1)).add("user123", -1);
+        verify(notificationRepository, never()).save(any(Notification.class));
+    }
+
+    @Test
+    void markAsRead_ShouldNotDecrementWhenAlreadyRead() {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Notification.class)))
+            .thenReturn(null);
+
+        // Act
+        notificationService.markAsRead("notif123");
+
+        // Assert
+        verify(unreadCounterCache, never()).add(any(), anyLong());
+    }
+
+    @Test
+    void markAsRead_ShouldUpdateBatchInOneCall() {
+        // Arrange
+        String userId = "user123";
+        List<String> notificationIds = Arrays.asList("notif1", "notif2", "notif3");
+        when(notificationRepository.markReadByIdInAndUserId(notificationIds, userId)).thenReturn(3L);
+
+        // Act
+        long result = notificationService.markAsRead(userId, notificationIds);
+
+        // Assert
+        assertEquals(3L, result);
+        verify(notificationRepository, times(1)).markReadByIdInAndUserId(notificationIds, userId);
+        verify(unreadCounterCache, times(1)).add(userId, -3L);
+        verify(notificationStreamBroker, times(1)).unreadCountChanged(userId);
+    }
+
+    @Test
+    void markAllAsRead_ShouldUpdateWithoutLoadingNotifications() {
+        // Arrange
+        String userId = "user123";
+        when(notificationRepository.markAllReadByUserId(userId)).thenReturn(2500L);
+
+        // Act
+        long result = notificationService.markAllAsRead(userId);
+
+        // Assert
+        assertEquals(2500L, result);
+        verify(notificationRepository, never()).findByUserIdAndReadOrderByTimestampDesc(any(), anyBoolean());
+        verify(notificationRepository, never()).save(any(Notification.class));
     }
 
     @Test
@@ -108,13 +194,13 @@ class NotificationServiceTest {
         // Arrange
         String userId = "user123";
         long expectedCount = 5;
-        when(notificationRepository.countByUserIdAndRead(userId, false)).thenReturn(expectedCount);
+        when(unreadCounterCache.get(userId)).thenReturn(expectedCount);
 
         // Act
         long result = notificationService.getUnreadCount(userId);
 
         // Assert
         assertEquals(expectedCount, result);
-        verify(notificationRepository, times(1)).countByUserIdAndRead(userId, false);
+        verify(notificationRepository, never()).countByUserIdAndRead(any(), anyBoolean());
     }
 }
@@ -1,18 +1,27 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.PaymentHistory;
 import com.carrent.repository.PaymentHistoryRepository;
+import com.carrent.util.PageCursor;
+import com.carrent.util.TimeUtils;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -29,6 +38,12 @@ class PaymentServiceTest {
     @Mock
     private BlockchainService blockchainService;
 
+    @Mock
+    private WalletSummaryService walletSummaryService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -71,6 +86,7 @@ class PaymentServiceTest {
         assertEquals(amount, result.getAmount());
         assertEquals(PaymentHistory.PaymentStatus.COMPLETED, result.getStatus());
         verify(paymentHistoryRepository, times(1)).save(any(PaymentHistory.class));
+        verify(walletSummaryService, times(1)).apply(expectedPayment, 1);
         verify(notificationService, times(1)).notifyPaymentReceived(
             eq(toAddress),
             eq(amount.toString()),
@@ -79,52 +95,162 @@ class PaymentServiceTest {
     }
 
     @Test
-    void getUserPayments_ShouldReturnAllPayments() {
+    void getUserPayments_ShouldReturnFirstPageWithCursorFromOneQuery() {
         // Arrange
         String address = "0x123";
-        List<PaymentHistory> sentPayments = new ArrayList<>(Arrays.asList(
-            createPayment("1", LocalDateTime.now()),
-            createPayment("2", LocalDateTime.now().minusHours(1))
-        ));
-        List<PaymentHistory> receivedPayments = new ArrayList<>(Arrays.asList(
-            createPayment("3", LocalDateTime.now().minusHours(2))
-        ));
-
-        when(paymentHistoryRepository.findByFromAddressOrderByTimestampDesc(address))
-            .thenReturn(sentPayments);
-        when(paymentHistoryRepository.findByToAddressOrderByTimestampDesc(address))
-            .thenReturn(receivedPayments);
+        PaymentHistory newer = createPayment(new ObjectId().toHexString(), LocalDateTime.now());
+        PaymentHistory older = createPayment(new ObjectId().toHexString(), LocalDateTime.now().minusHours(1));
+        when(paymentHistoryRepository.findPageByAddressBefore(eq(address), any(LocalDateTime.class),
+                any(ObjectId.class), any(Pageable.class)))
+            .thenReturn(Arrays.asList(newer, older));
 
         // Act
-        List<PaymentHistory> result = paymentService.getUserPayments(address);
+        CursorPage<PaymentHistory> result = paymentService.getUserPayments(address, null, 2);
 
         // Assert
-        assertEquals(3, result.size());
-        verify(paymentHistoryRepository, times(1))
-            .findByFromAddressOrderByTimestampDesc(address);
-        verify(paymentHistoryRepository, times(1))
-            .findByToAddressOrderByTimestampDesc(address);
+        assertEquals(2, result.getItems().size());
+        PageCursor next = PageCursor.decode(result.getNextCursor());
+        assertEquals(older.getId(), next.getId().toHexString());
+        assertEquals(TimeUtils.toEpochMillis(older.getTimestamp()), next.getEpochMillis());
+        verify(paymentHistoryRepository, never()).findByFromAddressOrderByTimestampDesc(address);
+        verify(paymentHistoryRepository, never()).findByToAddressOrderByTimestampDesc(address);
     }
 
     @Test
-    void calculateTotalEarnings_ShouldReturnCorrectSum() {
+    void getUserPayments_ShouldResumeFromCursorAndEndOnShortPage() {
         // Arrange
         String address = "0x123";
-        List<PaymentHistory> receivedPayments = Arrays.asList(
-            createPaymentWithAmount("1", new BigDecimal("1.5")),
-            createPaymentWithAmount("2", new BigDecimal("2.5"))
-        );
+        LocalDateTime before = LocalDateTime.of(2024, 1, 1, 12, 0);
+        String beforeId = new ObjectId().toHexString();
+        String cursor = PageCursor.of(TimeUtils.toEpochMillis(before), beforeId).encode();
+        when(paymentHistoryRepository.findPageByAddressBefore(eq(address), eq(before), eq(new ObjectId(beforeId)),
+                any(Pageable.class)))
+            .thenReturn(Collections.singletonList(createPayment(new ObjectId().toHexString(), before.minusDays(1))));
+
+        // Act
+        CursorPage<PaymentHistory> result = paymentService.getUserPayments(address, cursor, 20);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
 
-        when(paymentHistoryRepository.findByToAddressOrderByTimestampDesc(address))
-            .thenReturn(receivedPayments);
+    @Test
+    void calculateTotalEarnings_ShouldReadRunningTotal() {
+        // Arrange
+        String address = "0x123";
+        when(walletSummaryService.getTotalEarned(address)).thenReturn(new BigDecimal("4.0"));
 
         // Act
         BigDecimal result = paymentService.calculateTotalEarnings(address);
 
         // Assert
         assertEquals(new BigDecimal("4.0"), result);
-        verify(paymentHistoryRepository, times(1))
-            .findByToAddressOrderByTimestampDesc(address);
+        verify(paymentHistoryRepository, never()).findByToAddressOrderByTimestampDesc(address);
+    }
+
+    @Test
+    void updatePaymentStatus_ShouldReverseTotalsWhenLeavingCompleted() {
+        // Arrange
+        PaymentHistory previous = createPaymentWithAmount("1", new BigDecimal("2.5"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(PaymentHistory.class)))
+            .thenReturn(previous);
+
+        // Act
+        PaymentHistory result = paymentService.updatePaymentStatus("1", PaymentHistory.PaymentStatus.REFUNDED);
+
+        // Assert
+        assertEquals(PaymentHistory.PaymentStatus.REFUNDED, result.getStatus());
+        verify(walletSummaryService, times(1)).apply(previous, -1);
+    }
+
+    @Test
+    void updatePaymentStatus_ShouldLeaveTotalsWhenStatusUnchanged() {
+        // Arrange
+        PaymentHistory current = createPaymentWithAmount("1", new BigDecimal("2.5"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(PaymentHistory.class)))
+            .thenReturn(null);
+        when(paymentHistoryRepository.findById("1")).thenReturn(Optional.of(current));
+
+        // Act
+        PaymentHistory result = paymentService.updatePaymentStatus("1", PaymentHistory.PaymentStatus.COMPLETED);
+
+        // Assert
+        assertSame(current, result);
+        verify(walletSummaryService, never()).apply(any(PaymentHistory.class), anyInt());
+    }
+
+    @Test
+    void getPaymentByTransactionHash_ShouldServeRepeatedLookupsFromCache() {
+        // Arrange
+        PaymentHistory payment = createPayment("1", LocalDateTime.now());
+        payment.setTransactionHash("0xhash");
+        when(paymentHistoryRepository.findByTransactionHash("0xhash")).thenReturn(Optional.of(payment));
+
+        // Act
+        PaymentHistory first = paymentService.getPaymentByTransactionHash("0xhash");
+        PaymentHistory second = paymentService.getPaymentByTransactionHash("0xhash");
+
+        // Assert
+        assertEquals(payment, first);
+        assertEquals(payment, second);
+        verify(paymentHistoryRepository, times(1)).findByTransactionHash("0xhash");
+    }
+
+    @Test
+    void getPaymentByTransactionHash_ShouldNotShareCachedInstance() {
+        // Arrange
+        PaymentHistory payment = createPayment("1", LocalDateTime.now());
+        payment.setTransactionHash("0xhash");
+        when(paymentHistoryRepository.findByTransactionHash("0xhash")).thenReturn(Optional.of(payment));
+        paymentService.getPaymentByTransactionHash("0xhash").setStatus(PaymentHistory.PaymentStatus.FAILED);
+
+        // Act
+        PaymentHistory result = paymentService.getPaymentByTransactionHash("0xhash");
+
+        // Assert
+        assertEquals(PaymentHistory.PaymentStatus.COMPLETED, result.getStatus());
+        verify(paymentHistoryRepository, times(1)).findByTransactionHash("0xhash");
+    }
+
+    @Test
+    void getPaymentByTransactionHash_ShouldNotCachePendingPayments() {
+        // Arrange
+        PaymentHistory pending = createPayment("1", LocalDateTime.now());
+        pending.setTransactionHash("0xhash");
+        pending.setStatus(PaymentHistory.PaymentStatus.PENDING);
+        PaymentHistory completed = createPayment("1", LocalDateTime.now());
+        completed.setTransactionHash("0xhash");
+        when(paymentHistoryRepository.findByTransactionHash("0xhash"))
+            .thenReturn(Optional.of(pending), Optional.of(completed));
+
+        // Act
+        PaymentHistory first = paymentService.getPaymentByTransactionHash("0xhash");
+        PaymentHistory second = paymentService.getPaymentByTransactionHash("0xhash");
+
+        // Assert
+        assertEquals(PaymentHistory.PaymentStatus.PENDING, first.getStatus());
+        assertEquals(PaymentHistory.PaymentStatus.COMPLETED, second.getStatus());
+        verify(paymentHistoryRepository, times(2)).findByTransactionHash("0xhash");
+    }
+
+    @Test
+    void recordPayment_ShouldReturnExistingPaymentForDuplicateHash() {
+        // Arrange
+        PaymentHistory existing = createPayment("1", LocalDateTime.now());
+        existing.setTransactionHash("0xhash");
+        when(paymentHistoryRepository.save(any(PaymentHistory.class)))
+            .thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+        when(paymentHistoryRepository.findByTransactionHash("0xhash")).thenReturn(Optional.of(existing));
+
+        // Act
+        PaymentHistory result = paymentService.recordPayment("0xhash", "0xabc", "0xdef", BigDecimal.ONE,
+            "rental123", PaymentHistory.PaymentType.RENTAL_PAYMENT, "ETH");
+
+        // Assert
+        assertSame(existing, result);
+        verify(walletSummaryService, never()).apply(any(PaymentHistory.class), anyInt());
+        verify(notificationService, never()).notifyPaymentReceived(anyString(), anyString(), anyString());
     }
 
     private PaymentHistory createPayment(String id, LocalDateTime timestamp) {
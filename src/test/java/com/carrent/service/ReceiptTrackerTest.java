@@ -0,0 +1,142 @@
+package com.carrent.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptTrackerTest {
+
+    @Mock
+    private Web3j web3j;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BatchRequest batch;
+
+    @Mock
+    private Request<?, EthBlockNumber> blockNumberRequest;
+
+    private BlockchainExecutor blockchainExecutor;
+    private final EthBlockNumber blockNumber = new EthBlockNumber();
+    private static final String TX_HASH = "0xHash123";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        blockNumber.setResult("0x64");
+        when(blockNumberRequest.send()).thenReturn(blockNumber);
+        doReturn(blockNumberRequest).when(web3j).ethBlockNumber();
+        when(web3j.newBatch()).thenReturn(batch);
+        blockchainExecutor = new BlockchainExecutor(new SimpleMeterRegistry(), 4, 100, 30_000, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blockchainExecutor.shutdown();
+    }
+
+    @Test
+    void poll_ShouldCompleteWithReceiptFoundOnFirstCheck() throws Exception {
+        // Arrange
+        ReceiptTracker receiptTracker = createTracker(600_000);
+        when(batch.send()).thenReturn(batchOf(block()), batchOf(receipt(TX_HASH)));
+        CompletableFuture<TransactionReceipt> result = receiptTracker.track(TX_HASH);
+
+        // Act
+        receiptTracker.poll();
+
+        // Assert
+        assertTrue(result.isDone());
+        assertEquals(TX_HASH, result.get().getTransactionHash());
+        assertEquals(0, receiptTracker.getPendingCount());
+    }
+
+    @Test
+    void poll_ShouldOnlyFetchReceiptsForHashesInNewBlocks() throws Exception {
+        // Arrange
+        ReceiptTracker receiptTracker = createTracker(600_000);
+        when(batch.send()).thenReturn(batchOf(block()), batchOf(receipt(null)), batchOf(block(TX_HASH)),
+            batchOf(receipt(TX_HASH)));
+        CompletableFuture<TransactionReceipt> result = receiptTracker.track(TX_HASH);
+        receiptTracker.poll();
+
+        // Act
+        receiptTracker.poll(); // Same head and within backoff: no batch at all
+        blockNumber.setResult("0x65");
+        receiptTracker.poll();
+
+        // Assert
+        assertTrue(result.isDone());
+        verify(web3j, times(4)).newBatch();
+        verify(web3j, times(2)).ethGetTransactionReceipt(TX_HASH);
+    }
+
+    @Test
+    void poll_ShouldFailTransactionsPastTimeout() {
+        // Arrange
+        ReceiptTracker receiptTracker = createTracker(0);
+        CompletableFuture<TransactionReceipt> result = receiptTracker.track(TX_HASH);
+
+        // Act
+        receiptTracker.poll();
+
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        verify(web3j, never()).ethGetTransactionReceipt(TX_HASH);
+    }
+
+    private ReceiptTracker createTracker(long timeoutMillis) {
+        return new ReceiptTracker(web3j, blockchainExecutor, mongoTemplate, new SimpleMeterRegistry(), timeoutMillis, 2000, 60_000, 64, 100);
+    }
+
+    private EthBlock block(String... transactionHashes) {
+        EthBlock.Block block = new EthBlock.Block();
+        List<EthBlock.TransactionResult> transactions = new ArrayList<>();
+        for (String hash : transactionHashes) {
+            transactions.add(new EthBlock.TransactionHash(hash));
+        }
+        block.setTransactions(transactions);
+        EthBlock response = new EthBlock();
+        response.setResult(block);
+        return response;
+    }
+
+    private EthGetTransactionReceipt receipt(String transactionHash) {
+        EthGetTransactionReceipt response = new EthGetTransactionReceipt();
+        if (transactionHash != null) {
+            TransactionReceipt receipt = new TransactionReceipt();
+            receipt.setTransactionHash(transactionHash);
+            response.setResult(receipt);
+        }
+        return response;
+    }
+
+    private BatchResponse batchOf(Response<?> response) {
+        return new BatchResponse(Collections.emptyList(), List.of(response));
+    }
+}
@@ -0,0 +1,99 @@
+package com.carrent.service;
+
+import com.carrent.model.RecentTrack;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentTrackBufferTest {
+
+    private RecentTrackBuffer recentTrackBuffer;
+
+    @BeforeEach
+    void setUp() {
+        recentTrackBuffer = new RecentTrackBuffer(new SimpleMeterRegistry(), 4, 2);
+    }
+
+    @Test
+    void get_ShouldReturnLastPointsOldestFirstAfterWrapping() {
+        // Arrange
+        recentTrackBuffer.track("GPS1");
+        for (int i = 1; i <= 6; i++) {
+            recentTrackBuffer.append("GPS1", 52.0 + i * 0.001, 13.0 + i * 0.001, i * 1_000L);
+        }
+
+        // Act
+        Optional<RecentTrack> track = recentTrackBuffer.get("GPS1", 0);
+
+        // Assert
+        assertTrue(track.isPresent());
+        assertArrayEquals(new long[]{3_000L, 4_000L, 5_000L, 6_000L}, track.get().getEpochMillis());
+        assertEquals(52.003, track.get().getLatitudes()[0], 1e-6);
+        assertEquals(13.006, track.get().getLongitudes()[3], 1e-6);
+    }
+
+    @Test
+    void get_ShouldSkipPointsBeforeCutoff() {
+        // Arrange
+        recentTrackBuffer.track("GPS1");
+        for (int i = 1; i <= 3; i++) {
+            recentTrackBuffer.append("GPS1", 52.0, 13.0, i * 1_000L);
+        }
+
+        // Act
+        RecentTrack track = recentTrackBuffer.get("GPS1", 2_000L).orElseThrow();
+
+        // Assert
+        assertArrayEquals(new long[]{3_000L}, track.getEpochMillis());
+    }
+
+    @Test
+    void release_ShouldFreeSlotForAnotherVehicle() {
+        // Arrange
+        assertTrue(recentTrackBuffer.track("GPS1"));
+        assertTrue(recentTrackBuffer.track("GPS2"));
+        assertFalse(recentTrackBuffer.track("GPS3"));
+
+        // Act
+        recentTrackBuffer.release("GPS1");
+        boolean tracked = recentTrackBuffer.track("GPS3");
+        boolean appended = recentTrackBuffer.append("GPS3", 40.4, -3.7, 2_000L);
+
+        // Assert
+        assertTrue(tracked);
+        assertTrue(appended);
+        assertTrue(recentTrackBuffer.get("GPS1", 0).isEmpty());
+        assertArrayEquals(new long[]{2_000L}, recentTrackBuffer.get("GPS3", 0).orElseThrow().getEpochMillis());
+    }
+
+    @Test
+    void append_ShouldIgnoreVehiclesWithoutRing() {
+        // Act
+        boolean appended = recentTrackBuffer.append("GPS1", 52.0, 13.0, 1_000L);
+
+        // Assert
+        assertFalse(appended);
+        assertTrue(recentTrackBuffer.get("GPS1", 0).isEmpty());
+        assertEquals(0L, recentTrackBuffer.getAllocatedBytes());
+    }
+
+    @Test
+    void retainOnly_ShouldReleaseRingsOfEndedRentals() {
+        // Arrange
+        recentTrackBuffer.track("GPS1");
+        recentTrackBuffer.append("GPS1", 52.0, 13.0, 1_000L);
+
+        // Act
+        recentTrackBuffer.retainOnly(Set.of("GPS2"));
+
+        // Assert
+        assertTrue(recentTrackBuffer.get("GPS1", 0).isEmpty());
+        assertFalse(recentTrackBuffer.append("GPS1", 52.0, 13.0, 2_000L));
+        assertTrue(recentTrackBuffer.append("GPS2", 48.8, 2.3, 2_000L));
+    }
+}
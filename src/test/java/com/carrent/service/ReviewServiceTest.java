@@ -1,15 +1,21 @@
 package com.carrent.service;
 
+import com.carrent.model.CursorPage;
 import com.carrent.model.Review;
 import com.carrent.repository.ReviewRepository;
+import com.carrent.util.PageCursor;
+import com.carrent.util.TimeUtils;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -79,6 +85,51 @@ class ReviewServiceTest {
         verify(reviewRepository, times(1)).findByVinNumber(vinNumber);
     }
 
+    @Test
+    void getCarReviewsPage_ShouldStartAtNewestAndReturnCursorForFullPage() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Review newer = createReview(now);
+        Review older = createReview(now.minusHours(1));
+        when(reviewRepository.findPageByVinNumberBefore(eq("VIN123"), any(LocalDateTime.class),
+                eq(new ObjectId("ffffffffffffffffffffffff")), any(Pageable.class)))
+            .thenReturn(Arrays.asList(newer, older));
+
+        // Act
+        CursorPage<Review> page = reviewService.getCarReviews("VIN123", null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        PageCursor next = PageCursor.decode(page.getNextCursor());
+        assertEquals(older.getId(), next.getId().toHexString());
+        assertEquals(TimeUtils.toEpochMillis(older.getTimestamp()), next.getEpochMillis());
+    }
+
+    @Test
+    void getUserReviewsPage_ShouldResumeFromCursorAndEndOnShortPage() {
+        // Arrange
+        LocalDateTime before = LocalDateTime.of(2024, 1, 1, 12, 0);
+        String beforeId = new ObjectId().toHexString();
+        String cursor = PageCursor.of(TimeUtils.toEpochMillis(before), beforeId).encode();
+        when(reviewRepository.findPageByReviewerIdBefore(eq("user123"), eq(before), eq(new ObjectId(beforeId)),
+                any(Pageable.class)))
+            .thenReturn(Collections.singletonList(createReview(before.minusDays(1))));
+
+        // Act
+        CursorPage<Review> page = reviewService.getUserReviews("user123", cursor, 20);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getUserReviewsPage_ShouldRejectMalformedCursor() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> reviewService.getUserReviews("user123", "not-a-cursor", 20));
+        verify(reviewRepository, never()).findPageByReviewerIdBefore(any(), any(), any(), any());
+    }
+
     @Test
     void getUserReviews_ShouldReturnReviews() {
         // Arrange
@@ -129,4 +180,11 @@ class ReviewServiceTest {
         assertTrue(result);
         verify(reviewRepository, times(1)).findByRentalId(rentalId);
     }
+
+    private Review createReview(LocalDateTime timestamp) {
+        Review review = new Review();
+        review.setId(new ObjectId().toHexString());
+        review.setTimestamp(timestamp);
+        return review;
+    }
 }
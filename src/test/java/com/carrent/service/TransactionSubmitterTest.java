@@ -0,0 +1,226 @@
+package com.carrent.service;
+
+import com.carrent.model.PendingTransaction;
+import com.carrent.repository.PendingTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSubmitterTest {
+
+    @Mock
+    private Web3j web3j;
+
+    @Mock
+    private PendingTransactionRepository pendingTransactionRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private Request<?, EthGetTransactionCount> countRequest;
+
+    @Mock
+    private Request<?, EthSendTransaction> sendRequest;
+
+    @Mock
+    private Request<?, EthGasPrice> gasPriceRequest;
+
+    private TransactionSubmitter transactionSubmitter;
+    private final EthSendTransaction sendResponse = new EthSendTransaction();
+    private static final String PRIVATE_KEY = "0x1234567890abcdef1234567890abcdef1234567890abcdef1234567890abcdef";
+    private static final String CONTRACT_ADDRESS = "0x1234567890123456789012345678901234567890";
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        EthGetTransactionCount count = new EthGetTransactionCount();
+        count.setResult("0x7");
+        when(countRequest.send()).thenReturn(count);
+        doReturn(countRequest).when(web3j).ethGetTransactionCount(anyString(), any(DefaultBlockParameter.class));
+
+        when(sendRequest.send()).thenReturn(sendResponse);
+        doReturn(sendRequest).when(web3j).ethSendRawTransaction(anyString());
+
+        when(pendingTransactionRepository.findFirstByFromAddressOrderByNonceDesc(anyString())).thenReturn(Optional.empty());
+        when(pendingTransactionRepository.insert(any(PendingTransaction.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        transactionSubmitter = submitter(30_000);
+    }
+
+    @Test
+    void submit_ShouldUseConsecutiveNoncesFromChainCount() {
+        // Act
+        String first = transactionSubmitter.submit(CONTRACT_ADDRESS, "0xabcdef", BigInteger.ZERO).join();
+        String second = transactionSubmitter.submit(CONTRACT_ADDRESS, "0xabcdef", BigInteger.ZERO).join();
+
+        // Assert
+        ArgumentCaptor<PendingTransaction> captor = ArgumentCaptor.forClass(PendingTransaction.class);
+        verify(pendingTransactionRepository, times(2)).insert(captor.capture());
+        List<PendingTransaction> recorded = captor.getAllValues();
+        assertEquals(7, recorded.get(0).getNonce());
+        assertEquals(8, recorded.get(1).getNonce());
+        assertEquals(recorded.get(0).getTransactionHash(), first);
+        assertEquals(recorded.get(1).getTransactionHash(), second);
+        assertNotEquals(first, second);
+        verify(web3j, times(2)).ethSendRawTransaction(anyString());
+        verify(web3j, times(1)).ethGetTransactionCount(anyString(), any(DefaultBlockParameter.class));
+    }
+
+    @Test
+    void submit_ShouldContinueAfterHighestRecordedNonce() {
+        // Arrange
+        PendingTransaction last = new PendingTransaction();
+        last.setNonce(10);
+        when(pendingTransactionRepository.findFirstByFromAddressOrderByNonceDesc(anyString())).thenReturn(Optional.of(last));
+
+        // Act
+        transactionSubmitter.submit(CONTRACT_ADDRESS, "0xabcdef", BigInteger.ZERO).join();
+
+        // Assert
+        ArgumentCaptor<PendingTransaction> captor = ArgumentCaptor.forClass(PendingTransaction.class);
+        verify(pendingTransactionRepository).insert(captor.capture());
+        assertEquals(11, captor.getValue().getNonce());
+    }
+
+    @Test
+    void submit_ShouldFillRejectedNonceAndFail() {
+        // Arrange
+        sendResponse.setError(new Response.Error(-32000, "insufficient funds for gas * price + value"));
+
+        // Act
+        CompletableFuture<String> result = transactionSubmitter.submit(CONTRACT_ADDRESS, "0xabcdef", BigInteger.ONE);
+
+        // Assert
+        assertThrows(CompletionException.class, result::join);
+        ArgumentCaptor<PendingTransaction> captor = ArgumentCaptor.forClass(PendingTransaction.class);
+        verify(pendingTransactionRepository).save(captor.capture());
+        PendingTransaction filler = captor.getValue();
+        assertTrue(filler.isFiller());
+        assertEquals(7, filler.getNonce());
+        assertEquals(transactionSubmitter.getAddress(), filler.getToAddress());
+        assertEquals(2, filler.getTransactionHashes().size());
+    }
+
+    @Test
+    void sweep_ShouldOnlyBumpLowestPendingNonces() throws Exception {
+        // Arrange
+        EthGasPrice networkPrice = new EthGasPrice();
+        networkPrice.setResult("0x1");
+        when(gasPriceRequest.send()).thenReturn(networkPrice);
+        doReturn(gasPriceRequest).when(web3j).ethGasPrice();
+        List<PendingTransaction> pending = new ArrayList<>();
+        for (long nonce = 7; nonce < 17; nonce++) {
+            PendingTransaction transaction = new PendingTransaction();
+            transaction.setNonce(nonce);
+            transaction.setToAddress(CONTRACT_ADDRESS);
+            transaction.setData("0xabcdef");
+            transaction.setValue(BigInteger.ZERO);
+            transaction.setGasPrice(BigInteger.valueOf(20_000_000_000L));
+            transaction.setGasLimit(BigInteger.valueOf(6_721_975L));
+            transaction.setLastSentAt(LocalDateTime.now().minusHours(1));
+            pending.add(transaction);
+        }
+        when(pendingTransactionRepository.findFirstByFromAddressOrderByNonceDesc(anyString()))
+            .thenReturn(Optional.of(pending.get(pending.size() - 1)));
+        when(pendingTransactionRepository.findByFromAddressAndStatusOrderByNonceAsc(anyString(), any()))
+            .thenReturn(pending);
+
+        // Act
+        transactionSubmitter.sweep();
+
+        // Assert
+        verify(mongoTemplate, times(4)).updateFirst(any(Query.class), any(Update.class), eq(PendingTransaction.class));
+        assertEquals(BigInteger.valueOf(25_000_000_000L), pending.get(3).getGasPrice());
+        assertEquals(BigInteger.valueOf(20_000_000_000L), pending.get(4).getGasPrice());
+    }
+
+    @Test
+    void submit_ShouldCompleteWithRecordedHashWhenBroadcastTimesOut() throws Exception {
+        // Arrange
+        transactionSubmitter = submitter(50);
+        when(sendRequest.send()).thenAnswer(invocation -> {
+            spin(300);
+            return sendResponse;
+        });
+
+        // Act
+        String hash = transactionSubmitter.submit(CONTRACT_ADDRESS, "0xabcdef", BigInteger.ZERO).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        ArgumentCaptor<PendingTransaction> captor = ArgumentCaptor.forClass(PendingTransaction.class);
+        verify(pendingTransactionRepository).insert(captor.capture());
+        assertEquals(captor.getValue().getTransactionHash(), hash);
+        verify(pendingTransactionRepository, never()).save(any(PendingTransaction.class));
+    }
+
+    @Test
+    void submit_ShouldFillNonceWhenTimedOutBeforeRecord() {
+        // Arrange
+        transactionSubmitter = submitter(50);
+        when(pendingTransactionRepository.insert(any(PendingTransaction.class))).thenAnswer(invocation -> {
+            spin(300);
+            return invocation.getArgument(0);
+        });
+
+        // Act
+        CompletableFuture<String> result = transactionSubmitter.submit(CONTRACT_ADDRESS, "0xabcdef", BigInteger.ZERO);
+
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        ArgumentCaptor<PendingTransaction> captor = ArgumentCaptor.forClass(PendingTransaction.class);
+        verify(pendingTransactionRepository, timeout(5000)).save(captor.capture());
+        assertTrue(captor.getValue().isFiller());
+        assertEquals(transactionSubmitter.getAddress(), captor.getValue().getToAddress());
+    }
+
+    private TransactionSubmitter submitter(long timeoutMillis) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BlockchainExecutor blockchainExecutor = new BlockchainExecutor(meterRegistry, 4, 100, timeoutMillis, false);
+        return new TransactionSubmitter(web3j, blockchainExecutor, Credentials.create(PRIVATE_KEY),
+            pendingTransactionRepository, mongoTemplate, meterRegistry, 1337,
+            BigInteger.valueOf(20_000_000_000L), BigInteger.valueOf(200_000_000_000L), BigInteger.valueOf(6_721_975L),
+            16, 60_000);
+    }
+
+    // Busy-waits so the timeout's interrupt does not cut the call short
+    private static void spin(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.carrent.service;
+
+import com.carrent.model.UnreadCount;
+import com.carrent.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnreadCounterCacheTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    private UnreadCounterCache unreadCounterCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        unreadCounterCache = new UnreadCounterCache(notificationRepository, 3_600_000);
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndApplyChanges() {
+        // Arrange
+        when(notificationRepository.countByUserIdAndRead("user123", false)).thenReturn(4L);
+
+        // Act
+        unreadCounterCache.get("user123");
+        unreadCounterCache.add("user123", 1);
+        unreadCounterCache.add("user123", -2);
+        long result = unreadCounterCache.get("user123");
+
+        // Assert
+        assertEquals(3L, result);
+        verify(notificationRepository, times(1)).countByUserIdAndRead("user123", false);
+    }
+
+    @Test
+    void add_ShouldNotGoBelowZero() {
+        // Arrange
+        when(notificationRepository.countByUserIdAndRead("user123", false)).thenReturn(1L);
+        unreadCounterCache.get("user123");
+
+        // Act
+        unreadCounterCache.add("user123", -5);
+
+        // Assert
+        assertEquals(0L, unreadCounterCache.get("user123"));
+    }
+
+    @Test
+    void reconcile_ShouldCorrectDrift() {
+        // Arrange
+        when(notificationRepository.countByUserIdAndRead("user123", false)).thenReturn(2L);
+        unreadCounterCache.get("user123");
+        UnreadCount actual = new UnreadCount();
+        actual.setUserId("user123");
+        actual.setCount(7L);
+        when(notificationRepository.countUnreadByUserIdIn(anyCollection()))
+            .thenReturn(Collections.singletonList(actual));
+
+        // Act
+        unreadCounterCache.reconcile();
+
+        // Assert
+        assertEquals(7L, unreadCounterCache.get("user123"));
+    }
+}
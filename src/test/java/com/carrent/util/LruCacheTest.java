@@ -0,0 +1,40 @@
+package com.carrent.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedEntry() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(2, 60_000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        // Act
+        cache.put("c", 3);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void get_ShouldDropExpiredEntry() {
+        // Arrange
+        LruCache<String, Integer> cache = new LruCache<>(2, -1);
+        cache.put("a", 1);
+
+        // Act
+        Integer result = cache.get("a");
+
+        // Assert
+        assertNull(result);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,54 @@
+package com.carrent.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelematicsFrameCodecTest {
+
+    @Test
+    void decode_ShouldReadAllCompleteFrames() {
+        // Arrange
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        TelematicsFrameCodec.encode(buffer, 7, 52.5200066, 13.4049540, 1_700_000_000_000L);
+        TelematicsFrameCodec.encode(buffer, 8, -33.8688197, 151.2092955, 1_700_000_005_000L);
+        buffer.flip();
+        List<Object[]> frames = new ArrayList<>();
+
+        // Act
+        int count = TelematicsFrameCodec.decode(buffer,
+            (deviceIndex, latitude, longitude, epochMillis) ->
+                frames.add(new Object[]{deviceIndex, latitude, longitude, epochMillis}));
+
+        // Assert
+        assertEquals(2, count);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(7, frames.get(0)[0]);
+        assertEquals(52.5200066, (double) frames.get(0)[1], 1e-7);
+        assertEquals(13.4049540, (double) frames.get(0)[2], 1e-7);
+        assertEquals(-33.8688197, (double) frames.get(1)[1], 1e-7);
+        assertEquals(151.2092955, (double) frames.get(1)[2], 1e-7);
+        assertEquals(1_700_000_005_000L, frames.get(1)[3]);
+    }
+
+    @Test
+    void decode_ShouldLeavePartialFrameForNextRead() {
+        // Arrange
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        TelematicsFrameCodec.encode(buffer, 1, 48.85, 2.35, 1_000L);
+        buffer.putInt(2).putInt(123);
+        buffer.flip();
+
+        // Act
+        int count = TelematicsFrameCodec.decode(buffer, (deviceIndex, latitude, longitude, epochMillis) -> { });
+
+        // Assert
+        assertEquals(1, count);
+        assertEquals(TelematicsFrameCodec.FRAME_SIZE, buffer.position());
+        assertEquals(8, buffer.remaining());
+    }
+}
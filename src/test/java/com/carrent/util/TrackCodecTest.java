@@ -0,0 +1,34 @@
+package com.carrent.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackCodecTest {
+
+    @Test
+    void encode_ShouldRoundTripPoints() {
+        // Arrange
+        TrackCodec.Encoder encoder = new TrackCodec.Encoder();
+        long start = 1_700_000_000_000L;
+        for (int i = 0; i < 500; i++) {
+            encoder.append(start + i * 5_000L, 52.520008 + i * 0.0001, 13.404954 - i * 0.0002);
+        }
+
+        // Act
+        List<double[]> decoded = new ArrayList<>();
+        int count = TrackCodec.decode(encoder.toByteArray(),
+            (epochMillis, latitude, longitude) -> decoded.add(new double[]{epochMillis, latitude, longitude}));
+
+        // Assert
+        assertEquals(500, count);
+        assertEquals(start + 499 * 5_000L, (long) decoded.get(499)[0]);
+        assertEquals(52.520008 + 499 * 0.0001, decoded.get(499)[1], 1e-6);
+        assertEquals(13.404954 - 499 * 0.0002, decoded.get(499)[2], 1e-6);
+        // Small deltas should stay well under the 20 bytes of a raw fixed-width point
+        assertTrue(encoder.getLength() < 500 * 8);
+    }
+}
@@ -0,0 +1,45 @@
+package com.carrent.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackSimplifierTest {
+
+    @Test
+    void simplify_ShouldDropPointsOnAStraightLine() {
+        // Arrange
+        int count = 100;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = 52.0 + i * 0.001;
+            longitudes[i] = 13.0;
+        }
+
+        // Act
+        boolean[] keep = TrackSimplifier.simplify(latitudes, longitudes, count, 1.0);
+
+        // Assert
+        int kept = 0;
+        for (boolean k : keep) {
+            kept += k ? 1 : 0;
+        }
+        assertEquals(2, kept);
+        assertTrue(keep[0]);
+        assertTrue(keep[count - 1]);
+    }
+
+    @Test
+    void simplify_ShouldKeepCorners() {
+        // Arrange: an L-shaped path with the corner at index 2
+        double[] latitudes = {52.000, 52.001, 52.002, 52.002, 52.002};
+        double[] longitudes = {13.000, 13.000, 13.000, 13.001, 13.002};
+
+        // Act
+        boolean[] keep = TrackSimplifier.simplify(latitudes, longitudes, 5, 5.0);
+
+        // Assert
+        assertArrayEquals(new boolean[]{true, false, true, false, true}, keep);
+    }
+}